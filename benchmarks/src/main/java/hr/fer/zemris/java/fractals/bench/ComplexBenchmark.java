@@ -0,0 +1,82 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.MutableComplex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of {@link Complex} arithmetic and of in-place arithmetic of
+ * {@link MutableComplex}. Run with {@code -prof gc} to see allocation per operation,
+ * in-place operations should report 0 B/op after warm-up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ComplexBenchmark {
+
+    @Param({"8", "20"})
+    int power;
+
+    Complex a = new Complex(0.3, -0.7);
+    Complex b = new Complex(-1.1, 0.4);
+    MutableComplex accumulator = new MutableComplex();
+
+    @Benchmark
+    public Complex add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Complex multiply() {
+        return a.multiply(b);
+    }
+
+    @Benchmark
+    public Complex divide() {
+        return a.divide(b);
+    }
+
+    @Benchmark
+    public Complex power() {
+        return a.power(power);
+    }
+
+    @Benchmark
+    public double module() {
+        return a.module();
+    }
+
+    @Benchmark
+    public double mulAssign() {
+        return accumulator.set(a).mulAssign(b).getRe();
+    }
+
+    @Benchmark
+    public double divAssign() {
+        return accumulator.set(a).divAssign(b).getRe();
+    }
+
+    @Benchmark
+    public double fma() {
+        return accumulator.set(a).fma(a, b).getRe();
+    }
+
+    @Benchmark
+    public double powerInPlace() {
+        return accumulator.set(a).power(power).getRe();
+    }
+}
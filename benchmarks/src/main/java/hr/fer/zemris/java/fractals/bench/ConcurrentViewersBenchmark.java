@@ -0,0 +1,91 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.java.fractals.NewtonParallel;
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.ExecutionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latency of {@code produce()} of {@link NewtonParallel} while several viewers render at
+ * once, for every {@link ExecutionMode}. Every benchmark thread is one viewer with its
+ * own producer: one viewer renders large images of many roots, the others small images
+ * of few roots. Sample time mode reports percentiles of each kind of viewer, so tail
+ * latency of small viewers shows how fairly modes share the cores. Virtual mode needs
+ * Java 21 or newer, on older Java run only the other modes with
+ * {@code -p execution=fork_join,shared}. In shared mode all viewers share one scheduler
+ * with global budget of threads.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class ConcurrentViewersBenchmark {
+
+    /**
+     * Viewer with its own producer
+     */
+    @State(Scope.Thread)
+    public static class Viewer {
+
+        @Param({"fork_join", "virtual", "shared"})
+        String execution;
+
+        @Param({"2"})
+        int workers;
+
+        NewtonParallel.FractalProducerImpl large;
+        NewtonParallel.FractalProducerImpl small;
+        long requestNo;
+
+        @Setup
+        public void setup() {
+            System.setProperty(ExecutionMode.PROPERTY, execution);
+            large = new NewtonParallel.FractalProducerImpl(4 * workers, workers, RootSets.random(20, 42), Backend.SCALAR);
+            small = new NewtonParallel.FractalProducerImpl(4 * workers, workers, RootSets.unity(4), Backend.SCALAR);
+
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+
+        @TearDown
+        public void tearDown() {
+            large.shutdown();
+            small.shutdown();
+        }
+    }
+
+    @Benchmark
+    @Group("viewers")
+    @GroupThreads(1)
+    public void large(Viewer viewer, Blackhole blackhole) {
+        viewer.large.produce(-2, 2, -2, 2, 1024, 768, viewer.requestNo++,
+                (data, limit, no) -> blackhole.consume(data), new AtomicBoolean());
+    }
+
+    @Benchmark
+    @Group("viewers")
+    @GroupThreads(3)
+    public void small(Viewer viewer, Blackhole blackhole) {
+        viewer.small.produce(-2, 2, -2, 2, 256, 256, viewer.requestNo++,
+                (data, limit, no) -> blackhole.consume(data), new AtomicBoolean());
+    }
+}
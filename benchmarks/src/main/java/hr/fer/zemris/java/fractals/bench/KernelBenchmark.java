@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.math.NewtonStep;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of iteration of a single pixel in {@link NewtonKernel}. With
+ * {@code -prof gc} allocation rate should stay at zero.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class KernelBenchmark {
+
+    @Param({"8", "20", "100"})
+    int degree;
+
+    @Param({"EXPANDED", "ROOT_PRODUCT"})
+    NewtonStep step;
+
+    NewtonKernel kernel;
+
+    /**
+     * Starting point in basin of a root and starting point near boundary of basins
+     */
+    double nearRe = 0.9, nearIm = 0.1;
+    double boundaryRe, boundaryIm;
+
+    @Setup
+    public void setup() {
+        kernel = new NewtonKernel(RootSets.unity(degree), step);
+        double angle = Math.PI / degree;
+        boundaryRe = 0.5 * Math.cos(angle);
+        boundaryIm = 0.5 * Math.sin(angle);
+    }
+
+    @Benchmark
+    public int convergingPixel() {
+        return kernel.rootIndexFor(nearRe, nearIm);
+    }
+
+    @Benchmark
+    public int boundaryPixel() {
+        return kernel.rootIndexFor(boundaryRe, boundaryIm);
+    }
+
+    @Benchmark
+    public int closestRootIndex() {
+        return kernel.closestRootIndex(1.0001, 0.0001);
+    }
+}
@@ -0,0 +1,92 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.java.fractals.util.ComplexParser;
+import hr.fer.zemris.java.fractals.util.Util;
+import hr.fer.zemris.math.Complex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of reading a file of roots, one root per line, by {@link ComplexParser}
+ * over memory mapped file and over reader, compared with reading lines and parsing
+ * each of them separately
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParserBenchmark {
+
+    @Param({"1000000"})
+    int lines;
+
+    Path file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = Files.createTempFile("roots", ".txt");
+        Random random = new Random(42);
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < lines; i++) {
+                double re = random.nextGaussian();
+                double im = random.nextGaussian();
+                if (i % 2 == 0)
+                    writer.write(String.format(Locale.ROOT, "%.6f %s i%.6f%n", re, im < 0 ? "-" : "+", Math.abs(im)));
+                else
+                    writer.write(String.format(Locale.ROOT, "%.10e%+.10ei%n", re, im));
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Complex[] mapped() throws IOException {
+        return Util.readRoots(file);
+    }
+
+    @Benchmark
+    public Complex[] reader() throws IOException {
+        try (Reader reader = Files.newBufferedReader(file)) {
+            return new ComplexParser(reader).readAll();
+        }
+    }
+
+    @Benchmark
+    public Complex[] perLine() throws IOException {
+        List<Complex> roots = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null)
+                roots.add(Util.parseComplex(line));
+        }
+        return roots.toArray(new Complex[0]);
+    }
+}
@@ -0,0 +1,69 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.java.fractals.io.Palette;
+import hr.fer.zemris.java.fractals.io.PngWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a large image of root indexes by {@link PngWriter} band by band, with
+ * segments deflated on pools of different parallelism
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PngBenchmark {
+
+    @Param({"4096"})
+    int size;
+
+    @Param({"1", "4"})
+    int parallelism;
+
+    @Param({"256"})
+    int band;
+
+    short[] data;
+    Palette palette = new Palette(20);
+    ForkJoinPool pool;
+
+    @Setup
+    public void setup() {
+        data = new short[band * size];
+        for (int y = 0; y < band; y++)
+            for (int x = 0; x < size; x++)
+                data[y * size + x] = (short) ((int) (10 * (Math.sin(x * 0.01) * Math.cos(y * 0.013) + 2)) % 21);
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void encode() throws IOException {
+        try (PngWriter png = new PngWriter(OutputStream.nullOutputStream(), size, size, palette, pool, parallelism)) {
+            for (int y = 0; y < size; y += band)
+                png.writeRows(data, Math.min(band, size - y));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.ComplexPolynomial;
+import hr.fer.zemris.math.ComplexRootedPolynomial;
+import hr.fer.zemris.math.PolynomialExpansion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmarks of {@link ComplexPolynomial}, {@link ComplexRootedPolynomial} and
+ * {@link PolynomialExpansion}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PolynomialBenchmark {
+
+    @Param({"8", "20", "100", "2000"})
+    int degree;
+
+    ComplexRootedPolynomial rooted;
+    ComplexPolynomial polynomial;
+    ComplexPolynomial linear;
+    Complex z = new Complex(0.3, -0.7);
+    Complex nearRoot;
+    double[] rootRe;
+    double[] rootIm;
+    double[] coefficientRe;
+    double[] coefficientIm;
+
+    @Setup
+    public void setup() {
+        Complex[] roots = RootSets.random(degree, 42);
+        rooted = new ComplexRootedPolynomial(Complex.ONE, roots);
+        polynomial = rooted.toComplexPolynom();
+        linear = new ComplexPolynomial(new Complex(-0.5, 0.5), Complex.ONE);
+        nearRoot = roots[degree / 2].add(new Complex(1e-4, -1e-4));
+        rootRe = new double[degree];
+        rootIm = new double[degree];
+        for (int i = 0; i < degree; i++) {
+            rootRe[i] = roots[i].getRe();
+            rootIm[i] = roots[i].getIm();
+        }
+        coefficientRe = new double[degree + 1];
+        coefficientIm = new double[degree + 1];
+    }
+
+    @Benchmark
+    public Complex apply() {
+        return polynomial.apply(z);
+    }
+
+    @Benchmark
+    public Complex[] applyWithDerivative() {
+        return polynomial.applyWithDerivative(z);
+    }
+
+    @Benchmark
+    public ComplexPolynomial derive() {
+        return polynomial.derive();
+    }
+
+    @Benchmark
+    public ComplexPolynomial multiply() {
+        return polynomial.multiply(linear);
+    }
+
+    @Benchmark
+    public Complex rootedApply() {
+        return rooted.apply(z);
+    }
+
+    @Benchmark
+    public Complex newtonCorrection() {
+        return rooted.newtonCorrection(z);
+    }
+
+    @Benchmark
+    public ComplexPolynomial toComplexPolynom() {
+        return rooted.toComplexPolynom();
+    }
+
+    @Benchmark
+    public double[] expand() {
+        PolynomialExpansion.expand(rootRe, rootIm, coefficientRe, coefficientIm);
+        return coefficientRe;
+    }
+
+    @Benchmark
+    public ComplexPolynomial square() {
+        return polynomial.multiply(polynomial);
+    }
+
+    @Benchmark
+    public int indexOfClosestRootFor() {
+        return rooted.indexOfClosestRootFor(nearRoot, 0.002);
+    }
+}
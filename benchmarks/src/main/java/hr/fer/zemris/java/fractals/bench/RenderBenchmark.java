@@ -0,0 +1,86 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.java.fractals.NewtonParallel;
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.math.Complex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * End-to-end benchmarks of {@code produce()} of {@link NewtonParallel}. Producer prints
+ * progress to standard output, so it is silenced during benchmark.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    /**
+     * unity-N are N-th roots of unity, random-N are N random roots
+     */
+    @Param({"unity-4", "unity-8", "random-20"})
+    String roots;
+
+    @Param({"256x256", "1024x768"})
+    String resolution;
+
+    @Param({"1", "4"})
+    int workers;
+
+    @Param({"4", "16"})
+    int tracks;
+
+    @Param({"scalar"})
+    String backend;
+
+    int width;
+    int height;
+    NewtonParallel.FractalProducerImpl parallel;
+    long requestNo;
+
+    @Setup
+    public void setup() {
+        String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+
+        String[] set = roots.split("-");
+        int n = Integer.parseInt(set[1]);
+        Complex[] factors = set[0].equals("unity") ? RootSets.unity(n) : RootSets.random(n, 42);
+
+        parallel = new NewtonParallel.FractalProducerImpl(tracks, workers, factors,
+                Backend.valueOf(backend.toUpperCase()));
+
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        parallel.shutdown();
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) {
+        parallel.produce(-2, 2, -2, 2, width, height, requestNo++,
+                (data, limit, no) -> blackhole.consume(data), new AtomicBoolean());
+    }
+}
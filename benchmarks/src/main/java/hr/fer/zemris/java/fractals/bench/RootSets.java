@@ -0,0 +1,39 @@
+package hr.fer.zemris.java.fractals.bench;
+
+import hr.fer.zemris.math.Complex;
+
+import java.util.Random;
+
+/**
+ * Root sets used by benchmarks
+ */
+final class RootSets {
+
+    private RootSets() {}
+
+    /**
+     * @param n number of roots
+     * @return returns n-th roots of unity
+     */
+    static Complex[] unity(int n) {
+        Complex[] roots = new Complex[n];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            roots[i] = new Complex(Math.cos(angle), Math.sin(angle));
+        }
+        return roots;
+    }
+
+    /**
+     * @param n number of roots
+     * @param seed seed of random generator
+     * @return returns n random roots inside square [-1, 1] x [-1, 1]
+     */
+    static Complex[] random(int n, long seed) {
+        Random random = new Random(seed);
+        Complex[] roots = new Complex[n];
+        for (int i = 0; i < n; i++)
+            roots[i] = new Complex(2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1);
+        return roots;
+    }
+}
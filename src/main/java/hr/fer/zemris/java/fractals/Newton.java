@@ -1,15 +1,16 @@
 package hr.fer.zemris.java.fractals;
 
+import hr.fer.zemris.java.fractals.render.Canvas;
+import hr.fer.zemris.java.fractals.render.HeapCanvas;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.RenderTicket;
 import hr.fer.zemris.java.fractals.util.Util;
 import hr.fer.zemris.java.fractals.viewer.FractalViewer;
 import hr.fer.zemris.java.fractals.viewer.IFractalProducer;
 import hr.fer.zemris.java.fractals.viewer.IFractalResultObserver;
 import hr.fer.zemris.math.Complex;
-import hr.fer.zemris.math.ComplexPolynomial;
-import hr.fer.zemris.math.ComplexRootedPolynomial;
+import hr.fer.zemris.math.NewtonStep;
 
-import java.util.ArrayList;
-import java.util.Scanner;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class Newton {
@@ -24,46 +25,78 @@ public class Newton {
 
     public static class FractalProducerImpl implements IFractalProducer {
 
-        Complex[] factors;
+        /**
+         * Length of side of canvas tile of {@link #produce}
+         */
+        private static final int TILE_SIZE = 64;
+
+        NewtonKernel kernel;
 
         public FractalProducerImpl(Complex[] factors) {
-            this.factors = factors;
+            this(new NewtonKernel(factors, NewtonStep.fromSystemProperty()));
+        }
+
+        public FractalProducerImpl(NewtonKernel kernel) {
+            this.kernel = kernel;
+        }
+
+        /**
+         * @param width width of image
+         * @param height height of image
+         * @return returns length of side of canvas tiles in which {@link #produce} renders image of given size
+         */
+        int tileSize(int width, int height) {
+            return TILE_SIZE;
         }
 
         @Override
         public void produce(double reMin, double reMax, double imMin, double imMax, int width, int height, long requestNO, IFractalResultObserver observer, AtomicBoolean cancel) {
 
             System.out.println("Starting calculation...");
-            int m = 16*16*16;
-            int offset = 0;
-            short[] data = new short[width * height];
-            ComplexPolynomial polynomial = null;
-            for (int y = 0; y < height; y++) {
-                if (cancel.get()) break;
-                for (int x = 0; x < width; x++) {
-                    double cRe = x / (width - 1.0) * (reMax - reMin) + reMin;
-                    double cIm = (height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin;
-                    Complex zn = new Complex(cRe, cIm);
-                    ComplexRootedPolynomial rootedPolynomial = new ComplexRootedPolynomial(zn, factors);
-                    polynomial = rootedPolynomial.toComplexPolynom();
-                    double module;
-                    int iter = 0;
-                    do {
-                        Complex numerator = polynomial.apply(zn);
-                        ComplexPolynomial derived = polynomial.derive();
-                        Complex denominator = derived.apply(zn);
-                        Complex znold = zn;
-                        Complex fraction = numerator.divide(denominator);
-                        zn = zn.sub(fraction);
-                        module = znold.sub(zn).module();
-                        iter++;
-                    } while (module > 0.001 && iter < m);
-                    int index = rootedPolynomial.indexOfClosestRootFor(zn, 0.002) + 1;
-                    data[offset++] = (short) index;
-                }
+            HeapCanvas canvas = new HeapCanvas(width, height, tileSize(width, height));
+            RenderTicket ticket = new RenderTicket(requestNO, cancel);
+            render(reMin, reMax, imMin, imMax, canvas, ticket);
+            if (ticket.isCancelled()) {
+                System.out.println("Calculation cancelled");
+                return;
             }
             System.out.println("Calculation ended");
-            observer.acceptResult(data, (short)(polynomial.order() + 1), requestNO);
+            observer.acceptResult(canvas.getData(), (short)(kernel.order() + 1), requestNO);
+        }
+
+        /**
+         * Renders tiles of canvas of given viewport which are not done yet, one by one in
+         * the calling thread, and returns when image is rendered or cancelled
+         *
+         * @param reMin minimal real value of viewport
+         * @param reMax maximal real value of viewport
+         * @param imMin minimal imaginary value of viewport
+         * @param imMax maximal imaginary value of viewport
+         * @param canvas canvas into which image is written
+         * @param cancel cancel flag of request
+         */
+        public void render(double reMin, double reMax, double imMin, double imMax, Canvas canvas, AtomicBoolean cancel) {
+            render(reMin, reMax, imMin, imMax, canvas, new RenderTicket(0, cancel));
+        }
+
+        private void render(double reMin, double reMax, double imMin, double imMax, Canvas canvas, RenderTicket ticket) {
+            int width = canvas.getWidth();
+            int height = canvas.getHeight();
+            int tileSize = canvas.getTileSize();
+            short[] tile = new short[tileSize * tileSize];
+            for (int tileY = 0; tileY < canvas.getTilesY(); tileY++) {
+                for (int tileX = 0; tileX < canvas.getTilesX(); tileX++) {
+                    if (canvas.isTileDone(tileX, tileY))
+                        continue;
+                    int xMin = tileX * tileSize;
+                    int yMin = tileY * tileSize;
+                    kernel.renderTile(reMin, reMax, imMin, imMax, width, height, xMin, Math.min(xMin + tileSize, width) - 1,
+                            yMin, Math.min(yMin + tileSize, height) - 1, tile, 0, tileSize, ticket);
+                    if (ticket.isCancelled())
+                        return;
+                    canvas.writeTile(tileX, tileY, tile, tileSize);
+                }
+            }
         }
     }
 
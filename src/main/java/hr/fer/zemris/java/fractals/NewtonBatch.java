@@ -0,0 +1,584 @@
+package hr.fer.zemris.java.fractals;
+
+import hr.fer.zemris.java.fractals.io.Palette;
+import hr.fer.zemris.java.fractals.io.PngWriter;
+import hr.fer.zemris.java.fractals.io.RawWriter;
+import hr.fer.zemris.java.fractals.remote.RemoteRenderer;
+import hr.fer.zemris.java.fractals.render.AdaptiveRenderer;
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.BandCanvas;
+import hr.fer.zemris.java.fractals.render.MappedCanvas;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.PerturbationRenderer;
+import hr.fer.zemris.java.fractals.render.PrecisionMode;
+import hr.fer.zemris.java.fractals.render.RenderEngine;
+import hr.fer.zemris.java.fractals.render.RenderTicket;
+import hr.fer.zemris.java.fractals.render.SequenceRenderer;
+import hr.fer.zemris.java.fractals.render.ShadedImage;
+import hr.fer.zemris.java.fractals.render.TileCache;
+import hr.fer.zemris.java.fractals.render.ZoomPath;
+import hr.fer.zemris.java.fractals.util.ComplexParser;
+import hr.fer.zemris.java.fractals.util.Util;
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.NewtonStep;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Headless renderer of Newton-Raphson fractals. Parameters are given as command line
+ * arguments {@code --key=value} or in job file ({@code --job=file}) with lines
+ * {@code key=value}; command line arguments override values from job file.
+ *
+ * Image is rendered band by band by the producer and every band is written to output
+ * before the next one is calculated, so only one band is kept in memory. Band is a
+ * {@link BandCanvas} of the whole viewport, so pixels are calculated on the pixel grid of
+ * the whole image, in the same tiles, and image is the same as the producer renders for
+ * the viewer.
+ * {@link PngWriter} deflates written rows in parallel while the next band is calculated.
+ *
+ * Keys:
+ * <ul>
+ *     <li>roots - roots separated by commas, for example {@code 1,-1,i,-i}, in any form
+ *     accepted by {@link ComplexParser}</li>
+ *     <li>roots-file - file with roots, one per line, instead of roots</li>
+ *     <li>viewport - reMin,reMax,imMin,imMax, default -2,2,-2,2</li>
+ *     <li>size - WIDTHxHEIGHT, default 1000x1000</li>
+ *     <li>max-iterations, convergence, root-threshold - parameters of iteration</li>
+ *     <li>png, raw - output files, at least one is required</li>
+ *     <li>smooth - output file of smooth iteration counts as raw big-endian floats,
+ *     rendered in the same pass as root indexes, only with parallel producer and without canvas</li>
+ *     <li>band - number of rows rendered at once, rounded down to whole rows of tiles of
+ *     the producer</li>
+ *     <li>workers, tracks - parallel producer parameters</li>
+ *     <li>producer - parallel (default) or sequential</li>
+ *     <li>backend - scalar (default) or vector, vector requires step root-product</li>
+ *     <li>step - expanded (default) or root-product, see {@link NewtonStep}</li>
+ *     <li>adaptive - true for adaptive subdivision of parallel producer, default false</li>
+ *     <li>canvas - file of memory mapped canvas, see below</li>
+ *     <li>remote - addresses host:port of render workers separated by commas, only with
+ *     parallel producer</li>
+ *     <li>tile - length of side of canvas tile, default 256</li>
+ *     <li>sequence - directory into which frames of zoom animation are written, see below</li>
+ *     <li>keyframes - keyframes of animation separated by semicolons, each as
+ *     centerRe,centerIm,span where span is real width of viewport</li>
+ *     <li>frames - number of frames between two keyframes, default 30</li>
+ *     <li>cache - tile cache of animation in megabytes, default 256</li>
+ *     <li>queue - number of frames waiting for encoding and for writing, default 4</li>
+ * </ul>
+ *
+ * If canvas is given, image is rendered by the producer into memory mapped
+ * {@link MappedCanvas} instead of its heap canvas, which allows images with more than
+ * 2^31 pixels and a small heap.
+ * If the same job is started again with existing canvas file, only missing tiles are
+ * rendered. Outputs are then written band by band from canvas.
+ *
+ * Viewport bounds are parsed exactly. If pixels of the viewport are too close for plain
+ * double, image is rendered by {@link PerturbationRenderer} with reference orbit in
+ * double-double or arbitrary precision, directly on {@link RenderEngine}.
+ *
+ * If sequence is given, frames of zoom along keyframes are rendered by
+ * {@link SequenceRenderer} into PNG files frame-00000.png, frame-00001.png, ... and
+ * viewport and other outputs are ignored.
+ */
+public class NewtonBatch {
+
+    /**
+     * Maximal number of pixels in one band if band is not given
+     */
+    private static final int DEFAULT_BAND_PIXELS = 1 << 24;
+
+    public static void main(String[] args) {
+        Job job;
+        try {
+            job = Job.fromArguments(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: NewtonBatch --roots=1,-1,i,-i|--roots-file=file --size=4000x4000 --png=out.png [--raw=out.raw]"
+                    + " [--viewport=-2,2,-2,2] [--max-iterations=4096] [--convergence=0.001] [--root-threshold=0.002]"
+                    + " [--band=rows] [--workers=n] [--tracks=n] [--producer=parallel|sequential]"
+                    + " [--backend=scalar|vector] [--step=expanded|root-product] [--adaptive=true] [--canvas=file] [--tile=256] [--smooth=out.f32] [--remote=host:port,...] [--job=file]"
+                    + " [--sequence=dir --keyframes=re,im,span;re,im,span [--frames=30] [--cache=256] [--queue=4]]");
+            System.exit(1);
+            return;
+        }
+
+        try {
+            long start = System.nanoTime();
+            render(job);
+            System.out.printf("Rendered %dx%d in %.1f s%n", job.width, job.height, (System.nanoTime() - start) / 1e9);
+        } catch (IOException e) {
+            System.err.println("Could not write output: " + e.getMessage());
+            System.exit(2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Renders given job and writes it to its outputs
+     *
+     * @param job description of image
+     * @throws IOException if writing fails
+     * @throws InterruptedException if rendering of animation is interrupted
+     */
+    public static void render(Job job) throws IOException, InterruptedException {
+        if (job.sequence != null) {
+            renderSequence(job);
+            return;
+        }
+        if (job.canvas != null) {
+            renderCanvas(job);
+            return;
+        }
+
+        NewtonKernel kernel = new NewtonKernel(job.roots, job.maxIterations, job.convergenceThreshold, job.rootThreshold, job.step);
+        if (job.precision() != PrecisionMode.DOUBLE) {
+            renderDeep(job, job.deepRenderer(kernel));
+            return;
+        }
+        Newton.FractalProducerImpl sequential = null;
+        NewtonParallel.FractalProducerImpl parallel = null;
+        int tileSize;
+        if (job.sequential) {
+            sequential = new Newton.FractalProducerImpl(kernel);
+            tileSize = sequential.tileSize(job.width, job.height);
+        } else {
+            parallel = new NewtonParallel.FractalProducerImpl(job.tracks, job.workers, kernel, job.backend);
+            parallel.setAdaptive(job.adaptive);
+            if (job.remote != null)
+                parallel.setRemoteWorkers(RemoteRenderer.parseAddresses(job.remote));
+            tileSize = parallel.tileSize(job.width, job.height);
+        }
+        /* bands are made of whole rows of tiles of the producer, so they are rendered in the same tiles as whole image */
+        int band = Math.min(job.height, Math.max(tileSize, job.band / tileSize * tileSize));
+        if ((long) band * job.width > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Band of " + band + " rows is too large for width " + job.width);
+
+        PngWriter png = null;
+        RawWriter raw = null;
+        RawWriter smooth = null;
+        try {
+            if (job.png != null)
+                png = new PngWriter(outputStream(job.png), job.width, job.height, new Palette(job.roots.length));
+            if (job.raw != null)
+                raw = new RawWriter(outputStream(job.raw));
+            if (job.smooth != null)
+                smooth = new RawWriter(outputStream(job.smooth));
+
+            AtomicBoolean cancel = new AtomicBoolean();
+            short[] buffer = smooth == null ? new short[band * job.width] : null;
+            for (int y = 0; y < job.height; y += band) {
+                int rows = Math.min(band, job.height - y);
+                short[] data;
+                if (smooth != null) {
+                    ShadedImage image = parallel.produceShaded(job.reMin, job.reMax, job.imMin, job.imMax,
+                            job.width, job.height, y, rows, cancel);
+                    data = image.getIndexes();
+                    smooth.write(image.getSmooth(), job.width * rows);
+                } else {
+                    BandCanvas canvas = new BandCanvas(job.width, job.height, tileSize, y, rows, buffer);
+                    if (sequential != null)
+                        sequential.render(job.reMin, job.reMax, job.imMin, job.imMax, canvas, cancel);
+                    else
+                        parallel.render(job.reMin, job.reMax, job.imMin, job.imMax, canvas, cancel);
+                    data = canvas.getData();
+                }
+
+                if (png != null) png.writeRows(data, rows);
+                if (raw != null) raw.write(data, job.width * rows);
+            }
+        } finally {
+            if (png != null) png.close();
+            if (raw != null) raw.close();
+            if (smooth != null) smooth.close();
+            if (parallel != null) parallel.shutdown();
+        }
+    }
+
+    /**
+     * Renders given deep zoom job band by band with perturbation
+     *
+     * @param job description of image
+     * @param renderer renderer of whole image
+     * @throws IOException if writing fails
+     */
+    private static void renderDeep(Job job, PerturbationRenderer renderer) throws IOException {
+        System.out.println("Deep zoom, reference orbit in " + job.precision() + " precision");
+        RenderEngine engine = new RenderEngine(job.workers);
+        PngWriter png = null;
+        RawWriter raw = null;
+        try {
+            if (job.png != null)
+                png = new PngWriter(outputStream(job.png), job.width, job.height, new Palette(job.roots.length));
+            if (job.raw != null)
+                raw = new RawWriter(outputStream(job.raw));
+
+            RenderTicket ticket = new RenderTicket(0, new AtomicBoolean());
+            short[] data = new short[job.band * job.width];
+            for (int y = 0; y < job.height; y += job.band) {
+                int rows = Math.min(job.band, job.height - y);
+                engine.render(renderer.band(y), job.reMin, job.reMax, imaginaryOf(job, y + rows - 1), imaginaryOf(job, y),
+                        job.width, rows, job.tracks, data, ticket);
+                if (png != null) png.writeRows(data, rows);
+                if (raw != null) raw.write(data, job.width * rows);
+            }
+        } finally {
+            if (png != null) png.close();
+            if (raw != null) raw.close();
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Renders frames of zoom animation of given job
+     *
+     * @param job description of animation
+     * @throws IOException if frame can not be written
+     * @throws InterruptedException if rendering is interrupted
+     */
+    private static void renderSequence(Job job) throws IOException, InterruptedException {
+        NewtonKernel kernel = new NewtonKernel(job.roots, job.maxIterations, job.convergenceThreshold, job.rootThreshold, job.step);
+        RenderEngine engine = new RenderEngine(job.workers);
+        try {
+            Files.createDirectories(job.sequence);
+            ZoomPath path = new ZoomPath(job.keyframes, job.frames);
+            SequenceRenderer sequence = new SequenceRenderer(engine, new TileCache(job.cacheMegabytes * 1024L * 1024L),
+                    job.width, job.height, job.queue);
+            int written = sequence.render(job.adaptive ? new AdaptiveRenderer(kernel) : job.backend.create(kernel),
+                    kernel, path, SequenceRenderer.pngEncoder(new Palette(job.roots.length)),
+                    SequenceRenderer.fileWriter(job.sequence, "frame-%05d.png"), new AtomicBoolean());
+            System.out.println("Written " + written + " frames, " + sequence.getCache());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * Renders given job into memory mapped canvas and writes outputs from it
+     *
+     * @param job description of image
+     * @throws IOException if canvas or output can not be written
+     */
+    private static void renderCanvas(Job job) throws IOException {
+        NewtonKernel kernel = new NewtonKernel(job.roots, job.maxIterations, job.convergenceThreshold, job.rootThreshold, job.step);
+        RenderEngine engine = null;
+        NewtonParallel.FractalProducerImpl parallel = null;
+        try (MappedCanvas canvas = new MappedCanvas(job.canvas, job.width, job.height, job.tile, job.key())) {
+            if (canvas.isResumed())
+                System.out.println("Resuming canvas with " + canvas.countDoneTiles() + " of "
+                        + (long) canvas.getTilesX() * canvas.getTilesY() + " tiles done");
+            AtomicBoolean cancel = new AtomicBoolean();
+            if (job.precision() != PrecisionMode.DOUBLE) {
+                engine = new RenderEngine(job.workers);
+                engine.render(job.deepRenderer(kernel), job.reMin, job.reMax, job.imMin, job.imMax,
+                        canvas, new RenderTicket(0, cancel));
+            } else if (job.sequential) {
+                new Newton.FractalProducerImpl(kernel).render(job.reMin, job.reMax, job.imMin, job.imMax, canvas, cancel);
+            } else {
+                parallel = new NewtonParallel.FractalProducerImpl(job.tracks, job.workers, kernel, job.backend);
+                parallel.setAdaptive(job.adaptive);
+                if (job.remote != null)
+                    parallel.setRemoteWorkers(RemoteRenderer.parseAddresses(job.remote));
+                parallel.render(job.reMin, job.reMax, job.imMin, job.imMax, canvas, cancel);
+            }
+
+            PngWriter png = null;
+            RawWriter raw = null;
+            try {
+                if (job.png != null)
+                    png = new PngWriter(outputStream(job.png), job.width, job.height, new Palette(job.roots.length));
+                if (job.raw != null)
+                    raw = new RawWriter(outputStream(job.raw));
+                short[] data = new short[job.band * job.width];
+                for (int y = 0; y < job.height; y += job.band) {
+                    int rows = Math.min(job.band, job.height - y);
+                    canvas.readRows(y, rows, data);
+                    if (png != null) png.writeRows(data, rows);
+                    if (raw != null) raw.write(data, job.width * rows);
+                }
+            } finally {
+                if (png != null) png.close();
+                if (raw != null) raw.close();
+            }
+        } finally {
+            if (engine != null) engine.shutdown();
+            if (parallel != null) parallel.shutdown();
+        }
+    }
+
+    /**
+     * @return returns imaginary value of row y of whole image
+     */
+    private static double imaginaryOf(Job job, int y) {
+        return (job.height - 1.0 - y) / (job.height - 1) * (job.imMax - job.imMin) + job.imMin;
+    }
+
+    private static OutputStream outputStream(Path path) throws IOException {
+        return new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+    }
+
+    /**
+     * Description of one batch render
+     */
+    public static class Job {
+
+        Complex[] roots;
+        double reMin = -2, reMax = 2, imMin = -2, imMax = 2;
+        BigDecimal[] viewport = {BigDecimal.valueOf(-2), BigDecimal.valueOf(2), BigDecimal.valueOf(-2), BigDecimal.valueOf(2)};
+        int width = 1000, height = 1000;
+        int maxIterations = NewtonKernel.DEFAULT_MAX_ITERATIONS;
+        double convergenceThreshold = NewtonKernel.DEFAULT_CONVERGENCE_THRESHOLD;
+        double rootThreshold = NewtonKernel.DEFAULT_ROOT_THRESHOLD;
+        Path png;
+        Path raw;
+        Path smooth;
+        int band;
+        int workers = Runtime.getRuntime().availableProcessors();
+        int tracks = -1;
+        boolean sequential;
+        Backend backend = Backend.SCALAR;
+        NewtonStep step = NewtonStep.EXPANDED;
+        boolean adaptive;
+        Path canvas;
+        int tile = 256;
+        String remote;
+        Path sequence;
+        List<ZoomPath.Keyframe> keyframes = new ArrayList<>();
+        int frames = 30;
+        int cacheMegabytes = 256;
+        int queue = SequenceRenderer.DEFAULT_QUEUE_CAPACITY;
+
+        /**
+         * Creates job from command line arguments
+         *
+         * @param args command line arguments
+         * @return returns job
+         * @throws IOException if job file can not be read
+         * @throws IllegalArgumentException if arguments are invalid
+         */
+        public static Job fromArguments(String[] args) throws IOException {
+            Properties properties = new Properties();
+            Properties overrides = new Properties();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("="))
+                    throw new IllegalArgumentException("Wrong format of argument : " + arg);
+                int split = arg.indexOf('=');
+                overrides.setProperty(arg.substring(2, split), arg.substring(split + 1));
+            }
+            String jobFile = overrides.getProperty("job");
+            if (jobFile != null) {
+                try (Reader reader = Files.newBufferedReader(Paths.get(jobFile))) {
+                    properties.load(reader);
+                }
+            }
+            properties.putAll(overrides);
+            return fromProperties(properties);
+        }
+
+        /**
+         * Creates job from properties
+         *
+         * @param properties keys and values of job
+         * @return returns job
+         * @throws IllegalArgumentException if values are invalid
+         */
+        public static Job fromProperties(Properties properties) {
+            if (properties.containsKey("roots") && properties.containsKey("roots-file"))
+                throw new IllegalArgumentException("Only one of roots and roots-file can be given");
+            Job job = new Job();
+            for (String key : properties.stringPropertyNames()) {
+                String value = properties.getProperty(key).trim();
+                try {
+                    job.set(key, value);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Wrong value of " + key + " : " + value);
+                }
+            }
+
+            if (job.roots == null || job.roots.length == 0)
+                throw new IllegalArgumentException("At least one root is required");
+            if (job.width < 2 || job.height < 2)
+                throw new IllegalArgumentException("Image must be at least 2x2, was " + job.width + "x" + job.height);
+            if (job.png == null && job.raw == null && job.canvas == null && job.smooth == null && job.sequence == null)
+                throw new IllegalArgumentException("At least one of png, raw, smooth, canvas and sequence outputs is required");
+            if (job.remote != null && (job.sequential || job.sequence != null))
+                throw new IllegalArgumentException("Remote workers require parallel producer without sequence");
+            if (job.sequence != null && job.keyframes.isEmpty())
+                throw new IllegalArgumentException("Sequence requires keyframes");
+            if (job.frames < 1 || job.cacheMegabytes < 1 || job.queue < 1)
+                throw new IllegalArgumentException("Frames, cache and queue must be positive");
+            if (job.smooth != null && (job.sequential || job.canvas != null || job.precision() != PrecisionMode.DOUBLE))
+                throw new IllegalArgumentException("Smooth output requires parallel producer without canvas and deep zoom");
+            if (job.band == 0)
+                job.band = Math.max(2, Math.min(job.height, DEFAULT_BAND_PIXELS / job.width));
+            if (job.band < 2)
+                throw new IllegalArgumentException("Band must have at least 2 rows, was " + job.band);
+            if ((long) job.band * job.width > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Band of " + job.band + " rows is too large for width " + job.width);
+            if (job.tracks < 0)
+                job.tracks = 4 * job.workers;
+            if (job.tile < 1)
+                throw new IllegalArgumentException("Tile size must be positive, was " + job.tile);
+            job.backend.checkStep(job.step);
+            return job;
+        }
+
+        /**
+         * @return returns precision needed for viewport
+         */
+        PrecisionMode precision() {
+            double spacing = Math.min(viewport[1].subtract(viewport[0]).doubleValue() / (width - 1),
+                    viewport[3].subtract(viewport[2]).doubleValue() / (height - 1));
+            return PrecisionMode.forViewport((reMin + reMax) / 2, (imMin + imMax) / 2, spacing);
+        }
+
+        /**
+         * @param kernel kernel used for calculation
+         * @return returns perturbation renderer of whole image, with exact viewport center
+         */
+        PerturbationRenderer deepRenderer(NewtonKernel kernel) {
+            BigDecimal two = BigDecimal.valueOf(2);
+            BigDecimal centerRe = viewport[0].add(viewport[1]).divide(two);
+            BigDecimal centerIm = viewport[2].add(viewport[3]).divide(two);
+            double spacingRe = viewport[1].subtract(viewport[0]).doubleValue() / (width - 1);
+            double spacingIm = viewport[3].subtract(viewport[2]).doubleValue() / (height - 1);
+            return PerturbationRenderer.create(kernel, centerRe, centerIm, spacingRe, spacingIm, width, height);
+        }
+
+        /**
+         * @return returns key of parameters which determine content of image
+         */
+        long key() {
+            long key = Arrays.hashCode(new double[] {reMin, reMax, imMin, imMax, convergenceThreshold, rootThreshold});
+            key = 31 * key + Arrays.hashCode(viewport);
+            key = 31 * key + maxIterations;
+            key = 31 * key + step.ordinal();
+            key = 31 * key + backend.ordinal();
+            key = 31 * key + (adaptive ? 1 : 0);
+            for (Complex root : roots)
+                key = 31 * key + Double.hashCode(root.getRe()) * 17L + Double.hashCode(root.getIm());
+            return key;
+        }
+
+        private void set(String key, String value) {
+            switch (key) {
+                case "job":
+                    break;
+                case "roots":
+                    roots = ComplexParser.parseAll(value);
+                    break;
+                case "roots-file":
+                    try {
+                        roots = Util.readRoots(Paths.get(value));
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Can not read roots from " + value + " : " + e.getMessage());
+                    }
+                    break;
+                case "viewport":
+                    String[] bounds = value.split(",");
+                    if (bounds.length != 4)
+                        throw new IllegalArgumentException("Viewport must be reMin,reMax,imMin,imMax, was " + value);
+                    for (int i = 0; i < 4; i++)
+                        viewport[i] = new BigDecimal(bounds[i].trim());
+                    reMin = viewport[0].doubleValue();
+                    reMax = viewport[1].doubleValue();
+                    imMin = viewport[2].doubleValue();
+                    imMax = viewport[3].doubleValue();
+                    break;
+                case "size":
+                    String[] size = value.toLowerCase().split("x");
+                    if (size.length != 2)
+                        throw new IllegalArgumentException("Size must be WIDTHxHEIGHT, was " + value);
+                    width = Integer.parseInt(size[0].trim());
+                    height = Integer.parseInt(size[1].trim());
+                    break;
+                case "max-iterations":
+                    maxIterations = Integer.parseInt(value);
+                    break;
+                case "convergence":
+                    convergenceThreshold = Double.parseDouble(value);
+                    break;
+                case "root-threshold":
+                    rootThreshold = Double.parseDouble(value);
+                    break;
+                case "png":
+                    png = Paths.get(value);
+                    break;
+                case "raw":
+                    raw = Paths.get(value);
+                    break;
+                case "smooth":
+                    smooth = Paths.get(value);
+                    break;
+                case "band":
+                    band = Integer.parseInt(value);
+                    break;
+                case "workers":
+                    workers = Integer.parseInt(value);
+                    break;
+                case "tracks":
+                    tracks = Integer.parseInt(value);
+                    break;
+                case "producer":
+                    if (!value.equals("parallel") && !value.equals("sequential"))
+                        throw new IllegalArgumentException("Unknown producer " + value);
+                    sequential = value.equals("sequential");
+                    break;
+                case "adaptive":
+                    adaptive = Boolean.parseBoolean(value);
+                    break;
+                case "canvas":
+                    canvas = Paths.get(value);
+                    break;
+                case "tile":
+                    tile = Integer.parseInt(value);
+                    break;
+                case "remote":
+                    remote = value;
+                    break;
+                case "sequence":
+                    sequence = Paths.get(value);
+                    break;
+                case "keyframes":
+                    keyframes.clear();
+                    for (String keyframe : value.split(";")) {
+                        String[] values = keyframe.split(",");
+                        if (values.length != 3)
+                            throw new IllegalArgumentException("Keyframe must be centerRe,centerIm,span, was " + keyframe);
+                        keyframes.add(new ZoomPath.Keyframe(Double.parseDouble(values[0].trim()),
+                                Double.parseDouble(values[1].trim()), Double.parseDouble(values[2].trim())));
+                    }
+                    break;
+                case "frames":
+                    frames = Integer.parseInt(value);
+                    break;
+                case "cache":
+                    cacheMegabytes = Integer.parseInt(value);
+                    break;
+                case "queue":
+                    queue = Integer.parseInt(value);
+                    break;
+                case "backend":
+                    backend = Backend.valueOf(value.toUpperCase());
+                    break;
+                case "step":
+                    step = NewtonStep.parse(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown key " + key);
+            }
+        }
+    }
+}
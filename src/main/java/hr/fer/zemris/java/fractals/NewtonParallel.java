@@ -1,16 +1,37 @@
 package hr.fer.zemris.java.fractals;
 
+import hr.fer.zemris.java.fractals.metrics.RenderListener;
+import hr.fer.zemris.java.fractals.metrics.RenderMetrics;
+import hr.fer.zemris.java.fractals.metrics.RenderStatistics;
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+import hr.fer.zemris.java.fractals.remote.RemoteRenderer;
+import hr.fer.zemris.java.fractals.render.AdaptiveRenderer;
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.BandCanvas;
+import hr.fer.zemris.java.fractals.render.CachingRenderer;
+import hr.fer.zemris.java.fractals.render.Canvas;
+import hr.fer.zemris.java.fractals.render.ExecutionMode;
+import hr.fer.zemris.java.fractals.render.HeapCanvas;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.PerturbationRenderer;
+import hr.fer.zemris.java.fractals.render.PrecisionMode;
+import hr.fer.zemris.java.fractals.render.ProgressivePass;
+import hr.fer.zemris.java.fractals.render.RenderEngine;
+import hr.fer.zemris.java.fractals.render.RenderTicket;
+import hr.fer.zemris.java.fractals.render.ShadedImage;
+import hr.fer.zemris.java.fractals.render.ShortBufferPool;
+import hr.fer.zemris.java.fractals.render.TileCache;
+import hr.fer.zemris.java.fractals.render.TileRenderer;
 import hr.fer.zemris.java.fractals.util.Util;
 import hr.fer.zemris.java.fractals.viewer.FractalViewer;
 import hr.fer.zemris.java.fractals.viewer.IFractalProducer;
 import hr.fer.zemris.java.fractals.viewer.IFractalResultObserver;
 import hr.fer.zemris.math.Complex;
-import hr.fer.zemris.math.ComplexPolynomial;
-import hr.fer.zemris.math.ComplexRootedPolynomial;
+import hr.fer.zemris.math.NewtonStep;
 
-import javax.swing.table.TableRowSorter;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class NewtonParallel {
@@ -20,110 +41,122 @@ public class NewtonParallel {
         System.out.println("Welcome to Newton-Raphson iteration-based fractal viewer.\nPlease enter at least two roots, one root per line. Enter 'done' when done.");
         int workers = Runtime.getRuntime().availableProcessors();
         int tracks = 4 * workers;
-        if (args.length != 0) {
-            if (args[0].startsWith("--workers") || args[0].startsWith("-w"))
-                workers = Util.parseArguments(args[0]);
-            if (args[0].startsWith("--tracks") || args[0].startsWith("-t"))
-                tracks = Util.parseArguments(args[0]);
-            if (args.length == 2) {
-                if (args[1].startsWith("--workers") || args[1].startsWith("-w"))
-                    workers = Util.parseArguments(args[1]);
-                if (args[1].startsWith("--tracks") || args[0].startsWith("-t"))
-                    tracks = Util.parseArguments(args[1]);
-                if (tracks < 1)
-                    throw new IllegalArgumentException("Number of tracks must be 1 or greater, was "+ tracks);
-            }
+        boolean progressive = false;
+        boolean adaptive = false;
+        int cacheMegabytes = 0;
+        boolean metrics = false;
+        String remote = null;
+        for (String arg : args) {
+            if (arg.equals("--progressive") || arg.equals("-p"))
+                progressive = true;
+            else if (arg.equals("--adaptive") || arg.equals("-a"))
+                adaptive = true;
+            else if (arg.startsWith("--workers") || arg.startsWith("-w"))
+                workers = Util.parseArguments(arg);
+            else if (arg.startsWith("--tracks") || arg.startsWith("-t"))
+                tracks = Util.parseArguments(arg);
+            else if (arg.equals("--metrics") || arg.equals("-m"))
+                metrics = true;
+            else if (arg.startsWith("--cache") || arg.startsWith("-c"))
+                cacheMegabytes = Util.parseArguments(arg);
+            else if (arg.equals("--virtual") || arg.equals("-v"))
+                System.setProperty(ExecutionMode.PROPERTY, ExecutionMode.VIRTUAL.name());
+            else if (arg.equals("--shared") || arg.equals("-s"))
+                System.setProperty(ExecutionMode.PROPERTY, ExecutionMode.SHARED.name());
+            else if (arg.startsWith("--remote=") || arg.startsWith("-r="))
+                remote = arg.substring(arg.indexOf('=') + 1);
         }
+        if (tracks < 1)
+            throw new IllegalArgumentException("Number of tracks must be 1 or greater, was "+ tracks);
+        Backend.fromSystemProperty().checkStep(NewtonStep.fromSystemProperty());
+        ExecutionMode.fromSystemProperty().checkAvailable();
 
         //FractalViewer.show(new FractalProducerImpl(2, 1, Util.getFactors()));
-        FractalViewer.show(new FractalProducerImpl(tracks, workers, Util.getFactors()));
-
-    }
-
-    /**
-     * Model of one calculation work
-     */
-    public static class Worker implements Runnable {
-
-        double reMin;
-        double reMax;
-        double imMin;
-        double imMax;
-        int width;
-        int height;
-        int yMin;
-        int yMax;
-        int m;
-        short[] data;
-        AtomicBoolean cancel;
-        Complex[] factors;
-        public static Worker NO_JOB = new Worker();
-
-        private Worker() {}
-
-        public Worker(double reMin, double reMax, double imMin,
-                      double imMax, int width, int height, int yMin,
-                      int yMax, int m, short[] data, AtomicBoolean cancel, Complex[] factors) {
-            this.reMin = reMin;
-            this.reMax = reMax;
-            this.imMin = imMin;
-            this.imMax = imMax;
-            this.width = width;
-            this.height = height;
-            this.yMin = yMin;
-            this.yMax = yMax;
-            this.m = m;
-            this.data = data;
-            this.cancel = cancel;
-            this.factors = factors;
+        FractalProducerImpl producer = new FractalProducerImpl(tracks, workers, Util.getFactors());
+        producer.setProgressive(progressive);
+        producer.setAdaptive(adaptive);
+        if (cacheMegabytes > 0)
+            producer.setTileCache(new TileCache(cacheMegabytes * 1024L * 1024L));
+        if (remote != null)
+            producer.setRemoteWorkers(RemoteRenderer.parseAddresses(remote));
+        if (metrics) {
+            RenderMetrics renderMetrics = new RenderMetrics();
+            renderMetrics.register("NewtonParallel");
+            producer.addRenderListener(renderMetrics);
+            producer.addRenderListener(System.out::print);
         }
+        FractalViewer.show(producer);
 
-        @Override
-        public void run() {
-
-            Thread current = Thread.currentThread();
-
-
-            int offset = width * yMin;
-            ComplexPolynomial polynomial = null;
-            for (int y = yMin; y < yMax + 1; y++) {
-                if (cancel.get()) break;
-                for (int x = 0; x < width; x++) {
-                    double cRe = x / (width - 1.0) * (reMax - reMin) + reMin;
-                    double cIm = (height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin;
-                    Complex zn = new Complex(cRe, cIm);
-                    ComplexRootedPolynomial rootedPolynomial = new ComplexRootedPolynomial(zn, factors);
-                    polynomial = rootedPolynomial.toComplexPolynom();
-                    double module;
-                    int iter = 0;
-                    do {
-                        Complex numerator = polynomial.apply(zn);
-                        ComplexPolynomial derived = polynomial.derive();
-                        Complex denominator = derived.apply(zn);
-                        Complex znold = zn;
-                        Complex fraction = numerator.divide(denominator);
-                        zn = zn.sub(fraction);
-                        module = znold.sub(zn).module();
-                        iter++;
-                    } while (module > 0.001 && iter < m);
-                    int index = rootedPolynomial.indexOfClosestRootFor(zn, 0.002) + 1;
-                    data[offset++] = (short) index;
-                }
-            }
-
-        }
     }
 
     public static class FractalProducerImpl implements IFractalProducer {
 
+        /**
+         * Maximal length of side of canvas tile of {@link #produce}
+         */
+        private static final int TILE_SIZE = 64;
+
         private int tracks;
         private final int workers;
-        private Complex[] factors;
+        private final short limit;
+        private final NewtonKernel kernel;
+        private final Backend backend;
+        private final TileRenderer renderer;
+        private final RenderEngine engine;
+        private final ShortBufferPool buffers = new ShortBufferPool();
+
+        /**
+         * Ticket of the newest request, guarded by this producer
+         */
+        private RenderTicket current;
+
+        /**
+         * If set, image is rendered in coarse-to-fine passes and every pass is delivered
+         */
+        private volatile boolean progressive;
+
+        /**
+         * Renderer which skips uniform basin interiors, used when adaptive rendering is on
+         */
+        private final TileRenderer adaptiveRenderer;
+
+        /**
+         * If set, image is rendered with adaptive subdivision
+         */
+        private volatile boolean adaptive;
+
+        /**
+         * Renderer which assembles images from cached tiles, null if tile cache is off
+         */
+        private volatile CachingRenderer cachingRenderer;
+
+        /**
+         * Coordinator of remote workers, null if images are rendered locally
+         */
+        private volatile RemoteRenderer remoteRenderer;
+
+        /**
+         * Listeners of requests, requests are measured only if there is a listener
+         */
+        private final List<RenderListener> listeners = new CopyOnWriteArrayList<>();
 
         public FractalProducerImpl(int tracks, int workers, Complex[] factors) {
+            this(tracks, workers, factors, Backend.fromSystemProperty());
+        }
+
+        public FractalProducerImpl(int tracks, int workers, Complex[] factors, Backend backend) {
+            this(tracks, workers, new NewtonKernel(factors, NewtonStep.fromSystemProperty()), backend);
+        }
+
+        public FractalProducerImpl(int tracks, int workers, NewtonKernel kernel, Backend backend) {
             this.tracks = tracks;
             this.workers = workers;
-            this.factors = factors;
+            this.limit = (short) (kernel.order() + 1);
+            this.kernel = kernel;
+            this.backend = backend;
+            this.renderer = backend.create(kernel);
+            this.adaptiveRenderer = new AdaptiveRenderer(kernel);
+            this.engine = new RenderEngine(workers);
         }
 
 
@@ -133,75 +166,251 @@ public class NewtonParallel {
             if(this.tracks > height)
                 this.tracks = height;
 
-            System.out.println("Number of threads : " + workers + "\nNumber of jobs : " + tracks);
+            System.out.println("Number of threads : " + workers + "\nMinimal number of jobs : " + tracks);
+
+            RequestMetrics metrics = listeners.isEmpty() ? null : new RequestMetrics(requestNo, width, height, workers);
+            RenderTicket ticket = new RenderTicket(requestNo, cancel, metrics);
+            if (!start(ticket)) {
+                System.out.println("Request " + requestNo + " is already superseded");
+                return;
+            }
 
             System.out.println("Starting calculation");
-            int m = 16*16*16;
-            short[] data = new short[width * height];
-            int numberYPerTrack = height / this.tracks;
-
-            final BlockingQueue<Worker> queue = new LinkedBlockingQueue<>();
-
-            Thread[] workers = new Thread[this.workers];
-            for (int i = 0; i < workers.length; i++) {
-                workers[i] = new Thread(new Runnable() {
-                    @Override
-                    public void run() {
-                        while (true) {
-                            Worker w = null;
-                            try {
-                                w = queue.take();
-                                if (w == Worker.NO_JOB) break;
-                            } catch (InterruptedException e) {
-                                continue;
-                            }
-                            w.run();
-                        }
-                    }
-                });
+            if (metrics != null)
+                listeners.forEach(l -> l.requestStarted(requestNo, width, height));
+            short[] data = buffers.acquire(width * height);
+            if (progressive && !isDeep(reMin, reMax, imMin, imMax, width, height)) {
+                int[] steps = ProgressivePass.DEFAULT_STEPS;
+                for (int i = 0; i < steps.length && !ticket.isCancelled(); i++) {
+                    engine.render(new ProgressivePass(kernel, steps[i], i == 0), reMin, reMax, imMin, imMax,
+                            width, height, tracks, data, ticket);
+                    if (i < steps.length - 1 && !ticket.isCancelled())
+                        deliver(ticket, ProgressivePass.preview(data, width, height, steps[i]), observer);
+                }
+            } else {
+                render(reMin, reMax, imMin, imMax, new HeapCanvas(width, height, tileSize(width, height), data), ticket);
             }
-            for (int i = 0; i < workers.length; i++) {
-                workers[i].start();
+
+            boolean delivered = deliver(ticket, data, observer);
+            if (delivered) {
+                System.out.println("Calculation ended. Alarm GUI");
+            } else {
+                System.out.println("Calculation abandoned");
+                buffers.release(data);
             }
-            for (int i = 0; i < this.tracks; i++) {
-                int yMin = i * numberYPerTrack;
-                int yMax = (i + 1) * numberYPerTrack - 1;
-                if (i == this.tracks - 1) {
-                    yMax = height - 1;
-                }
-                Worker worker = new Worker(reMin, reMax, imMin, imMax, width, height, yMin, yMax, m, data, cancel, factors);
-                while (true) {
-                    try {
-                        queue.put(worker);
-                        break;
-                    } catch (InterruptedException e) {
-                        continue;
-                    }
-                }
+            if (metrics != null) {
+                RenderStatistics statistics = metrics.finish(!delivered);
+                listeners.forEach(l -> l.requestFinished(statistics));
             }
-            for (int i = 0; i < workers.length; i++) {
-                while (true) {
-                    try {
-                        queue.put(Worker.NO_JOB);
-                        break;
-                    } catch (InterruptedException e) {
-                        continue;
-                    }
-                }
+        }
+
+        /**
+         * Renders tiles of canvas of given viewport which are not done yet with current
+         * settings of this producer and blocks until image is rendered or cancelled. Canvas
+         * can be kept on heap or in a memory mapped file. Request does not supersede requests
+         * of {@link #produce} and progressive rendering is not used.
+         *
+         * @param reMin minimal real value of viewport
+         * @param reMax maximal real value of viewport
+         * @param imMin minimal imaginary value of viewport
+         * @param imMax maximal imaginary value of viewport
+         * @param canvas canvas into which image is written
+         * @param cancel cancel flag of request
+         */
+        public void render(double reMin, double reMax, double imMin, double imMax, Canvas canvas, AtomicBoolean cancel) {
+            render(reMin, reMax, imMin, imMax, canvas, new RenderTicket(0, cancel));
+        }
+
+        private void render(double reMin, double reMax, double imMin, double imMax, Canvas canvas, RenderTicket ticket) {
+            TileRenderer selected = adaptive ? adaptiveRenderer : renderer;
+            RemoteRenderer remote = remoteRenderer;
+            CachingRenderer caching = cachingRenderer;
+            if (isDeep(reMin, reMax, imMin, imMax, canvas.getWidth(), canvas.getHeight())) {
+                engine.render(PerturbationRenderer.create(kernel, reMin, reMax, imMin, imMax,
+                        canvas.getWidth(), canvas.getHeight()), reMin, reMax, imMin, imMax, canvas, ticket);
+            } else if (remote != null) {
+                remote.render(selected, kernel, reMin, reMax, imMin, imMax, canvas, ticket);
+            } else if (caching != null) {
+                caching.render(selected, kernel, reMin, reMax, imMin, imMax, canvas, ticket);
+            } else {
+                engine.render(selected, reMin, reMax, imMin, imMax, canvas, ticket);
             }
-            for (int i = 0; i < workers.length; i++) {
-                while (true) {
-                    try {
-                        workers[i].join();
-                        break;
-                    } catch (InterruptedException e) {
-                        continue;
-                    }
-                }
+        }
+
+        /**
+         * @return returns true if pixels of viewport are too close for plain double
+         */
+        private static boolean isDeep(double reMin, double reMax, double imMin, double imMax, int width, int height) {
+            double spacing = Math.min((reMax - reMin) / (width - 1), (imMax - imMin) / (height - 1));
+            return PrecisionMode.forViewport((reMin + reMax) / 2, (imMin + imMax) / 2, spacing) != PrecisionMode.DOUBLE;
+        }
+
+        /**
+         * Renders root indexes together with smooth iteration counts of given viewport in a
+         * single pass, for shading by convergence speed. Result is not delivered to observers
+         * and request does not supersede requests of {@link #produce}.
+         *
+         * @param reMin minimal real value of viewport
+         * @param reMax maximal real value of viewport
+         * @param imMin minimal imaginary value of viewport
+         * @param imMax maximal imaginary value of viewport
+         * @param width width of image
+         * @param height height of image
+         * @param cancel cancel flag of request
+         * @return returns rendered image, or null if request was cancelled
+         */
+        public ShadedImage produceShaded(double reMin, double reMax, double imMin, double imMax,
+                                         int width, int height, AtomicBoolean cancel) {
+            ShadedImage image = new ShadedImage(width, height);
+            RenderTicket ticket = new RenderTicket(0, cancel);
+            engine.render(image.rendererFor(kernel), reMin, reMax, imMin, imMax, width, height,
+                    Math.min(tracks, height), image.getIndexes(), ticket);
+            return ticket.isCancelled() ? null : image;
+        }
+
+        /**
+         * Renders root indexes together with smooth iteration counts of a band of rows of
+         * given viewport, on pixel grid of the whole image, so band is the same as its rows
+         * in image of {@link #produceShaded(double, double, double, double, int, int, AtomicBoolean)}.
+         * Band must be aligned to tiles of {@link #tileSize(int, int)}, see {@link BandCanvas}.
+         *
+         * @param reMin minimal real value of viewport
+         * @param reMax maximal real value of viewport
+         * @param imMin minimal imaginary value of viewport
+         * @param imMax maximal imaginary value of viewport
+         * @param width width of whole image
+         * @param height height of whole image
+         * @param firstRow first row of band
+         * @param rows number of rows of band
+         * @param cancel cancel flag of request
+         * @return returns rendered band, or null if request was cancelled
+         */
+        public ShadedImage produceShaded(double reMin, double reMax, double imMin, double imMax,
+                                         int width, int height, int firstRow, int rows, AtomicBoolean cancel) {
+            ShadedImage image = new ShadedImage(width, rows);
+            RenderTicket ticket = new RenderTicket(0, cancel);
+            BandCanvas band = new BandCanvas(width, height, tileSize(width, height), firstRow, rows, image.getIndexes());
+            engine.render(image.rendererFor(kernel, firstRow, height), reMin, reMax, imMin, imMax, band, ticket);
+            return ticket.isCancelled() ? null : image;
+        }
+
+        /**
+         * @param width width of image
+         * @param height height of image
+         * @return returns length of side of canvas tiles in which {@link #produce} renders image
+         * of given size, so that there are at least tracks tiles and all threads have work also
+         * in small images
+         */
+        int tileSize(int width, int height) {
+            return (int) Math.max(1, Math.min(TILE_SIZE, Math.sqrt((double) width * height / tracks)));
+        }
+
+        /**
+         * Turns progressive rendering on or off. Progressive rendering first renders every
+         * 16th pixel, then every 4th and finally the rest, and delivers preview of the image
+         * after each of first two passes. Progressive passes always use scalar kernel. Viewports
+         * too deep for double are always rendered in one pass by {@link PerturbationRenderer}.
+         *
+         * @param progressive true for progressive rendering
+         */
+        public void setProgressive(boolean progressive) {
+            this.progressive = progressive;
+        }
+
+        /**
+         * Turns adaptive rendering on or off. Adaptive rendering calculates borders of
+         * rectangles and fills interiors of those whose whole border converges to the same
+         * root, see {@link AdaptiveRenderer}. Progressive rendering takes precedence.
+         *
+         * @param adaptive true for adaptive rendering
+         */
+        public void setAdaptive(boolean adaptive) {
+            this.adaptive = adaptive;
+        }
+
+        /**
+         * Turns tile cache on or off. With tile cache images are assembled from tiles of
+         * fixed resolution, so after pan only newly exposed tiles are calculated, see
+         * {@link CachingRenderer}. Progressive rendering takes precedence.
+         *
+         * @param cache cache of tiles, null turns tile cache off
+         */
+        public void setTileCache(TileCache cache) {
+            this.cachingRenderer = cache == null ? null : new CachingRenderer(engine, cache);
+        }
+
+        /**
+         * Turns rendering on remote {@link hr.fer.zemris.java.fractals.remote.RenderWorker}
+         * processes on or off. Tiles which no worker can render are rendered locally.
+         * Progressive rendering takes precedence, remote rendering takes precedence over
+         * tile cache.
+         *
+         * @param workers addresses of workers, null or empty list turns remote rendering off
+         */
+        public void setRemoteWorkers(List<InetSocketAddress> workers) {
+            RemoteRenderer old = remoteRenderer;
+            remoteRenderer = workers == null || workers.isEmpty() ? null : new RemoteRenderer(engine, workers, backend);
+            if (old != null)
+                old.close();
+        }
+
+        /**
+         * Stops remote rendering and threads of render engine of this producer. Producer can
+         * not be used after shutdown.
+         */
+        public void shutdown() {
+            setRemoteWorkers(null);
+            engine.shutdown();
+        }
+
+        /**
+         * Adds listener of requests. While there is at least one listener every request is
+         * measured and its statistics are passed to listeners.
+         *
+         * @param listener listener to add
+         */
+        public void addRenderListener(RenderListener listener) {
+            listeners.add(listener);
+        }
+
+        /**
+         * Removes listener of requests
+         *
+         * @param listener listener to remove
+         */
+        public void removeRenderListener(RenderListener listener) {
+            listeners.remove(listener);
+        }
+
+        /**
+         * Makes given ticket current and supersedes the older one
+         *
+         * @param ticket ticket of new request
+         * @return returns false if there already is newer request
+         */
+        private synchronized boolean start(RenderTicket ticket) {
+            if (current != null) {
+                if (current.getRequestNo() > ticket.getRequestNo())
+                    return false;
+                current.supersede();
             }
+            current = ticket;
+            return true;
+        }
 
-            System.out.println("Calculation ended. Alarm GUI");
-            observer.acceptResult(data, (short) (factors.length + 1), requestNo);
+        /**
+         * Delivers result to observer if its request is still current and not cancelled
+         *
+         * @param ticket ticket of finished request
+         * @param data calculated data
+         * @param observer observer of result
+         * @return returns true if result was delivered
+         */
+        private synchronized boolean deliver(RenderTicket ticket, short[] data, IFractalResultObserver observer) {
+            if (ticket != current || ticket.isCancelled())
+                return false;
+            observer.acceptResult(data, limit, ticket.getRequestNo());
+            return true;
         }
     }
 }
@@ -0,0 +1,62 @@
+package hr.fer.zemris.java.fractals.io;
+
+import java.awt.Color;
+
+/**
+ * Mapping of root indexes to colors. Index 0 (point did not converge) is black and roots
+ * get evenly spaced hues. Palette has at most 256 colors, larger indexes wrap around.
+ */
+public class Palette {
+
+    /**
+     * Maximal number of colors in palette
+     */
+    public static final int MAX_COLORS = 256;
+
+    /**
+     * Colors as 0xRRGGBB
+     */
+    private final int[] rgb;
+
+    /**
+     * Constructing new palette for given number of roots
+     *
+     * @param roots number of roots
+     * @throws IllegalArgumentException if number of roots is not positive
+     */
+    public Palette(int roots) {
+        if (roots < 1)
+            throw new IllegalArgumentException("Number of roots must be positive, was " + roots);
+        int colors = Math.min(roots + 1, MAX_COLORS);
+        this.rgb = new int[colors];
+        for (int i = 1; i < colors; i++) {
+            rgb[i] = Color.HSBtoRGB((float) (i - 1) / (colors - 1), 0.8f, 0.9f) & 0xFFFFFF;
+        }
+    }
+
+    /**
+     * @return returns number of colors in palette
+     */
+    public int size() {
+        return rgb.length;
+    }
+
+    /**
+     * @param color index of color in palette
+     * @return returns color as 0xRRGGBB
+     */
+    public int rgb(int color) {
+        return rgb[color];
+    }
+
+    /**
+     * Maps root index to index of color in palette
+     *
+     * @param index root index, 0 for points that did not converge
+     * @return returns index of color in palette
+     */
+    public int colorOf(int index) {
+        if (index <= 0) return 0;
+        return (index - 1) % (rgb.length - 1) + 1;
+    }
+}
@@ -0,0 +1,350 @@
+package hr.fer.zemris.java.fractals.io;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Streaming writer of indexed color PNG images. Rows are written band by band as they
+ * are calculated, so the whole image never has to be in memory.
+ *
+ * Rows are mapped to palette and filtered into segments of {@link #SEGMENT_SIZE} bytes,
+ * which are deflated in parallel on an executor while the caller continues with next
+ * rows. Every segment is compressed independently with the end of the previous segment
+ * as dictionary and ends on a byte boundary, so compressed segments are simply joined
+ * into one zlib stream, with checksum combined from checksums of segments. At most two
+ * segments per thread of executor are kept in memory, a writer which is ahead of the
+ * executor waits for the oldest segment.
+ *
+ * Writer is used from one thread.
+ */
+public class PngWriter implements Closeable {
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+
+    /**
+     * Maximal size of data in one IDAT chunk
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /**
+     * Number of filtered bytes deflated as one segment
+     */
+    static final int SEGMENT_SIZE = 1 << 18;
+
+    /**
+     * Size of deflate window, the largest useful dictionary
+     */
+    private static final int WINDOW_SIZE = 1 << 15;
+
+    /**
+     * Zlib header of deflate stream with 32K window and fastest compression
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, 0x01};
+
+    private static final int ADLER_BASE = 65521;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final Palette palette;
+    private final Executor executor;
+    private final int maxPending;
+    private final ChunkOutputStream chunks = new ChunkOutputStream();
+
+    /**
+     * Segments being deflated, in order of image data
+     */
+    private final ArrayDeque<CompletableFuture<Segment>> pending = new ArrayDeque<>();
+
+    private byte[] segment = new byte[SEGMENT_SIZE];
+    private int segmentSize;
+    private byte[] previousSegment;
+    private long adler = 1;
+    private int rowsWritten;
+
+    /**
+     * Constructing new writer which deflates on common fork join pool and writing PNG
+     * header and palette
+     *
+     * @param out stream into which image is written
+     * @param width width of image
+     * @param height height of image
+     * @param palette palette of image
+     * @throws IOException if writing fails
+     */
+    public PngWriter(OutputStream out, int width, int height, Palette palette) throws IOException {
+        this(out, width, height, palette, ForkJoinPool.commonPool(), ForkJoinPool.getCommonPoolParallelism());
+    }
+
+    /**
+     * Constructing new writer and writing PNG header and palette
+     *
+     * @param out stream into which image is written
+     * @param width width of image
+     * @param height height of image
+     * @param palette palette of image
+     * @param executor executor on which segments are deflated
+     * @param parallelism number of threads of executor
+     * @throws IOException if writing fails
+     */
+    public PngWriter(OutputStream out, int width, int height, Palette palette,
+                     Executor executor, int parallelism) throws IOException {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("Image must have at least one pixel, was " + width + "x" + height);
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism must be positive, was " + parallelism);
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.palette = palette;
+        this.executor = executor;
+        this.maxPending = 2 * parallelism;
+
+        this.out.write(SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream h = new DataOutputStream(header);
+        h.writeInt(width);
+        h.writeInt(height);
+        h.writeByte(8);  // bit depth
+        h.writeByte(3);  // indexed color
+        h.writeByte(0);  // deflate
+        h.writeByte(0);  // adaptive filtering
+        h.writeByte(0);  // no interlace
+        writeChunk("IHDR", header.toByteArray(), header.size());
+
+        byte[] colors = new byte[3 * palette.size()];
+        for (int i = 0; i < palette.size(); i++) {
+            int rgb = palette.rgb(i);
+            colors[3 * i] = (byte) (rgb >> 16);
+            colors[3 * i + 1] = (byte) (rgb >> 8);
+            colors[3 * i + 2] = (byte) rgb;
+        }
+        writeChunk("PLTE", colors, colors.length);
+
+        chunks.write(ZLIB_HEADER, 0, ZLIB_HEADER.length);
+    }
+
+    /**
+     * Writes next rows of image
+     *
+     * @param data root indexes of rows, row by row
+     * @param rows number of rows in data
+     * @throws IOException if writing fails
+     * @throws IllegalStateException if more rows than image height are written
+     */
+    public void writeRows(short[] data, int rows) throws IOException {
+        if (rowsWritten + rows > height)
+            throw new IllegalStateException("Image has only " + height + " rows");
+        int offset = 0;
+        for (int y = 0; y < rows; y++) {
+            put((byte) 0);  // filter type none, recommended for indexed color
+            for (int x = 0; x < width; ) {
+                if (segmentSize == SEGMENT_SIZE)
+                    submit();
+                int end = Math.min(width, x + SEGMENT_SIZE - segmentSize);
+                for (; x < end; x++) {
+                    segment[segmentSize++] = (byte) palette.colorOf(data[offset++]);
+                }
+            }
+        }
+        rowsWritten += rows;
+    }
+
+    /**
+     * Finishes image and closes underlying stream
+     *
+     * @throws IOException if writing fails or if not all rows were written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            /* the last segment finishes the stream, it is deflated by this thread */
+            Segment last = deflate(Arrays.copyOf(segment, segmentSize), previousSegment, true);
+            while (!pending.isEmpty())
+                writeSegment(join(pending.poll()));
+            writeSegment(last);
+            chunks.write(new byte[] {(byte) (adler >>> 24), (byte) (adler >>> 16), (byte) (adler >>> 8), (byte) adler}, 0, 4);
+            chunks.close();
+            writeChunk("IEND", new byte[0], 0);
+        } finally {
+            out.close();
+        }
+        if (rowsWritten != height)
+            throw new IOException("Image has " + height + " rows, but " + rowsWritten + " were written");
+    }
+
+    private void put(byte b) throws IOException {
+        if (segmentSize == SEGMENT_SIZE)
+            submit();
+        segment[segmentSize++] = b;
+    }
+
+    /**
+     * Hands full segment over to executor, waiting for the oldest segment if too many
+     * are pending
+     */
+    private void submit() throws IOException {
+        byte[] data = segment;
+        byte[] dictionary = previousSegment;
+        pending.add(CompletableFuture.supplyAsync(() -> deflate(data, dictionary, false), executor));
+        previousSegment = data;
+        segment = new byte[SEGMENT_SIZE];
+        segmentSize = 0;
+        while (pending.size() > maxPending || !pending.isEmpty() && pending.peek().isDone())
+            writeSegment(join(pending.poll()));
+    }
+
+    private void writeSegment(Segment s) throws IOException {
+        chunks.write(s.compressed, 0, s.size);
+        adler = combineAdler(adler, s.adler, s.length);
+    }
+
+    private static Segment join(CompletableFuture<Segment> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            if (e.getCause() instanceof Error)
+                throw (Error) e.getCause();
+            throw e;
+        }
+    }
+
+    /**
+     * Deflates one segment, ending it with sync flush so that the next segment starts on
+     * a byte boundary, or with the final block if it is the last one
+     *
+     * @param data filtered bytes of segment
+     * @param dictionary previous segment, or null for the first one
+     * @param last true for the last segment
+     * @return returns compressed segment
+     */
+    private static Segment deflate(byte[] data, byte[] dictionary, boolean last) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            if (dictionary != null)
+                deflater.setDictionary(dictionary, dictionary.length - WINDOW_SIZE, WINDOW_SIZE);
+            deflater.setInput(data);
+            if (last)
+                deflater.finish();
+            byte[] compressed = new byte[data.length / 4 + 64];
+            int size = 0;
+            while (true) {
+                if (size == compressed.length)
+                    compressed = Arrays.copyOf(compressed, 2 * compressed.length);
+                int space = compressed.length - size;
+                int n = last
+                        ? deflater.deflate(compressed, size, space)
+                        : deflater.deflate(compressed, size, space, Deflater.SYNC_FLUSH);
+                size += n;
+                if (last ? deflater.finished() : n < space)
+                    break;
+            }
+            Adler32 adler = new Adler32();
+            adler.update(data);
+            return new Segment(compressed, size, adler.getValue(), data.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Combines Adler-32 checksums of two consecutive parts of data
+     *
+     * @param first checksum of the first part
+     * @param second checksum of the second part
+     * @param secondLength length of the second part
+     * @return returns checksum of both parts
+     */
+    static long combineAdler(long first, long second, long secondLength) {
+        long remainder = secondLength % ADLER_BASE;
+        long sum1 = first & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (second & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (first >>> 16) + (second >>> 16) + ADLER_BASE - remainder;
+        sum1 %= ADLER_BASE;
+        sum2 %= ADLER_BASE;
+        return sum2 << 16 | sum1;
+    }
+
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Compressed segment of image data
+     */
+    private static class Segment {
+
+        private final byte[] compressed;
+        private final int size;
+        private final long adler;
+        private final int length;
+
+        Segment(byte[] compressed, int size, long adler, int length) {
+            this.compressed = compressed;
+            this.size = size;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Stream that packs compressed data into IDAT chunks
+     */
+    private class ChunkOutputStream extends OutputStream {
+
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int size;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (size == buffer.length) flushChunk();
+            buffer[size++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (size == buffer.length) flushChunk();
+                int n = Math.min(len, buffer.length - size);
+                System.arraycopy(b, off, buffer, size, n);
+                size += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (size > 0) flushChunk();
+        }
+
+        private void flushChunk() throws IOException {
+            writeChunk("IDAT", buffer, size);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package hr.fer.zemris.java.fractals.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writer of raw root index buffers. File has no header, it contains width * height
+ * big-endian 16 bit values, row by row starting from the top row. Smooth iteration
+ * counts are written the same way as big-endian 32 bit floats.
+ */
+public class RawWriter implements Closeable {
+
+    private final OutputStream out;
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+
+    /**
+     * Constructing new writer
+     *
+     * @param out stream into which data is written
+     */
+    public RawWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes given number of values from data
+     *
+     * @param data root indexes
+     * @param length number of values to write
+     * @throws IOException if writing fails
+     */
+    public void write(short[] data, int length) throws IOException {
+        if (buffer.capacity() < 2 * length)
+            buffer = ByteBuffer.allocate(2 * length);
+        buffer.clear();
+        buffer.asShortBuffer().put(data, 0, length);
+        out.write(buffer.array(), 0, 2 * length);
+    }
+
+    /**
+     * Writes given number of values from data
+     *
+     * @param data smooth iteration counts
+     * @param length number of values to write
+     * @throws IOException if writing fails
+     */
+    public void write(float[] data, int length) throws IOException {
+        if (buffer.capacity() < 4 * length)
+            buffer = ByteBuffer.allocate(4 * length);
+        buffer.clear();
+        buffer.asFloatBuffer().put(data, 0, length);
+        out.write(buffer.array(), 0, 4 * length);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
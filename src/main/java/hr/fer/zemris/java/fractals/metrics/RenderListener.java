@@ -0,0 +1,25 @@
+package hr.fer.zemris.java.fractals.metrics;
+
+/**
+ * Listener of render requests of a producer. Methods are called on the thread which
+ * called produce, so listeners should return quickly.
+ */
+public interface RenderListener {
+
+    /**
+     * Called before rendering of request starts
+     *
+     * @param requestNo number of request
+     * @param width width of image
+     * @param height height of image
+     */
+    default void requestStarted(long requestNo, int width, int height) {
+    }
+
+    /**
+     * Called after request is rendered, cancelled or superseded
+     *
+     * @param statistics statistics of request
+     */
+    void requestFinished(RenderStatistics statistics);
+}
@@ -0,0 +1,145 @@
+package hr.fer.zemris.java.fractals.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Listener which aggregates statistics of all requests of a producer and exposes them
+ * as JMX MBean, so they can be watched in JConsole or VisualVM while fractal is explored.
+ */
+public class RenderMetrics implements RenderMetricsMBean, RenderListener {
+
+    /**
+     * Domain of object names of registered metrics
+     */
+    public static final String DOMAIN = "hr.fer.zemris.java.fractals";
+
+    private long requests;
+    private long cancelledRequests;
+    private long completedWallNanos;
+    private long totalIterations;
+    private long totalNonConverged;
+    private long[] histogram = new long[RequestMetrics.BUCKETS];
+    private RenderStatistics last;
+
+    /**
+     * Registers metrics in platform MBean server
+     *
+     * @param name value of name key of object name
+     * @throws IllegalStateException if metrics can not be registered
+     */
+    public void register(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.registerMBean(this, new ObjectName(DOMAIN + ":type=RenderMetrics,name=" + ObjectName.quote(name)));
+        } catch (JMException e) {
+            throw new IllegalStateException("Can not register render metrics " + name, e);
+        }
+    }
+
+    @Override
+    public synchronized void requestFinished(RenderStatistics statistics) {
+        requests++;
+        if (statistics.isCancelled()) {
+            cancelledRequests++;
+        } else {
+            completedWallNanos += statistics.getWallNanos();
+        }
+        totalIterations += statistics.getIterations();
+        totalNonConverged += statistics.getNonConverged();
+        long[] counts = statistics.getHistogram();
+        for (int i = 0; i < counts.length; i++)
+            histogram[i] += counts[i];
+        last = statistics;
+    }
+
+    /**
+     * @return returns statistics of the last request, or null if there was no request
+     */
+    public synchronized RenderStatistics getLast() {
+        return last;
+    }
+
+    @Override
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    @Override
+    public synchronized long getCancelledRequests() {
+        return cancelledRequests;
+    }
+
+    @Override
+    public synchronized double getLastWallMillis() {
+        return last == null ? 0 : last.getWallNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized double getAverageWallMillis() {
+        long completed = requests - cancelledRequests;
+        return completed == 0 ? 0 : completedWallNanos / 1e6 / completed;
+    }
+
+    @Override
+    public synchronized double getLastBusyMillis() {
+        if (last == null) return 0;
+        long busy = 0;
+        for (long time : last.getBusyNanos().values())
+            busy += time;
+        return busy / 1e6;
+    }
+
+    @Override
+    public synchronized double getLastIdleMillis() {
+        return last == null ? 0 : last.getIdleNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized double getLastImbalance() {
+        return last == null ? 0 : last.getImbalance();
+    }
+
+    @Override
+    public synchronized double getLastAverageQueueMillis() {
+        return last == null || last.getTiles() == 0 ? 0 : last.getQueueNanos() / 1e6 / last.getTiles();
+    }
+
+    @Override
+    public synchronized double getLastMaxQueueMillis() {
+        return last == null ? 0 : last.getMaxQueueNanos() / 1e6;
+    }
+
+    @Override
+    public synchronized double getLastIterationsPerPixel() {
+        return last == null ? 0 : last.getIterationsPerPixel();
+    }
+
+    @Override
+    public synchronized long getTotalIterations() {
+        return totalIterations;
+    }
+
+    @Override
+    public synchronized long getTotalNonConverged() {
+        return totalNonConverged;
+    }
+
+    @Override
+    public synchronized long[] getIterationHistogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public synchronized void reset() {
+        requests = 0;
+        cancelledRequests = 0;
+        completedWallNanos = 0;
+        totalIterations = 0;
+        totalNonConverged = 0;
+        histogram = new long[RequestMetrics.BUCKETS];
+        last = null;
+    }
+}
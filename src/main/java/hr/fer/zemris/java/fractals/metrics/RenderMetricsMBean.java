@@ -0,0 +1,77 @@
+package hr.fer.zemris.java.fractals.metrics;
+
+/**
+ * Management interface of {@link RenderMetrics}. Times are in milliseconds.
+ */
+public interface RenderMetricsMBean {
+
+    /**
+     * @return returns number of finished requests
+     */
+    long getRequests();
+
+    /**
+     * @return returns number of cancelled or superseded requests
+     */
+    long getCancelledRequests();
+
+    /**
+     * @return returns wall time of the last request
+     */
+    double getLastWallMillis();
+
+    /**
+     * @return returns average wall time of requests which were not cancelled
+     */
+    double getAverageWallMillis();
+
+    /**
+     * @return returns total busy time of all threads in the last request
+     */
+    double getLastBusyMillis();
+
+    /**
+     * @return returns total idle time of all threads in the last request
+     */
+    double getLastIdleMillis();
+
+    /**
+     * @return returns ratio of the largest and average busy time of threads in the last request
+     */
+    double getLastImbalance();
+
+    /**
+     * @return returns average time a tile of the last request waited in queue
+     */
+    double getLastAverageQueueMillis();
+
+    /**
+     * @return returns the longest time a tile of the last request waited in queue
+     */
+    double getLastMaxQueueMillis();
+
+    /**
+     * @return returns average number of iterations per pixel in the last request
+     */
+    double getLastIterationsPerPixel();
+
+    /**
+     * @return returns total number of iterations of all requests
+     */
+    long getTotalIterations();
+
+    /**
+     * @return returns total number of pixels which did not converge in all requests
+     */
+    long getTotalNonConverged();
+
+    /**
+     * @return returns histogram of iterations to convergence of all requests
+     */
+    long[] getIterationHistogram();
+
+    /**
+     * Resets all counters
+     */
+    void reset();
+}
@@ -0,0 +1,197 @@
+package hr.fer.zemris.java.fractals.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable statistics of one finished render request. Times are in nanoseconds.
+ * Iteration counts are reported only by backends which track them (scalar and adaptive
+ * rendering), other backends report only timing. Pixels filled by adaptive rendering
+ * are counted with iterations of the corner of their rectangle.
+ */
+public final class RenderStatistics {
+
+    private final long requestNo;
+    private final int width;
+    private final int height;
+    private final int workers;
+    private final boolean cancelled;
+    private final long wallNanos;
+    private final Map<String, Long> busyNanos;
+    private final long tiles;
+    private final long queueNanos;
+    private final long maxQueueNanos;
+    private final long pixels;
+    private final long iterations;
+    private final long nonConverged;
+    private final long[] histogram;
+
+    RenderStatistics(long requestNo, int width, int height, int workers, boolean cancelled, long wallNanos,
+                     Map<String, Long> busyNanos, long tiles, long queueNanos, long maxQueueNanos,
+                     long pixels, long iterations, long nonConverged, long[] histogram) {
+        this.requestNo = requestNo;
+        this.width = width;
+        this.height = height;
+        this.workers = workers;
+        this.cancelled = cancelled;
+        this.wallNanos = wallNanos;
+        this.busyNanos = Collections.unmodifiableMap(busyNanos);
+        this.tiles = tiles;
+        this.queueNanos = queueNanos;
+        this.maxQueueNanos = maxQueueNanos;
+        this.pixels = pixels;
+        this.iterations = iterations;
+        this.nonConverged = nonConverged;
+        this.histogram = histogram;
+    }
+
+    /**
+     * @return returns number of request
+     */
+    public long getRequestNo() {
+        return requestNo;
+    }
+
+    /**
+     * @return returns width of image
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return returns height of image
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return returns number of threads which rendered the image
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * @return returns true if request was cancelled or superseded
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return returns wall time of request
+     */
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return returns busy time of every thread which rendered at least one tile, by thread name,
+     * virtual threads are counted by worker slot
+     */
+    public Map<String, Long> getBusyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     * @return returns total idle time of all threads, threads which rendered nothing were idle
+     * for whole wall time
+     */
+    public long getIdleNanos() {
+        long busy = 0;
+        for (long time : busyNanos.values())
+            busy += time;
+        return Math.max(0, (long) Math.max(workers, busyNanos.size()) * wallNanos - busy);
+    }
+
+    /**
+     * @return returns ratio of the largest and average busy time of threads, 1 means
+     * perfectly balanced work
+     */
+    public double getImbalance() {
+        long max = 0, total = 0;
+        for (long time : busyNanos.values()) {
+            max = Math.max(max, time);
+            total += time;
+        }
+        int threads = Math.max(workers, busyNanos.size());
+        return total == 0 ? 1 : (double) max * threads / total;
+    }
+
+    /**
+     * @return returns number of rendered tiles
+     */
+    public long getTiles() {
+        return tiles;
+    }
+
+    /**
+     * @return returns total time tiles waited in queues before they were rendered
+     */
+    public long getQueueNanos() {
+        return queueNanos;
+    }
+
+    /**
+     * @return returns the longest time one tile waited in queue
+     */
+    public long getMaxQueueNanos() {
+        return maxQueueNanos;
+    }
+
+    /**
+     * @return returns number of pixels with tracked iteration counts
+     */
+    public long getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return returns total number of iterations
+     */
+    public long getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return returns average number of iterations per pixel
+     */
+    public double getIterationsPerPixel() {
+        return pixels == 0 ? 0 : (double) iterations / pixels;
+    }
+
+    /**
+     * @return returns number of pixels which did not converge to any root (index 0)
+     */
+    public long getNonConverged() {
+        return nonConverged;
+    }
+
+    /**
+     * @return returns histogram of iterations to convergence, see {@link RequestMetrics#BUCKETS}
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Request %d (%dx%d)%s : %.1f ms, %d tiles, queue wait avg %.3f ms max %.3f ms, imbalance %.2f%n",
+                requestNo, width, height, cancelled ? " cancelled" : "", wallNanos / 1e6, tiles,
+                tiles == 0 ? 0 : queueNanos / 1e6 / tiles, maxQueueNanos / 1e6, getImbalance()));
+        busyNanos.forEach((worker, time) -> sb.append(String.format("  %s : busy %.1f ms, idle %.1f ms%n",
+                worker, time / 1e6, Math.max(0, wallNanos - time) / 1e6)));
+        if (pixels > 0) {
+            sb.append(String.format("  %d iterations, %.2f per pixel, %d not converged%n",
+                    iterations, getIterationsPerPixel(), nonConverged));
+            for (int i = 1; i < histogram.length; i++) {
+                if (histogram[i] != 0)
+                    sb.append(String.format("  %d-%d iterations : %d%n", 1L << (i - 1), (1L << i) - 1, histogram[i]));
+            }
+        }
+        return sb.toString();
+    }
+}
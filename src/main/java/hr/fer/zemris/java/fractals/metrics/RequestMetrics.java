@@ -0,0 +1,135 @@
+package hr.fer.zemris.java.fractals.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collector of measurements of one render request. Workers record time of every tile
+ * they render and flush per-tile pixel counters, so shared counters are touched once
+ * per tile and not once per pixel. Collector is thread safe.
+ */
+public class RequestMetrics {
+
+    /**
+     * Number of buckets of iteration histogram. Bucket i holds pixels which needed
+     * from 2^(i-1) to 2^i - 1 iterations, bucket 0 is unused.
+     */
+    public static final int BUCKETS = 33;
+
+    private final long requestNo;
+    private final int width;
+    private final int height;
+    private final int workers;
+    private final long started = System.nanoTime();
+
+    private final Map<String, LongAdder> busy = new ConcurrentHashMap<>();
+    private final LongAdder tiles = new LongAdder();
+    private final LongAdder queueWait = new LongAdder();
+    private final AtomicLong maxQueueWait = new AtomicLong();
+    private final LongAdder pixels = new LongAdder();
+    private final LongAdder iterations = new LongAdder();
+    private final LongAdder nonConverged = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Constructing new collector, wall time is measured from construction
+     *
+     * @param requestNo number of request
+     * @param width width of image
+     * @param height height of image
+     * @param workers number of threads which render the image
+     */
+    public RequestMetrics(long requestNo, int width, int height, int workers) {
+        this.requestNo = requestNo;
+        this.width = width;
+        this.height = height;
+        this.workers = workers;
+    }
+
+    /**
+     * @param iterations number of iterations of one pixel
+     * @return returns bucket of histogram for given number of iterations
+     */
+    public static int bucketOf(int iterations) {
+        return 32 - Integer.numberOfLeadingZeros(iterations);
+    }
+
+    /**
+     * Records one tile rendered by current thread. Busy time is summed by name of thread;
+     * pool threads are reused by all tiles, and threads of jobs of a virtual render request
+     * are named after one of a fixed number of worker slots, so there are at most as many
+     * entries as threads rendering at once.
+     *
+     * @param queueNanos time between creation of tile task and start of its rendering
+     * @param busyNanos time of rendering
+     */
+    public void recordTile(long queueNanos, long busyNanos) {
+        busy.computeIfAbsent(Thread.currentThread().getName(), k -> new LongAdder()).add(busyNanos);
+        tiles.increment();
+        queueWait.add(queueNanos);
+        maxQueueWait.accumulateAndGet(queueNanos, Math::max);
+    }
+
+    /**
+     * Adds counters of pixels of one tile
+     *
+     * @param counter counters of tile
+     */
+    public void add(PixelCounter counter) {
+        pixels.add(counter.pixels);
+        iterations.add(counter.iterations);
+        nonConverged.add(counter.nonConverged);
+        for (int i = 0; i < BUCKETS; i++) {
+            if (counter.histogram[i] != 0)
+                histogram.addAndGet(i, counter.histogram[i]);
+        }
+    }
+
+    /**
+     * Ends measurement of request
+     *
+     * @param cancelled true if request was cancelled or superseded
+     * @return returns statistics of request
+     */
+    public RenderStatistics finish(boolean cancelled) {
+        long wall = System.nanoTime() - started;
+        Map<String, Long> busyTimes = new TreeMap<>();
+        busy.forEach((worker, time) -> busyTimes.put(worker, time.sum()));
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] = histogram.get(i);
+        return new RenderStatistics(requestNo, width, height, workers, cancelled, wall, busyTimes,
+                tiles.sum(), queueWait.sum(), maxQueueWait.get(), pixels.sum(), iterations.sum(),
+                nonConverged.sum(), counts);
+    }
+
+    /**
+     * Counters of pixels of one tile, used by a single thread and then added to
+     * collector of request
+     */
+    public static final class PixelCounter {
+
+        private final long[] histogram = new long[BUCKETS];
+        private long pixels;
+        private long iterations;
+        private long nonConverged;
+
+        /**
+         * Records one calculated pixel
+         *
+         * @param rootIndex index of root (starting from 1) or 0 if pixel did not converge
+         * @param iterations number of iterations of pixel
+         */
+        public void record(int rootIndex, int iterations) {
+            pixels++;
+            this.iterations += iterations;
+            if (rootIndex == 0)
+                nonConverged++;
+            histogram[bucketOf(iterations)]++;
+        }
+    }
+}
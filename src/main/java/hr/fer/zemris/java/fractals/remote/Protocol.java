@@ -0,0 +1,153 @@
+package hr.fer.zemris.java.fractals.remote;
+
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.NewtonStep;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary protocol between coordinator and render workers. All numbers are big-endian.
+ * <pre>
+ * handshake    coordinator: int MAGIC, int VERSION
+ *              worker:      int MAGIC, int VERSION, int threads
+ * SESSION      byte, utf backend, utf step, int maxIterations, double convergence, double rootThreshold,
+ *              int n, n x (double re, double im)
+ * TILE         byte, long job, double reMin, reMax, imMin, imMax,
+ *              int width, height, xMin, xMax, yMin, yMax
+ * RESULT       byte, long job, int count, count x short
+ * ERROR        byte, long job, utf message
+ * BYE          byte
+ * </pre>
+ * Coordinator sends SESSION once per connection and again only when roots or parameters
+ * change. Any number of TILE messages may be in flight, worker answers every one of them
+ * with RESULT or ERROR, not necessarily in order. Tile is rendered with viewport and size
+ * of the whole image, so remote pixels are the same as local ones.
+ */
+final class Protocol {
+
+    static final int MAGIC = 0x4E525446;
+    static final int VERSION = 2;
+
+    static final byte SESSION = 1;
+    static final byte TILE = 2;
+    static final byte RESULT = 3;
+    static final byte ERROR = 4;
+    static final byte BYE = 5;
+
+    private Protocol() {
+    }
+
+    /**
+     * Writes own handshake
+     */
+    static void writeHandshake(DataOutputStream out, int threads) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        if (threads > 0)
+            out.writeInt(threads);
+        out.flush();
+    }
+
+    /**
+     * Reads handshake of the other side
+     *
+     * @throws IOException if the other side does not speak this protocol
+     */
+    static void readHandshake(DataInputStream in) throws IOException {
+        int magic = in.readInt();
+        int version = in.readInt();
+        if (magic != MAGIC)
+            throw new IOException("Wrong protocol magic " + Integer.toHexString(magic));
+        if (version != VERSION)
+            throw new IOException("Unsupported protocol version " + version);
+    }
+
+    static void writeSession(DataOutputStream out, NewtonKernel kernel, Backend backend) throws IOException {
+        out.writeByte(SESSION);
+        out.writeUTF(backend.name());
+        out.writeUTF(kernel.getStep().name());
+        out.writeInt(kernel.getMaxIterations());
+        out.writeDouble(kernel.convergenceThreshold());
+        out.writeDouble(kernel.rootThreshold());
+        Complex[] roots = kernel.getRoots();
+        out.writeInt(roots.length);
+        for (Complex root : roots) {
+            out.writeDouble(root.getRe());
+            out.writeDouble(root.getIm());
+        }
+    }
+
+    /**
+     * Reads body of SESSION message
+     *
+     * @return returns kernel of session
+     */
+    static NewtonKernel readSession(DataInputStream in, Backend[] backend) throws IOException {
+        try {
+            backend[0] = Backend.valueOf(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            backend[0] = Backend.SCALAR;
+        }
+        NewtonStep step;
+        try {
+            step = NewtonStep.valueOf(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown Newton step");
+        }
+        int maxIterations = in.readInt();
+        double convergence = in.readDouble();
+        double rootThreshold = in.readDouble();
+        int n = in.readInt();
+        if (n < 1 || n > Short.MAX_VALUE - 1)
+            throw new IOException("Wrong number of roots " + n);
+        Complex[] roots = new Complex[n];
+        for (int i = 0; i < n; i++)
+            roots[i] = new Complex(in.readDouble(), in.readDouble());
+        try {
+            return new NewtonKernel(roots, maxIterations, convergence, rootThreshold, step);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Wrong session parameters: " + e.getMessage());
+        }
+    }
+
+    static void writeTile(DataOutputStream out, long job, double reMin, double reMax, double imMin, double imMax,
+                          int width, int height, int xMin, int xMax, int yMin, int yMax) throws IOException {
+        out.writeByte(TILE);
+        out.writeLong(job);
+        out.writeDouble(reMin);
+        out.writeDouble(reMax);
+        out.writeDouble(imMin);
+        out.writeDouble(imMax);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(xMin);
+        out.writeInt(xMax);
+        out.writeInt(yMin);
+        out.writeInt(yMax);
+    }
+
+    static void writeResult(DataOutputStream out, long job, short[] data) throws IOException {
+        byte[] buffer = new byte[2 * data.length];
+        out.writeByte(RESULT);
+        out.writeLong(job);
+        out.writeInt(data.length);
+        for (int i = 0; i < data.length; i++) {
+            buffer[2 * i] = (byte) (data[i] >> 8);
+            buffer[2 * i + 1] = (byte) data[i];
+        }
+        out.write(buffer);
+    }
+
+    /**
+     * Reads count x short of RESULT message into data
+     */
+    static void readShorts(DataInputStream in, short[] data, int count, byte[] buffer) throws IOException {
+        in.readFully(buffer, 0, 2 * count);
+        for (int i = 0; i < count; i++)
+            data[i] = (short) ((buffer[2 * i] << 8) | (buffer[2 * i + 1] & 0xFF));
+    }
+}
@@ -0,0 +1,512 @@
+package hr.fer.zemris.java.fractals.remote;
+
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.Canvas;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.RenderEngine;
+import hr.fer.zemris.java.fractals.render.RenderTicket;
+import hr.fer.zemris.java.fractals.render.TileRenderer;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coordinator which renders images on remote {@link RenderWorker} processes.
+ *
+ * Image is rendered into a {@link Canvas}, whose tiles which are not done yet are kept in
+ * a shared queue. Every worker connection pulls
+ * tiles from the queue while it has fewer than twice as many tiles in flight as the
+ * worker has threads, so faster workers take more tiles. A connection which has nothing
+ * left to do steals a tile which is still calculated by another worker and the first
+ * result wins, so one slow worker does not hold back the whole image. Tiles of a failed
+ * worker are put back into the queue and retried on other workers; tiles which failed
+ * too often or for which no worker is left are rendered locally.
+ *
+ * Connections and sessions are kept between requests, roots and parameters are sent
+ * only when they change. Failed worker is not contacted again for a few seconds. Every
+ * connection has its own thread, so requests of concurrent calls are served one after
+ * another. Cancelled request returns at once; answers which workers still send for its
+ * tiles are read by the next request and dropped.
+ */
+public class RemoteRenderer implements Closeable {
+
+    /**
+     * Number of remote attempts of one tile before it is rendered locally
+     */
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * Timeout of connecting to worker in milliseconds
+     */
+    private static final int CONNECT_TIMEOUT = 2000;
+
+    /**
+     * Time in milliseconds after which worker which does not answer is considered failed
+     */
+    private static final int READ_TIMEOUT = 60_000;
+
+    /**
+     * Time in nanoseconds after failure during which worker is not contacted
+     */
+    private static final long RETRY_DELAY = 5_000_000_000L;
+
+    /**
+     * Time in milliseconds after which waiting for connections checks cancellation
+     */
+    private static final long POLL_INTERVAL = 20;
+
+    private final RenderEngine engine;
+    private final Backend backend;
+    private final List<Connection> connections = new ArrayList<>();
+
+    /**
+     * Constructing new coordinator. Connections are opened on first request.
+     *
+     * @param engine engine on which tiles are rendered if no worker can render them
+     * @param workers addresses of workers
+     * @param backend backend used by workers
+     * @throws IllegalArgumentException if there are no workers
+     */
+    public RemoteRenderer(RenderEngine engine, List<InetSocketAddress> workers, Backend backend) {
+        if (workers.isEmpty())
+            throw new IllegalArgumentException("At least one worker is required");
+        this.engine = engine;
+        this.backend = backend;
+        for (InetSocketAddress address : workers)
+            connections.add(new Connection(address));
+    }
+
+    /**
+     * Parses addresses of workers
+     *
+     * @param addresses addresses separated by commas, each as host:port or port of local worker
+     * @return returns list of addresses
+     * @throws IllegalArgumentException if address is not valid
+     */
+    public static List<InetSocketAddress> parseAddresses(String addresses) {
+        List<InetSocketAddress> result = new ArrayList<>();
+        for (String address : addresses.split(",")) {
+            address = address.trim();
+            int split = address.lastIndexOf(':');
+            try {
+                String host = split < 0 ? "localhost" : address.substring(0, split);
+                int port = Integer.parseInt(address.substring(split + 1));
+                result.add(new InetSocketAddress(host, port));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Wrong address of worker : " + address);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renders tiles of canvas of given viewport which are not done yet on workers and
+     * blocks until image is rendered or cancelled.
+     *
+     * @param renderer backend used for tiles rendered locally
+     * @param kernel kernel whose roots and parameters are sent to workers
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param canvas canvas into which image is written
+     * @param ticket cancellation state of request
+     */
+    public void render(TileRenderer renderer, NewtonKernel kernel, double reMin, double reMax,
+                       double imMin, double imMax, Canvas canvas, RenderTicket ticket) {
+        Job job = new Job(kernel, reMin, reMax, imMin, imMax, canvas, ticket);
+        int tileSize = canvas.getTileSize();
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        for (int tileY = 0; tileY < canvas.getTilesY(); tileY++) {
+            for (int tileX = 0; tileX < canvas.getTilesX(); tileX++) {
+                if (canvas.isTileDone(tileX, tileY))
+                    continue;
+                int x = tileX * tileSize;
+                int y = tileY * tileSize;
+                Tile tile = new Tile(tileX, tileY, x, Math.min(x + tileSize, width) - 1,
+                        y, Math.min(y + tileSize, height) - 1);
+                job.tiles.add(tile);
+                job.pending.add(tile);
+            }
+        }
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (Connection connection : connections)
+            futures.add(connection.executor.submit(() -> connection.run(job)));
+        /* connections write into canvas, so they are awaited even if this thread is interrupted,
+           unless request is cancelled, after which they cannot write into canvas any more */
+        boolean interrupted = false;
+        try {
+            for (Future<?> future : futures) {
+                while (!ticket.isCancelled()) {
+                    try {
+                        future.get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (TimeoutException ignored) {
+                    } catch (ExecutionException e) {
+                        throw new IllegalStateException("Connection to worker failed", e.getCause());
+                    }
+                }
+            }
+        } finally {
+            if (ticket.isCancelled())
+                job.abandon();
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (ticket.isCancelled())
+            return;
+
+        List<Runnable> local = new ArrayList<>();
+        for (Tile tile : job.tiles) {
+            if (!tile.done.get()) {
+                local.add(() -> {
+                    short[] buffer = new short[tileSize * tileSize];
+                    renderer.renderTile(reMin, reMax, imMin, imMax, width, height,
+                            tile.xMin, tile.xMax, tile.yMin, tile.yMax, buffer, 0, tileSize, ticket);
+                    if (!ticket.isCancelled())
+                        canvas.writeTile(tile.tileX, tile.tileY, buffer, tileSize);
+                });
+            }
+        }
+        if (!local.isEmpty() && !ticket.isCancelled()) {
+            System.out.println(local.size() + " of " + job.tiles.size() + " tiles rendered locally");
+            engine.invokeAll(local);
+        }
+    }
+
+    /**
+     * Says good bye to workers and closes connections once their current requests end
+     */
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            connection.executor.execute(connection::close);
+            connection.executor.shutdown();
+        }
+    }
+
+    /**
+     * Rectangle [xMin, xMax] x [yMin, yMax] of image
+     */
+    private static final class Tile {
+
+        final int tileX;
+        final int tileY;
+        final int xMin;
+        final int xMax;
+        final int yMin;
+        final int yMax;
+
+        /**
+         * Set by the first result of tile
+         */
+        final AtomicBoolean done = new AtomicBoolean();
+
+        /**
+         * Number of workers calculating tile
+         */
+        final AtomicInteger copies = new AtomicInteger();
+
+        /**
+         * Number of failed remote attempts
+         */
+        final AtomicInteger failures = new AtomicInteger();
+
+        Tile(int tileX, int tileY, int xMin, int xMax, int yMin, int yMax) {
+            this.tileX = tileX;
+            this.tileY = tileY;
+            this.xMin = xMin;
+            this.xMax = xMax;
+            this.yMin = yMin;
+            this.yMax = yMax;
+        }
+    }
+
+    /**
+     * One request shared by all connections
+     */
+    private static final class Job {
+
+        final NewtonKernel kernel;
+        final double reMin;
+        final double reMax;
+        final double imMin;
+        final double imMax;
+        final int width;
+        final int height;
+        final Canvas canvas;
+        final RenderTicket ticket;
+        final List<Tile> tiles = new ArrayList<>();
+        final ConcurrentLinkedQueue<Tile> pending = new ConcurrentLinkedQueue<>();
+
+        /**
+         * Set when request returned without waiting for connections, guarded by this job
+         */
+        private boolean abandoned;
+
+        Job(NewtonKernel kernel, double reMin, double reMax, double imMin, double imMax,
+            Canvas canvas, RenderTicket ticket) {
+            this.kernel = kernel;
+            this.reMin = reMin;
+            this.reMax = reMax;
+            this.imMin = imMin;
+            this.imMax = imMax;
+            this.width = canvas.getWidth();
+            this.height = canvas.getHeight();
+            this.canvas = canvas;
+            this.ticket = ticket;
+        }
+
+        /**
+         * Takes next tile to calculate. Idle connection steals a tile which is calculated
+         * by exactly one other worker if there is nothing else left.
+         *
+         * @param idle true if connection has no tiles in flight
+         * @return returns tile or null if there is nothing to do
+         */
+        Tile take(boolean idle) {
+            Tile tile;
+            while ((tile = pending.poll()) != null) {
+                if (!tile.done.get()) {
+                    tile.copies.incrementAndGet();
+                    return tile;
+                }
+            }
+            if (!idle)
+                return null;
+            for (Tile t : tiles) {
+                if (!t.done.get() && t.copies.compareAndSet(1, 2))
+                    return t;
+            }
+            return null;
+        }
+
+        /**
+         * Gives back tile whose calculation failed
+         */
+        void failed(Tile tile) {
+            if (tile.copies.decrementAndGet() == 0 && !tile.done.get()
+                    && tile.failures.incrementAndGet() < MAX_ATTEMPTS)
+                pending.add(tile);
+        }
+
+        /**
+         * Writes result of tile into canvas if it is the first result of tile and request
+         * was not abandoned
+         */
+        void completed(Tile tile, short[] result) {
+            tile.copies.decrementAndGet();
+            synchronized (this) {
+                if (abandoned || !tile.done.compareAndSet(false, true))
+                    return;
+                canvas.writeTile(tile.tileX, tile.tileY, result, tile.xMax - tile.xMin + 1);
+            }
+        }
+
+        /**
+         * Stops writing of results into canvas, after which canvas may be reused
+         */
+        synchronized void abandon() {
+            abandoned = true;
+        }
+    }
+
+    /**
+     * Tile sent to worker together with job it belongs to
+     */
+    private static final class Request {
+
+        final Job job;
+        final Tile tile;
+
+        Request(Job job, Tile tile) {
+            this.job = job;
+            this.tile = tile;
+        }
+    }
+
+    /**
+     * Connection to one worker, used only by its own thread
+     */
+    private final class Connection {
+
+        private final InetSocketAddress address;
+
+        /**
+         * Thread of connection, runs jobs one after another
+         */
+        final ExecutorService executor;
+        private Socket socket;
+        private DataInputStream in;
+        private DataOutputStream out;
+
+        /**
+         * Maximal number of tiles in flight, twice the number of threads of worker
+         */
+        private int window;
+
+        /**
+         * Kernel whose session worker has
+         */
+        private NewtonKernel session;
+
+        /**
+         * Tiles sent to worker and not answered yet, including tiles of cancelled jobs
+         */
+        private final Map<Long, Request> inFlight = new HashMap<>();
+        private long nextJob;
+        private long failedAt;
+        private boolean failed;
+        private short[] result = new short[0];
+        private byte[] buffer = new byte[0];
+
+        Connection(InetSocketAddress address) {
+            this.address = address;
+            this.executor = Executors.newSingleThreadExecutor(r -> {
+                Thread thread = new Thread(r, "remote-connection-" + address);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        /**
+         * Calculates tiles of job until there is nothing left, job is cancelled or worker
+         * fails. Tiles of job which are in flight when it is cancelled are left to be
+         * dropped by later jobs.
+         */
+        void run(Job job) {
+            if (failed && System.nanoTime() - failedAt < RETRY_DELAY)
+                return;
+            try {
+                if (socket == null)
+                    connect();
+                if (!job.kernel.equals(session)) {
+                    Protocol.writeSession(out, job.kernel, backend);
+                    session = job.kernel;
+                }
+                int own = 0;
+                while (!job.ticket.isCancelled()) {
+                    while (inFlight.size() < window && !job.ticket.isCancelled()) {
+                        Tile tile = job.take(own == 0);
+                        if (tile == null) break;
+                        long id = nextJob++;
+                        Protocol.writeTile(out, id, job.reMin, job.reMax, job.imMin, job.imMax, job.width, job.height,
+                                tile.xMin, tile.xMax, tile.yMin, tile.yMax);
+                        inFlight.put(id, new Request(job, tile));
+                        own++;
+                    }
+                    out.flush();
+                    /* window filled by tiles of cancelled jobs is freed before giving up */
+                    if (own == 0 && inFlight.size() < window)
+                        return;
+                    if (receive() == job)
+                        own--;
+                }
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Worker " + address + " failed: " + e);
+                for (Request request : inFlight.values())
+                    request.job.failed(request.tile);
+                close();
+                failed = true;
+                failedAt = System.nanoTime();
+            }
+        }
+
+        /**
+         * Receives one answer of worker. Answer to tile of cancelled job is dropped.
+         *
+         * @return returns job of answered tile
+         */
+        private Job receive() throws IOException {
+            byte type = in.readByte();
+            long id = in.readLong();
+            Request request = inFlight.remove(id);
+            if (request == null)
+                throw new IOException("Answer to unknown tile " + id);
+            Job job = request.job;
+            Tile tile = request.tile;
+            if (type == Protocol.RESULT) {
+                int count = in.readInt();
+                if (count != (tile.xMax - tile.xMin + 1) * (tile.yMax - tile.yMin + 1))
+                    throw new IOException("Wrong size of tile " + count);
+                if (result.length < count) {
+                    result = new short[count];
+                    buffer = new byte[2 * count];
+                }
+                Protocol.readShorts(in, result, count, buffer);
+                if (!job.ticket.isCancelled())
+                    job.completed(tile, result);
+            } else if (type == Protocol.ERROR) {
+                String message = in.readUTF();
+                if (!job.ticket.isCancelled()) {
+                    System.out.println("Worker " + address + " could not render tile: " + message);
+                    job.failed(tile);
+                }
+            } else {
+                throw new IOException("Unknown message type " + type);
+            }
+            return job;
+        }
+
+        private void connect() throws IOException {
+            Socket socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(READ_TIMEOUT);
+                in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+                out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+                Protocol.writeHandshake(out, 0);
+                Protocol.readHandshake(in);
+                window = 2 * Math.max(1, in.readInt());
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+            this.socket = socket;
+            this.session = null;
+            this.failed = false;
+        }
+
+        void close() {
+            if (socket == null) return;
+            try {
+                out.writeByte(Protocol.BYE);
+                out.flush();
+            } catch (IOException ignored) {
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+            socket = null;
+            session = null;
+            inFlight.clear();
+        }
+    }
+}
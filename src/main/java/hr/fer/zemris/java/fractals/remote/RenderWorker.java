@@ -0,0 +1,206 @@
+package hr.fer.zemris.java.fractals.remote;
+
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.RenderTicket;
+import hr.fer.zemris.java.fractals.render.TileRenderer;
+import hr.fer.zemris.java.fractals.util.Util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Render process which calculates tiles for remote coordinators, see {@link Protocol}.
+ * Every connection is served by its own reader thread, tiles of all connections are
+ * calculated on a shared pool of threads and results are sent back as soon as they are
+ * ready. Several workers can run on one machine on different ports.
+ */
+public class RenderWorker implements Closeable {
+
+    /**
+     * Default port of worker
+     */
+    public static final int DEFAULT_PORT = 7150;
+
+    private final ServerSocket server;
+    private final ExecutorService pool;
+    private final int threads;
+
+    /**
+     * Constructing new worker listening on given port
+     *
+     * @param port port of worker, 0 for any free port
+     * @param threads number of threads calculating tiles
+     * @throws IOException if port can not be bound
+     * @throws IllegalArgumentException if number of threads is not positive
+     */
+    public RenderWorker(int port, int threads) throws IOException {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be 1 or greater, was " + threads);
+        this.server = new ServerSocket(port);
+        this.threads = threads;
+        this.pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "render-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        int workers = Runtime.getRuntime().availableProcessors();
+        for (String arg : args) {
+            if (arg.startsWith("--port") || arg.startsWith("-p"))
+                port = Util.parseArguments(arg);
+            else if (arg.startsWith("--workers") || arg.startsWith("-w"))
+                workers = Util.parseArguments(arg);
+        }
+        try (RenderWorker worker = new RenderWorker(port, workers)) {
+            System.out.println("Render worker with " + workers + " threads listening on port " + worker.getPort());
+            worker.serve();
+        }
+    }
+
+    /**
+     * @return returns port on which worker listens
+     */
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    /**
+     * Accepts connections of coordinators until worker is closed
+     *
+     * @throws IOException if accepting fails for other reason than closing of worker
+     */
+    public void serve() throws IOException {
+        while (true) {
+            Socket socket;
+            try {
+                socket = server.accept();
+            } catch (SocketException e) {
+                if (server.isClosed()) return;
+                throw e;
+            }
+            Thread thread = new Thread(() -> handle(socket), "render-connection-" + socket.getPort());
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stops accepting connections and calculating tiles
+     */
+    @Override
+    public void close() throws IOException {
+        server.close();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Serves one coordinator until it says good bye or connection fails
+     */
+    private void handle(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            Protocol.readHandshake(in);
+            Protocol.writeHandshake(out, threads);
+
+            AtomicBoolean closed = new AtomicBoolean();
+            RenderTicket ticket = new RenderTicket(0, closed);
+            Backend[] backend = new Backend[1];
+            TileRenderer renderer = null;
+            try {
+                while (true) {
+                    byte type = in.readByte();
+                    if (type == Protocol.BYE) {
+                        return;
+                    } else if (type == Protocol.SESSION) {
+                        NewtonKernel kernel = Protocol.readSession(in, backend);
+                        renderer = backend[0].create(kernel);
+                    } else if (type == Protocol.TILE) {
+                        long job = in.readLong();
+                        double reMin = in.readDouble();
+                        double reMax = in.readDouble();
+                        double imMin = in.readDouble();
+                        double imMax = in.readDouble();
+                        int width = in.readInt();
+                        int height = in.readInt();
+                        int xMin = in.readInt();
+                        int xMax = in.readInt();
+                        int yMin = in.readInt();
+                        int yMax = in.readInt();
+                        if (xMin < 0 || xMin > xMax || xMax >= width || yMin < 0 || yMin > yMax || yMax >= height
+                                || (long) (xMax - xMin + 1) * (yMax - yMin + 1) > Integer.MAX_VALUE / 2)
+                            throw new IOException("Wrong tile [" + xMin + ", " + xMax + "] x [" + yMin + ", " + yMax + "]");
+                        TileRenderer tileRenderer = renderer;
+                        pool.execute(() -> renderTile(tileRenderer, job, reMin, reMax, imMin, imMax,
+                                width, height, xMin, xMax, yMin, yMax, out, ticket, socket));
+                    } else {
+                        throw new IOException("Unknown message type " + type);
+                    }
+                }
+            } finally {
+                closed.set(true);
+            }
+        } catch (EOFException e) {
+            /* coordinator closed connection */
+        } catch (IOException e) {
+            System.out.println("Connection to coordinator failed: " + e.getMessage());
+        }
+    }
+
+    private static void renderTile(TileRenderer renderer, long job, double reMin, double reMax, double imMin,
+                                   double imMax, int width, int height, int xMin, int xMax, int yMin, int yMax,
+                                   DataOutputStream out, RenderTicket ticket, Socket socket) {
+        try {
+            if (renderer == null) {
+                synchronized (out) {
+                    out.writeByte(Protocol.ERROR);
+                    out.writeLong(job);
+                    out.writeUTF("No session");
+                    out.flush();
+                }
+                return;
+            }
+            int tileWidth = xMax - xMin + 1;
+            short[] data = new short[tileWidth * (yMax - yMin + 1)];
+            String error = null;
+            try {
+                renderer.renderTile(reMin, reMax, imMin, imMax, width, height, xMin, xMax, yMin, yMax,
+                        data, 0, tileWidth, ticket);
+            } catch (RuntimeException e) {
+                error = e.toString();
+            }
+            if (ticket.isCancelled()) return;
+            synchronized (out) {
+                if (error == null) {
+                    Protocol.writeResult(out, job, data);
+                } else {
+                    out.writeByte(Protocol.ERROR);
+                    out.writeLong(job);
+                    out.writeUTF(error);
+                }
+                out.flush();
+            }
+        } catch (IOException e) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
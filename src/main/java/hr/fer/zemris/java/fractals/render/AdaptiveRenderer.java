@@ -0,0 +1,230 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+
+/**
+ * Edge-aware renderer in the spirit of Mariani-Silver algorithm. Border of a rectangle
+ * is calculated first; if all border pixels converge to the same root with number of
+ * iterations differing by at most the iteration tolerance, interior of the rectangle is
+ * filled with that root without iterating it. Otherwise rectangle is split in four by
+ * its middle row and column, which are calculated, and the parts are processed the same
+ * way. Small rectangles are always calculated pixel by pixel.
+ *
+ * Because only borders are checked, a small island of another basin which lies entirely
+ * inside a rectangle with uniform border is lost. Islands of Newton fractals lie near
+ * basin boundaries where iteration counts change quickly, so with the default tolerance
+ * of {@value #DEFAULT_ITERATION_TOLERANCE} iterations such rectangles are subdivided.
+ * With the default tolerance images of the regression root sets (unit roots, cubic roots
+ * and five asymmetric roots on [-2, 2] x [-2, 2]) are pixel-identical to brute-force
+ * {@link NewtonKernel} for any tile size; larger tolerance is faster but less exact.
+ */
+public class AdaptiveRenderer implements TileRenderer {
+
+    /**
+     * Default maximal difference of iteration counts on uniform border
+     */
+    public static final int DEFAULT_ITERATION_TOLERANCE = 1;
+
+    /**
+     * Rectangles with at most this many interior pixels are calculated pixel by pixel
+     */
+    private static final int MIN_INTERIOR = 16;
+
+    /**
+     * Iteration counts of pixels of the current tile, reused by all tiles of one thread
+     */
+    private static final ThreadLocal<int[]> ITERATIONS = ThreadLocal.withInitial(() -> new int[0]);
+
+    private final NewtonKernel kernel;
+    private final int iterationTolerance;
+
+    /**
+     * Constructing new renderer with default iteration tolerance
+     *
+     * @param kernel kernel used for calculation
+     */
+    public AdaptiveRenderer(NewtonKernel kernel) {
+        this(kernel, DEFAULT_ITERATION_TOLERANCE);
+    }
+
+    /**
+     * Constructing new renderer
+     *
+     * @param kernel kernel used for calculation
+     * @param iterationTolerance maximal difference of iteration counts on uniform border
+     */
+    public AdaptiveRenderer(NewtonKernel kernel, int iterationTolerance) {
+        if (iterationTolerance < 0)
+            throw new IllegalArgumentException("Iteration tolerance must not be negative, was " + iterationTolerance);
+        this.kernel = kernel;
+        this.iterationTolerance = iterationTolerance;
+    }
+
+    @Override
+    public void renderTile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                           int xMin, int xMax, int yMin, int yMax, short[] data, int offset, int stride,
+                           RenderTicket ticket) {
+        int tileWidth = xMax - xMin + 1;
+        int tileHeight = yMax - yMin + 1;
+        int[] iterations = ITERATIONS.get();
+        if (iterations.length < tileWidth * tileHeight) {
+            iterations = new int[tileWidth * tileHeight];
+            ITERATIONS.set(iterations);
+        }
+
+        Tile tile = new Tile(reMin, reMax, imMin, imMax, width, height, xMin, yMin, tileWidth,
+                data, offset, stride, iterations, ticket);
+        tile.computeRow(0, 0, tileWidth - 1);
+        tile.computeRow(tileHeight - 1, 0, tileWidth - 1);
+        tile.computeColumn(0, 1, tileHeight - 2);
+        tile.computeColumn(tileWidth - 1, 1, tileHeight - 2);
+        tile.subdivide(0, 0, tileWidth - 1, tileHeight - 1);
+
+        RequestMetrics metrics = ticket.getMetrics();
+        if (metrics != null && !ticket.isCancelled()) {
+            RequestMetrics.PixelCounter counter = new RequestMetrics.PixelCounter();
+            for (int y = 0; y < tileHeight; y++) {
+                for (int x = 0; x < tileWidth; x++)
+                    counter.record(data[offset + y * stride + x], iterations[y * tileWidth + x]);
+            }
+            metrics.add(counter);
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof AdaptiveRenderer)) return false;
+        AdaptiveRenderer other = (AdaptiveRenderer) o;
+        return iterationTolerance == other.iterationTolerance && kernel.equals(other.kernel);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * kernel.hashCode() + iterationTolerance;
+    }
+
+    /**
+     * State of rendering of one tile, coordinates are relative to the tile
+     */
+    private class Tile {
+
+        private final double reMin;
+        private final double reMax;
+        private final double imMin;
+        private final double imMax;
+        private final int width;
+        private final int height;
+        private final int xMin;
+        private final int yMin;
+        private final int tileWidth;
+        private final short[] data;
+        private final int offset;
+        private final int stride;
+        private final int[] iterations;
+        private final RenderTicket ticket;
+        private int borderMin;
+        private int borderMax;
+
+        Tile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+             int xMin, int yMin, int tileWidth, short[] data, int offset, int stride,
+             int[] iterations, RenderTicket ticket) {
+            this.reMin = reMin;
+            this.reMax = reMax;
+            this.imMin = imMin;
+            this.imMax = imMax;
+            this.width = width;
+            this.height = height;
+            this.xMin = xMin;
+            this.yMin = yMin;
+            this.tileWidth = tileWidth;
+            this.data = data;
+            this.offset = offset;
+            this.stride = stride;
+            this.iterations = iterations;
+            this.ticket = ticket;
+        }
+
+        /**
+         * Processes interior of rectangle whose border is already calculated
+         */
+        void subdivide(int x0, int y0, int x1, int y1) {
+            if (x1 - x0 < 2 || y1 - y0 < 2 || ticket.isCancelled()) return;
+
+            int interior = (x1 - x0 - 1) * (y1 - y0 - 1);
+            if (interior > MIN_INTERIOR) {
+                int index = uniformBorder(x0, y0, x1, y1);
+                if (index >= 0) {
+                    int iter = iterations[y0 * tileWidth + x0];
+                    for (int y = y0 + 1; y < y1; y++) {
+                        for (int x = x0 + 1; x < x1; x++) {
+                            data[offset + y * stride + x] = (short) index;
+                            iterations[y * tileWidth + x] = iter;
+                        }
+                    }
+                    return;
+                }
+            } else {
+                for (int y = y0 + 1; y < y1; y++)
+                    computeRow(y, x0 + 1, x1 - 1);
+                return;
+            }
+
+            int mx = (x0 + x1) >>> 1;
+            int my = (y0 + y1) >>> 1;
+            computeRow(my, x0 + 1, x1 - 1);
+            computeColumn(mx, y0 + 1, my - 1);
+            computeColumn(mx, my + 1, y1 - 1);
+            subdivide(x0, y0, mx, my);
+            subdivide(mx, y0, x1, my);
+            subdivide(x0, my, mx, y1);
+            subdivide(mx, my, x1, y1);
+        }
+
+        /**
+         * @return returns root index shared by whole border of rectangle if iteration counts
+         * are within tolerance, -1 otherwise
+         */
+        private int uniformBorder(int x0, int y0, int x1, int y1) {
+            int index = data[offset + y0 * stride + x0];
+            borderMin = Integer.MAX_VALUE;
+            borderMax = Integer.MIN_VALUE;
+            for (int x = x0; x <= x1; x++) {
+                if (!matches(x, y0, index) || !matches(x, y1, index)) return -1;
+            }
+            for (int y = y0 + 1; y < y1; y++) {
+                if (!matches(x0, y, index) || !matches(x1, y, index)) return -1;
+            }
+            return borderMax - borderMin <= iterationTolerance ? index : -1;
+        }
+
+        private boolean matches(int x, int y, int index) {
+            if (data[offset + y * stride + x] != index) return false;
+            int iter = iterations[y * tileWidth + x];
+            borderMin = Math.min(borderMin, iter);
+            borderMax = Math.max(borderMax, iter);
+            return true;
+        }
+
+        void computeRow(int y, int from, int to) {
+            double cIm = (height - 1.0 - (yMin + y)) / (height - 1) * (imMax - imMin) + imMin;
+            for (int x = from; x <= to; x++)
+                compute(x, y, cIm);
+        }
+
+        void computeColumn(int x, int from, int to) {
+            for (int y = from; y <= to; y++) {
+                double cIm = (height - 1.0 - (yMin + y)) / (height - 1) * (imMax - imMin) + imMin;
+                compute(x, y, cIm);
+            }
+        }
+
+        private void compute(int x, int y, double cIm) {
+            if (ticket.isCancelled()) return;
+            double cRe = (xMin + x) / (width - 1.0) * (reMax - reMin) + reMin;
+            long result = kernel.iterate(cRe, cIm);
+            data[offset + y * stride + x] = (short) NewtonKernel.indexOf(result);
+            iterations[y * tileWidth + x] = NewtonKernel.iterationsOf(result);
+        }
+    }
+}
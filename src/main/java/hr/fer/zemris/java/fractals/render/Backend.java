@@ -0,0 +1,90 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.NewtonStep;
+
+/**
+ * Available render backends. Backend can be chosen at runtime with system property
+ * {@value #PROPERTY}, for example {@code -Dnewton.backend=vector}.
+ */
+public enum Backend {
+
+    /**
+     * Scalar kernel, calculates one pixel at a time
+     */
+    SCALAR,
+
+    /**
+     * Kernel using jdk.incubator.vector, calculates several pixels of a row at once.
+     * It is available only if project is built with profile vector and application
+     * is started with {@code --add-modules jdk.incubator.vector}. Vector kernel computes
+     * steps only from roots, so it must be paired with {@link NewtonStep#ROOT_PRODUCT},
+     * for example {@code -Dnewton.backend=vector -Dnewton.step=root-product}. Expanded
+     * steps evaluate powers in polar form with transcendental functions whose vector
+     * versions round differently, so they would not give the images of the scalar kernel.
+     */
+    VECTOR;
+
+    /**
+     * Name of system property used for choosing backend
+     */
+    public static final String PROPERTY = "newton.backend";
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    private static final String VECTOR_KERNEL = "hr.fer.zemris.java.fractals.render.VectorNewtonKernel";
+
+    /**
+     * @return returns backend chosen by system property, scalar if property is not set
+     * @throws IllegalArgumentException if property names unknown backend
+     */
+    public static Backend fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        if (name == null || name.isBlank())
+            return SCALAR;
+        try {
+            return valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown backend " + name);
+        }
+    }
+
+    /**
+     * Checks that this backend can render kernels with given step
+     *
+     * @param step way in which kernel computes Newton steps
+     * @throws IllegalArgumentException if vector backend is paired with other step than
+     * {@link NewtonStep#ROOT_PRODUCT}
+     */
+    public void checkStep(NewtonStep step) {
+        if (this == VECTOR && step != NewtonStep.ROOT_PRODUCT)
+            throw new IllegalArgumentException("Vector backend computes steps from roots only, it requires -D"
+                    + NewtonStep.PROPERTY + "=root-product (--step=root-product in batch jobs), step was " + step);
+    }
+
+    /**
+     * Creates renderer of this backend for given kernel. If module of vector backend is
+     * not available, scalar kernel is returned.
+     *
+     * @param kernel prepared scalar kernel
+     * @return returns renderer of this backend
+     * @throws IllegalArgumentException if vector backend is requested for kernel which
+     * does not compute steps from roots, see {@link #checkStep(NewtonStep)}
+     */
+    public TileRenderer create(NewtonKernel kernel) {
+        checkStep(kernel.getStep());
+        if (this == SCALAR)
+            return kernel;
+
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            System.out.println("Module " + VECTOR_MODULE + " is not available, using scalar backend");
+            return kernel;
+        }
+        try {
+            return (TileRenderer) Class.forName(VECTOR_KERNEL)
+                    .getConstructor(NewtonKernel.class)
+                    .newInstance(kernel);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.out.println("Vector backend is not available (" + e + "), using scalar backend");
+            return kernel;
+        }
+    }
+}
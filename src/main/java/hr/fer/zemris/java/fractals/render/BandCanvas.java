@@ -0,0 +1,134 @@
+package hr.fer.zemris.java.fractals.render;
+
+/**
+ * Canvas of a whole image which keeps only a band of its rows in one short array on
+ * heap. Tiles outside of the band are reported as done, so renderers calculate only tiles
+ * of the band, but with coordinates of the whole image, and band is pixel-identical to
+ * the same rows of the whole image. Band must start at the top of a tile row and end at
+ * the bottom of a tile row or of the image.
+ */
+public class BandCanvas implements Canvas {
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int firstRow;
+    private final int rows;
+    private final short[] data;
+    private final boolean[] done;
+
+    /**
+     * Constructing new canvas of a band
+     *
+     * @param width width of whole image
+     * @param height height of whole image
+     * @param tileSize length of side of one tile
+     * @param firstRow first row of band in whole image
+     * @param rows number of rows of band
+     * @param data buffer of at least width * rows elements, null for a new buffer
+     * @throws IllegalArgumentException if band is not aligned to tiles or is outside of image,
+     * band has too many pixels, buffer is too small or size is not positive
+     */
+    public BandCanvas(int width, int height, int tileSize, int firstRow, int rows, short[] data) {
+        if (width < 1 || height < 1 || tileSize < 1 || rows < 1)
+            throw new IllegalArgumentException("Width, height, tile size and rows must be positive");
+        if (firstRow < 0 || firstRow + rows > height)
+            throw new IllegalArgumentException("Rows " + firstRow + " to " + (firstRow + rows - 1)
+                    + " are outside of image of height " + height);
+        if (firstRow % tileSize != 0 || (rows % tileSize != 0 && firstRow + rows != height))
+            throw new IllegalArgumentException("Band of " + rows + " rows from row " + firstRow
+                    + " is not aligned to tiles of size " + tileSize);
+        if ((long) width * rows > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Band of " + rows + " rows is too large for width " + width);
+        if (data != null && data.length < width * rows)
+            throw new IllegalArgumentException("Buffer of " + data.length + " elements is too small for band "
+                    + width + "x" + rows);
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.firstRow = firstRow;
+        this.rows = rows;
+        this.data = data == null ? new short[width * rows] : data;
+        this.done = new boolean[getTilesX() * ((rows + tileSize - 1) / tileSize)];
+    }
+
+    /**
+     * @return returns root indexes of band, row by row starting from its first row
+     */
+    public short[] getData() {
+        return data;
+    }
+
+    /**
+     * @return returns first row of band in whole image
+     */
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    /**
+     * @return returns number of rows of band
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    @Override
+    public boolean isTileDone(int tileX, int tileY) {
+        int bandY = tileY - firstRow / tileSize;
+        if (bandY < 0 || bandY * tileSize >= rows)
+            return true;
+        return done[bandY * getTilesX() + tileX];
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if tile is outside of band
+     */
+    @Override
+    public void writeTile(int tileX, int tileY, short[] tile, int stride) {
+        int bandY = tileY - firstRow / tileSize;
+        if (bandY < 0 || bandY * tileSize >= rows)
+            throw new IllegalArgumentException("Tile (" + tileX + ", " + tileY + ") is outside of band");
+        int x = tileX * tileSize;
+        int y = bandY * tileSize;
+        int tileWidth = Math.min(tileSize, width - x);
+        int tileHeight = Math.min(tileSize, rows - y);
+        for (int row = 0; row < tileHeight; row++) {
+            System.arraycopy(tile, row * stride, data, (y + row) * width + x, tileWidth);
+        }
+        done[bandY * getTilesX() + tileX] = true;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalArgumentException if rows are outside of band
+     */
+    @Override
+    public void readRows(int y, int rows, short[] out) {
+        if (y < firstRow || y + rows > firstRow + this.rows)
+            throw new IllegalArgumentException("Rows " + y + " to " + (y + rows - 1) + " are outside of band");
+        System.arraycopy(data, (y - firstRow) * width, out, 0, rows * width);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,204 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Renders viewports from tiles kept in {@link TileCache}, so after pan only newly
+ * exposed tiles have to be calculated.
+ *
+ * Complex plane is snapped to a quadtree of square tiles with fixed resolution. On zoom
+ * level L points of the plane are sampled on a lattice with spacing
+ * 2^-L / tileSize, and tile (tx, ty) holds the lattice points
+ * [tx * tileSize, (tx + 1) * tileSize) x [ty * tileSize, (ty + 1) * tileSize).
+ * For a viewport the coarsest level whose spacing is not larger than spacing of pixels is
+ * used and every pixel takes the value of the nearest lattice point. Lattice does not
+ * depend on viewport, so pixels of the same tile are the same in every request.
+ *
+ * Because pixels are sampled from the lattice, image may differ from direct rendering
+ * by at most half of a pixel at basin boundaries. Up to four times more points than
+ * pixels are calculated for the first image of a zoom level; the gain comes with
+ * following pans and zooms back to a known level.
+ */
+public class CachingRenderer {
+
+    /**
+     * Default length of side of one tile, tile of 128x128 shorts takes 32kB
+     */
+    public static final int DEFAULT_TILE_SIZE = 128;
+
+    /**
+     * Lattice index must stay exactly representable in double
+     */
+    private static final double MAX_LATTICE_INDEX = 0x1p52;
+
+    private final RenderEngine engine;
+    private final TileCache cache;
+    private final int tileSize;
+
+    /**
+     * Constructing new renderer with default tile size
+     *
+     * @param engine engine on which missing tiles are calculated
+     * @param cache cache of tiles
+     */
+    public CachingRenderer(RenderEngine engine, TileCache cache) {
+        this(engine, cache, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Constructing new renderer
+     *
+     * @param engine engine on which missing tiles are calculated
+     * @param cache cache of tiles
+     * @param tileSize length of side of one tile
+     * @throws IllegalArgumentException if tile size is smaller than 2
+     */
+    public CachingRenderer(RenderEngine engine, TileCache cache, int tileSize) {
+        if (tileSize < 2)
+            throw new IllegalArgumentException("Tile size must be 2 or greater, was " + tileSize);
+        this.engine = engine;
+        this.cache = cache;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * @return returns cache of tiles
+     */
+    public TileCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Renders whole image of given viewport into data, calculating only tiles which are
+     * not cached, and blocks until image is rendered or cancelled. Viewports which can not
+     * be snapped to the lattice (single row or column, or too deep zoom) are rendered
+     * directly without cache.
+     *
+     * @param renderer backend used for calculation of missing tiles, together with kernel
+     * it identifies tiles in cache
+     * @param kernel kernel whose roots and parameters identify tiles in cache
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param width width of image
+     * @param height height of image
+     * @param data buffer of whole image in which results are written
+     * @param ticket cancellation state of request
+     */
+    public void render(TileRenderer renderer, NewtonKernel kernel, double reMin, double reMax,
+                       double imMin, double imMax, int width, int height, short[] data, RenderTicket ticket) {
+        render(renderer, kernel, reMin, reMax, imMin, imMax, new HeapCanvas(width, height, tileSize, data), ticket);
+    }
+
+    /**
+     * Renders tiles of canvas of given viewport which are not done yet, calculating only
+     * cache tiles which are not cached, and blocks until image is rendered or cancelled.
+     * Viewports which can not be snapped to the lattice (single row or column, or too deep
+     * zoom) are rendered directly without cache.
+     *
+     * @param renderer backend used for calculation of missing tiles, together with kernel
+     * it identifies tiles in cache
+     * @param kernel kernel whose roots and parameters identify tiles in cache
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param canvas canvas into which image is written
+     * @param ticket cancellation state of request
+     */
+    public void render(TileRenderer renderer, NewtonKernel kernel, double reMin, double reMax,
+                       double imMin, double imMax, Canvas canvas, RenderTicket ticket) {
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        double spacing = Math.min((reMax - reMin) / (width - 1), (imMax - imMin) / (height - 1));
+        int level = -Math.getExponent(spacing * tileSize);
+        double step = Math.scalb(1.0, -level) / tileSize;
+        double extent = Math.max(Math.max(Math.abs(reMin), Math.abs(reMax)), Math.max(Math.abs(imMin), Math.abs(imMax)));
+        if (width < 2 || height < 2 || !(spacing > 0) || Double.isInfinite(spacing)
+                || extent / step > MAX_LATTICE_INDEX) {
+            engine.render(renderer, reMin, reMax, imMin, imMax, canvas, ticket);
+            return;
+        }
+
+        /* lattice point nearest to every column and row of image */
+        long[] columns = new long[width];
+        for (int x = 0; x < width; x++)
+            columns[x] = Math.round((x / (width - 1.0) * (reMax - reMin) + reMin) / step);
+        long[] rows = new long[height];
+        for (int y = 0; y < height; y++)
+            rows[y] = Math.round(((height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin) / step);
+
+        long tileX0 = Math.floorDiv(columns[0], tileSize);
+        long tileY1 = Math.floorDiv(rows[0], tileSize);
+        long tileY0 = Math.floorDiv(rows[height - 1], tileSize);
+        int tilesX = (int) (Math.floorDiv(columns[width - 1], tileSize) - tileX0 + 1);
+        int tilesY = (int) (tileY1 - tileY0 + 1);
+
+        short[][] tiles = new short[tilesX * tilesY][];
+        List<Runnable> missing = new ArrayList<>();
+        for (int j = 0; j < tilesY; j++) {
+            for (int i = 0; i < tilesX; i++) {
+                TileCache.Key key = new TileCache.Key(renderer, kernel, level, tileX0 + i, tileY0 + j);
+                int index = j * tilesX + i;
+                tiles[index] = cache.get(key);
+                if (tiles[index] == null) {
+                    missing.add(() -> {
+                        short[] tile = renderTile(renderer, key, step, ticket);
+                        if (tile != null) {
+                            tiles[index] = tile;
+                            cache.put(key, tile);
+                        }
+                    });
+                }
+            }
+        }
+        if (!missing.isEmpty())
+            engine.invokeAll(missing);
+        if (ticket.isCancelled())
+            return;
+
+        int[] tileColumn = new int[width];
+        int[] offsetX = new int[width];
+        for (int x = 0; x < width; x++) {
+            tileColumn[x] = (int) (Math.floorDiv(columns[x], tileSize) - tileX0);
+            offsetX[x] = Math.floorMod(columns[x], tileSize);
+        }
+        int canvasTile = canvas.getTileSize();
+        short[] buffer = new short[canvasTile * canvasTile];
+        for (int canvasY = 0; canvasY < canvas.getTilesY(); canvasY++) {
+            for (int canvasX = 0; canvasX < canvas.getTilesX(); canvasX++) {
+                if (canvas.isTileDone(canvasX, canvasY))
+                    continue;
+                int xMin = canvasX * canvasTile;
+                int xMax = Math.min(xMin + canvasTile, width) - 1;
+                int yMin = canvasY * canvasTile;
+                int yMax = Math.min(yMin + canvasTile, height) - 1;
+                for (int y = yMin; y <= yMax; y++) {
+                    int tileRow = (int) (Math.floorDiv(rows[y], tileSize) - tileY0) * tilesX;
+                    int offsetY = (tileSize - 1 - Math.floorMod(rows[y], tileSize)) * tileSize;
+                    int index = (y - yMin) * canvasTile;
+                    for (int x = xMin; x <= xMax; x++)
+                        buffer[index++] = tiles[tileRow + tileColumn[x]][offsetY + offsetX[x]];
+                }
+                canvas.writeTile(canvasX, canvasY, buffer, canvasTile);
+            }
+        }
+    }
+
+    /**
+     * Calculates one tile, first row of tile is its top row
+     *
+     * @return returns data of tile or null if request was cancelled
+     */
+    private short[] renderTile(TileRenderer renderer, TileCache.Key key, double step, RenderTicket ticket) {
+        double reMin = key.tileX() * tileSize * step;
+        double imMin = key.tileY() * tileSize * step;
+        double span = (tileSize - 1) * step;
+        short[] tile = new short[tileSize * tileSize];
+        renderer.renderTile(reMin, reMin + span, imMin, imMin + span, tileSize, tileSize,
+                0, tileSize - 1, 0, tileSize - 1, tile, 0, tileSize, ticket);
+        return ticket.isCancelled() ? null : tile;
+    }
+}
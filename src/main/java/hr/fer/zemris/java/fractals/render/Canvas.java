@@ -0,0 +1,78 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Storage of root indexes of an image. Canvas is divided into square tiles of
+ * {@link #getTileSize()} pixels (tiles in the last column and row can be smaller)
+ * and it remembers which tiles were already written, so interrupted render can
+ * continue only with the missing tiles.
+ *
+ * Different tiles can be written concurrently from different threads.
+ */
+public interface Canvas extends Closeable {
+
+    /**
+     * @return returns width of image
+     */
+    int getWidth();
+
+    /**
+     * @return returns height of image
+     */
+    int getHeight();
+
+    /**
+     * @return returns length of side of one tile
+     */
+    int getTileSize();
+
+    /**
+     * @return returns number of tile columns
+     */
+    default int getTilesX() {
+        return (getWidth() + getTileSize() - 1) / getTileSize();
+    }
+
+    /**
+     * @return returns number of tile rows
+     */
+    default int getTilesY() {
+        return (getHeight() + getTileSize() - 1) / getTileSize();
+    }
+
+    /**
+     * @param tileX column of tile
+     * @param tileY row of tile
+     * @return returns true if tile was already written
+     */
+    boolean isTileDone(int tileX, int tileY);
+
+    /**
+     * Writes one tile and marks it as done
+     *
+     * @param tileX column of tile
+     * @param tileY row of tile
+     * @param data root indexes of tile, row by row
+     * @param stride distance in data between two successive rows of tile
+     */
+    void writeTile(int tileX, int tileY, short[] data, int stride);
+
+    /**
+     * Reads whole rows of image
+     *
+     * @param y first row
+     * @param rows number of rows
+     * @param data buffer of at least rows * width elements into which rows are read
+     */
+    void readRows(int y, int rows, short[] data);
+
+    /**
+     * Writes all changes to underlying storage
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    void close() throws IOException;
+}
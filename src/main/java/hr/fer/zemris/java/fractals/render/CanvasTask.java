@@ -0,0 +1,130 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Model of calculation of a range of canvas tiles. Task splits the range in halves
+ * until only one tile is left. Tiles already done in canvas are skipped.
+ * If request is measured, queue wait and rendering time of every tile are recorded.
+ */
+class CanvasTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Buffer for one tile, reused by all tasks of one thread
+     */
+    private static final ThreadLocal<short[]> BUFFER = ThreadLocal.withInitial(() -> new short[0]);
+
+    private final TileRenderer renderer;
+    private final double reMin;
+    private final double reMax;
+    private final double imMin;
+    private final double imMax;
+    private final Canvas canvas;
+    private final int from;
+    private final int to;
+    private final RenderTicket ticket;
+
+    /**
+     * Time of creation of task, used for queue wait of measured requests
+     */
+    private final long created;
+
+    CanvasTask(TileRenderer renderer, double reMin, double reMax, double imMin, double imMax,
+               Canvas canvas, int from, int to, RenderTicket ticket) {
+        this.renderer = renderer;
+        this.reMin = reMin;
+        this.reMax = reMax;
+        this.imMin = imMin;
+        this.imMax = imMax;
+        this.canvas = canvas;
+        this.from = from;
+        this.to = to;
+        this.ticket = ticket;
+        this.created = ticket.getMetrics() == null ? 0 : System.nanoTime();
+    }
+
+    @Override
+    protected void compute() {
+        if (ticket.isCancelled()) return;
+
+        if (to - from > 1) {
+            int mid = (from + to) >>> 1;
+            invokeAll(new CanvasTask(renderer, reMin, reMax, imMin, imMax, canvas, from, mid, ticket),
+                    new CanvasTask(renderer, reMin, reMax, imMin, imMax, canvas, mid, to, ticket));
+            return;
+        }
+        renderLeaf();
+    }
+
+    /**
+     * Renders the first tile of this task unless it is already done
+     */
+    void renderLeaf() {
+        int tileX = from % canvas.getTilesX();
+        int tileY = from / canvas.getTilesX();
+        if (ticket.isCancelled() || canvas.isTileDone(tileX, tileY)) return;
+
+        RequestMetrics metrics = ticket.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        int tileSize = canvas.getTileSize();
+        short[] buffer = BUFFER.get();
+        if (buffer.length < tileSize * tileSize) {
+            buffer = new short[tileSize * tileSize];
+            BUFFER.set(buffer);
+        }
+
+        int width = canvas.getWidth();
+        int height = canvas.getHeight();
+        int xMin = tileX * tileSize;
+        int yMin = tileY * tileSize;
+        int xMax = Math.min(xMin + tileSize, width) - 1;
+        int yMax = Math.min(yMin + tileSize, height) - 1;
+        renderer.renderTile(reMin, reMax, imMin, imMax, width, height, xMin, xMax, yMin, yMax,
+                buffer, 0, tileSize, ticket);
+        if (ticket.isCancelled()) return;
+        canvas.writeTile(tileX, tileY, buffer, tileSize);
+        if (metrics != null)
+            metrics.recordTile(start - created, System.nanoTime() - start);
+    }
+
+    /**
+     * @return returns number of pixels of the first tile of this task
+     */
+    long pixels() {
+        int tileSize = canvas.getTileSize();
+        int x = from % canvas.getTilesX() * tileSize;
+        int y = from / canvas.getTilesX() * tileSize;
+        return (long) Math.min(tileSize, canvas.getWidth() - x) * Math.min(tileSize, canvas.getHeight() - y);
+    }
+
+    /**
+     * @return returns squared distance in pixels of centre of the first tile of this task
+     * from centre of image
+     */
+    double distanceFromCentre() {
+        int tileSize = canvas.getTileSize();
+        int x = from % canvas.getTilesX() * tileSize;
+        int y = from / canvas.getTilesX() * tileSize;
+        double dx = x + (Math.min(tileSize, canvas.getWidth() - x) - canvas.getWidth()) / 2.0;
+        double dy = y + (Math.min(tileSize, canvas.getHeight() - y) - canvas.getHeight()) / 2.0;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Splits this task into tasks of single tiles which are not done yet, without running them
+     *
+     * @param leaves list into which leaves are added
+     */
+    void split(List<CanvasTask> leaves) {
+        int tilesX = canvas.getTilesX();
+        for (int i = from; i < to; i++) {
+            if (!canvas.isTileDone(i % tilesX, i / tilesX))
+                leaves.add(new CanvasTask(renderer, reMin, reMax, imMin, imMax, canvas, i, i + 1, ticket));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Ways in which {@link RenderEngine} runs tiles. Mode can be chosen at runtime with system
+ * property {@value #PROPERTY}, for example {@code -Dnewton.execution=virtual}.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Tiles are split and stolen by threads of a work-stealing pool owned by engine
+     */
+    FORK_JOIN,
+
+    /**
+     * Every tile runs in its own virtual thread forked in a {@link RenderScope}, at most
+     * parallelism of engine tiles at once. Virtual threads of all engines share carrier
+     * threads of the JVM. Their number defaults to the number of processors, independent
+     * of parallelism of engines; a fixed number of carriers must be set when JVM starts,
+     * with {@code -Djdk.virtualThreadScheduler.parallelism=N}, since property is read only
+     * once, when the first virtual thread is created.
+     *
+     * Virtual threads are created through reflection, because the project targets Java 15.
+     * Mode is available only when running on Java 21 or newer, on older Java engines in
+     * this mode can not be created, see {@link #checkAvailable()}.
+     */
+    VIRTUAL,
+
+    /**
+     * Tiles are queued in {@link RenderScheduler#shared()}, whose threads serve all engines
+     * of the JVM fairly, at most parallelism of engine tiles at once. Useful when several
+     * producers render at the same time, since together they never use more threads than
+     * the global budget of the scheduler.
+     */
+    SHARED;
+
+    /**
+     * Name of system property used for choosing mode
+     */
+    public static final String PROPERTY = "newton.execution";
+
+    /**
+     * @return returns mode chosen by system property, fork-join if property is not set
+     * @throws IllegalArgumentException if property names unknown mode
+     */
+    public static ExecutionMode fromSystemProperty() {
+        String name = System.getProperty(PROPERTY);
+        if (name == null || name.isBlank())
+            return FORK_JOIN;
+        try {
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown execution mode " + name);
+        }
+    }
+
+    /**
+     * Checks that this mode can be used in running JVM
+     *
+     * @throws IllegalArgumentException if mode is virtual and virtual threads are not
+     * available, which is the case before Java 21
+     */
+    public void checkAvailable() {
+        if (this == VIRTUAL && virtualThreadFactory() == null)
+            throw new IllegalArgumentException("Execution mode virtual requires Java 21 or newer, running on Java "
+                    + Runtime.version().feature());
+    }
+
+    /**
+     * Looks up factory of virtual threads. Virtual threads are created through reflection,
+     * so the project still compiles and runs on Java versions without them.
+     *
+     * @return returns factory of virtual threads, or null if they are not available
+     */
+    static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, "render-virtual-", 0L);
+            return (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package hr.fer.zemris.java.fractals.render;
+
+/**
+ * Canvas kept in one short array on heap. Image can have at most
+ * {@link Integer#MAX_VALUE} pixels.
+ */
+public class HeapCanvas implements Canvas {
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final short[] data;
+    private final boolean[] done;
+
+    /**
+     * Constructing new canvas
+     *
+     * @param width width of image
+     * @param height height of image
+     * @param tileSize length of side of one tile
+     * @throws IllegalArgumentException if image has too many pixels
+     */
+    public HeapCanvas(int width, int height, int tileSize) {
+        this(width, height, tileSize, null);
+    }
+
+    /**
+     * Constructing new canvas which keeps image in given buffer
+     *
+     * @param width width of image
+     * @param height height of image
+     * @param tileSize length of side of one tile
+     * @param data buffer of at least width * height elements, null for a new buffer
+     * @throws IllegalArgumentException if image has too many pixels, buffer is too small
+     * or size is not positive
+     */
+    public HeapCanvas(int width, int height, int tileSize, short[] data) {
+        if (width < 1 || height < 1 || tileSize < 1)
+            throw new IllegalArgumentException("Width, height and tile size must be positive");
+        if ((long) width * height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Image " + width + "x" + height + " is too large for heap canvas");
+        if (data != null && data.length < width * height)
+            throw new IllegalArgumentException("Buffer of " + data.length + " elements is too small for image "
+                    + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.data = data == null ? new short[width * height] : data;
+        this.done = new boolean[getTilesX() * getTilesY()];
+    }
+
+    /**
+     * @return returns root indexes of whole image, row by row
+     */
+    public short[] getData() {
+        return data;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    @Override
+    public boolean isTileDone(int tileX, int tileY) {
+        return done[tileY * getTilesX() + tileX];
+    }
+
+    @Override
+    public void writeTile(int tileX, int tileY, short[] tile, int stride) {
+        int x = tileX * tileSize;
+        int y = tileY * tileSize;
+        int tileWidth = Math.min(tileSize, width - x);
+        int tileHeight = Math.min(tileSize, height - y);
+        for (int row = 0; row < tileHeight; row++) {
+            System.arraycopy(tile, row * stride, data, (y + row) * width + x, tileWidth);
+        }
+        done[tileY * getTilesX() + tileX] = true;
+    }
+
+    @Override
+    public void readRows(int y, int rows, short[] out) {
+        System.arraycopy(data, y * width, out, 0, rows * width);
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,168 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Canvas stored in a file which is memory mapped, so image can be larger than heap and
+ * can have more than 2^31 pixels. Tiles are written directly into mapped file.
+ *
+ * File starts with header (magic, width, height, tile size and job key), followed by one
+ * byte per tile which is set when tile is written, followed by big-endian root indexes
+ * of the whole image row by row. When file of the same job already exists, it is opened
+ * and only tiles that are not marked as done have to be rendered again.
+ */
+public class MappedCanvas implements Canvas {
+
+    private static final long MAGIC = 0x4e45_5754_4341_4e31L;  // "NEWTCAN1"
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * Size of one mapped segment, mapping of a single buffer is limited to 2GB
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] segments;
+    private final long dataStart;
+    private final boolean resumed;
+
+    /**
+     * Opens canvas in given file or creates it if the file does not exist or
+     * belongs to another job
+     *
+     * @param path file of canvas
+     * @param width width of image
+     * @param height height of image
+     * @param tileSize length of side of one tile
+     * @param jobKey key of job, used to check whether existing file belongs to the same job
+     * @throws IOException if file can not be opened or mapped
+     */
+    public MappedCanvas(Path path, int width, int height, int tileSize, long jobKey) throws IOException {
+        if (width < 1 || height < 1 || tileSize < 1)
+            throw new IllegalArgumentException("Width, height and tile size must be positive");
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+
+        long tiles = (long) getTilesX() * getTilesY();
+        if (HEADER_SIZE + tiles > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Too many tiles, use larger tile size");
+        this.dataStart = (HEADER_SIZE + tiles + 7) & ~7L;
+        long size = dataStart + 2L * width * height;
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        boolean matches = false;
+        if (channel.size() == size) {
+            ByteBuffer existing = ByteBuffer.allocate(HEADER_SIZE);
+            channel.read(existing, 0);
+            matches = existing.getLong(0) == MAGIC && existing.getInt(8) == width && existing.getInt(12) == height
+                    && existing.getInt(16) == tileSize && existing.getLong(24) == jobKey;
+        }
+        if (!matches) {
+            /* new region of file is filled with zeros, so no tile is marked as done */
+            channel.truncate(0);
+        }
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, dataStart);
+        if (!matches) {
+            header.putLong(0, MAGIC);
+            header.putInt(8, width);
+            header.putInt(12, height);
+            header.putInt(16, tileSize);
+            header.putLong(24, jobKey);
+        }
+        this.resumed = matches;
+
+        long dataSize = size - dataStart;
+        int count = (int) ((dataSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+        this.segments = new MappedByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            long start = i * SEGMENT_SIZE;
+            segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, dataStart + start,
+                    Math.min(SEGMENT_SIZE, dataSize - start));
+        }
+    }
+
+    /**
+     * @return returns true if existing file of the same job was opened
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * @return returns number of tiles already written
+     */
+    public long countDoneTiles() {
+        long count = 0;
+        for (int i = HEADER_SIZE; i < HEADER_SIZE + (long) getTilesX() * getTilesY(); i++)
+            if (header.get(i) != 0) count++;
+        return count;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    @Override
+    public boolean isTileDone(int tileX, int tileY) {
+        return header.get(flagIndex(tileX, tileY)) != 0;
+    }
+
+    @Override
+    public void writeTile(int tileX, int tileY, short[] tile, int stride) {
+        int x = tileX * tileSize;
+        int y = tileY * tileSize;
+        int tileWidth = Math.min(tileSize, width - x);
+        int tileHeight = Math.min(tileSize, height - y);
+        for (int row = 0; row < tileHeight; row++) {
+            long position = 2 * ((long) (y + row) * width + x);
+            int offset = row * stride;
+            for (int i = 0; i < tileWidth; i++, position += 2) {
+                segments[(int) (position / SEGMENT_SIZE)].putShort((int) (position % SEGMENT_SIZE), tile[offset + i]);
+            }
+        }
+        header.put(flagIndex(tileX, tileY), (byte) 1);
+    }
+
+    @Override
+    public void readRows(int y, int rows, short[] data) {
+        long position = 2L * y * width;
+        int length = rows * width;
+        for (int i = 0; i < length; i++, position += 2) {
+            data[i] = segments[(int) (position / SEGMENT_SIZE)].getShort((int) (position % SEGMENT_SIZE));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (MappedByteBuffer segment : segments)
+            segment.force();
+        header.force();
+        channel.close();
+    }
+
+    private int flagIndex(int tileX, int tileY) {
+        return HEADER_SIZE + tileY * getTilesX() + tileX;
+    }
+}
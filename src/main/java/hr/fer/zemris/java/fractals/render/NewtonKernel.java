@@ -0,0 +1,356 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.NewtonPlan;
+import hr.fer.zemris.math.NewtonSolver;
+import hr.fer.zemris.math.NewtonStep;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Newton-Raphson kernel of the viewer, built on {@link NewtonSolver}. By default Newton
+ * steps are evaluated from expanded coefficients exactly as the original producers did,
+ * so images are pixel-identical to theirs. Computing steps directly from roots with
+ * {@link NewtonStep#ROOT_PRODUCT} is faster, but changes some pixels on basin boundaries.
+ * Roots and root lookup come from {@link NewtonPlan} of the root set.
+ * Tiles are rendered through the array API of the solver, a short run of pixels of a row
+ * at a time, so rendering creates only a few small buffers per tile.
+ *
+ * Kernel is immutable and can be shared between threads.
+ */
+public final class NewtonKernel implements TileRenderer {
+
+    /**
+     * Default maximal number of iterations for one pixel
+     */
+    public static final int DEFAULT_MAX_ITERATIONS = 16 * 16 * 16;
+
+    /**
+     * Default distance between two successive iterations under which iteration stops
+     */
+    public static final double DEFAULT_CONVERGENCE_THRESHOLD = 0.001;
+
+    /**
+     * Default maximal distance of final point from root for which point is classified as
+     * converged to that root
+     */
+    public static final double DEFAULT_ROOT_THRESHOLD = 0.002;
+
+    /**
+     * Maximal number of pixels of a row solved at once
+     */
+    private static final int RUN = 64;
+
+    /**
+     * Solver which iterates and classifies points
+     */
+    private final NewtonSolver solver;
+
+    /**
+     * Real parts of roots
+     */
+    private final double[] rootRe;
+
+    /**
+     * Imaginary parts of roots
+     */
+    private final double[] rootIm;
+
+    private final int maxIterations;
+    private final double convergenceThreshold;
+    private final double rootThreshold;
+
+    /**
+     * Constructing new kernel for given roots with default parameters
+     *
+     * @param roots roots of polynomial
+     */
+    public NewtonKernel(Complex[] roots) {
+        this(roots, NewtonStep.EXPANDED);
+    }
+
+    /**
+     * Constructing new kernel for given roots with default parameters
+     *
+     * @param roots roots of polynomial
+     * @param step way in which Newton steps are computed
+     */
+    public NewtonKernel(Complex[] roots, NewtonStep step) {
+        this(roots, DEFAULT_MAX_ITERATIONS, DEFAULT_CONVERGENCE_THRESHOLD, DEFAULT_ROOT_THRESHOLD, step);
+    }
+
+    /**
+     * Constructing new kernel for given roots and parameters
+     *
+     * @param roots roots of polynomial
+     * @param maxIterations maximal number of iterations for one pixel
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param rootThreshold maximal distance from root for classifying point to that root
+     * @throws IllegalArgumentException if there are no roots or if maxIterations is not positive
+     */
+    public NewtonKernel(Complex[] roots, int maxIterations, double convergenceThreshold, double rootThreshold) {
+        this(roots, maxIterations, convergenceThreshold, rootThreshold, NewtonStep.EXPANDED);
+    }
+
+    /**
+     * Constructing new kernel for given roots, parameters and way of computing steps
+     *
+     * @param roots roots of polynomial
+     * @param maxIterations maximal number of iterations for one pixel
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param rootThreshold maximal distance from root for classifying point to that root
+     * @param step way in which Newton steps are computed
+     * @throws IllegalArgumentException if there are no roots or if maxIterations is not positive
+     */
+    public NewtonKernel(Complex[] roots, int maxIterations, double convergenceThreshold, double rootThreshold,
+                        NewtonStep step) {
+        NewtonPlan plan = NewtonPlan.of(roots);
+        this.solver = new NewtonSolver(plan, maxIterations, convergenceThreshold, rootThreshold, step);
+        this.rootRe = plan.rootRe();
+        this.rootIm = plan.rootIm();
+
+        this.maxIterations = maxIterations;
+        this.convergenceThreshold = convergenceThreshold;
+        this.rootThreshold = rootThreshold;
+    }
+
+    /**
+     * @return returns solver which iterates and classifies points of this kernel
+     */
+    public NewtonSolver getSolver() {
+        return solver;
+    }
+
+    /**
+     * @return returns way in which Newton steps are computed
+     */
+    public NewtonStep getStep() {
+        return solver.getStep();
+    }
+
+    /**
+     * @return returns order of polynomial
+     */
+    public short order() {
+        return (short) rootRe.length;
+    }
+
+    /**
+     * @return returns maximal number of iterations for one pixel
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @return returns real parts of roots, array must not be modified
+     */
+    double[] rootRe() {
+        return rootRe;
+    }
+
+    /**
+     * @return returns imaginary parts of roots, array must not be modified
+     */
+    double[] rootIm() {
+        return rootIm;
+    }
+
+    /**
+     * @return returns roots of polynomial
+     */
+    public Complex[] getRoots() {
+        Complex[] roots = new Complex[rootRe.length];
+        for (int i = 0; i < roots.length; i++)
+            roots[i] = new Complex(rootRe[i], rootIm[i]);
+        return roots;
+    }
+
+    /**
+     * @return returns distance of two successive iterations under which iteration stops
+     */
+    public double convergenceThreshold() {
+        return convergenceThreshold;
+    }
+
+    /**
+     * @return returns maximal distance from root for classifying point to that root
+     */
+    public double rootThreshold() {
+        return rootThreshold;
+    }
+
+    /**
+     * Iterates Newton-Raphson method starting from given point and classifies the final point.
+     *
+     * @param startRe real part of starting point
+     * @param startIm imaginary part of starting point
+     * @return returns index of root (starting from 1) to which iteration converged
+     * or 0 if it did not converge to any root
+     */
+    public int rootIndexFor(double startRe, double startIm) {
+        return indexOf(iterate(startRe, startIm));
+    }
+
+    /**
+     * Iterates Newton-Raphson method starting from given point and classifies the final point.
+     * Result packs root index and number of iterations into one long, they can be
+     * extracted with {@link #indexOf(long)} and {@link #iterationsOf(long)}.
+     *
+     * @param startRe real part of starting point
+     * @param startIm imaginary part of starting point
+     * @return returns packed root index (starting from 1, 0 if it did not converge)
+     * and number of iterations
+     */
+    public long iterate(double startRe, double startIm) {
+        return iterate(startRe, startIm, null, 0);
+    }
+
+    /**
+     * Iterates Newton-Raphson method starting from given point, classifies the final point
+     * and writes smooth iteration count of the point into given buffer.
+     *
+     * Smooth iteration count is iterations - 1 + t, where t from [0, 1) is the part of the
+     * last step, measured on logarithmic scale of step lengths, needed to get under the
+     * convergence threshold. So it changes continuously across bands of equal iteration
+     * counts and number of iterations is its integer part plus one.
+     *
+     * @param startRe real part of starting point
+     * @param startIm imaginary part of starting point
+     * @param smooth buffer for smooth iteration count, or null if it is not needed
+     * @param position position in smooth buffer
+     * @return returns packed root index (starting from 1, 0 if it did not converge)
+     * and number of iterations, same as {@link #iterate(double, double)}
+     */
+    public long iterate(double startRe, double startIm, float[] smooth, int position) {
+        return solver.iterate(startRe, startIm, 0, smooth, position);
+    }
+
+    /**
+     * Continues iteration from given point, which is reached after given number of
+     * iterations. Used by {@link PerturbationRenderer} when pixel leaves reference orbit.
+     *
+     * @param zRe real part of current point
+     * @param zIm imaginary part of current point
+     * @param iterations number of iterations already done, smaller than maximal number
+     * @return returns packed root index and total number of iterations
+     */
+    long iterateFrom(double zRe, double zIm, int iterations) {
+        return solver.iterate(zRe, zIm, iterations, null, 0);
+    }
+
+    /**
+     * @param result result of {@link #iterate(double, double)}
+     * @return returns root index (starting from 1) or 0 if iteration did not converge
+     */
+    public static int indexOf(long result) {
+        return NewtonSolver.indexOf(result);
+    }
+
+    /**
+     * @param result result of {@link #iterate(double, double)}
+     * @return returns number of iterations
+     */
+    public static int iterationsOf(long result) {
+        return NewtonSolver.iterationsOf(result);
+    }
+
+    /**
+     * Finds index of closest root within root threshold for given point
+     *
+     * @param zRe real part of point
+     * @param zIm imaginary part of point
+     * @return returns index of closest root or -1 if there is no root within threshold
+     */
+    public int closestRootIndex(double zRe, double zIm) {
+        return solver.closestRootIndex(zRe, zIm);
+    }
+
+    /**
+     * Kernels are equal if they have the same roots in the same order, the same
+     * parameters and the same step, so they produce the same image for every viewport.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof NewtonKernel)) return false;
+        NewtonKernel other = (NewtonKernel) o;
+        return maxIterations == other.maxIterations
+                && getStep() == other.getStep()
+                && Double.compare(convergenceThreshold, other.convergenceThreshold) == 0
+                && Double.compare(rootThreshold, other.rootThreshold) == 0
+                && Arrays.equals(rootRe, other.rootRe)
+                && Arrays.equals(rootIm, other.rootIm);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hash(maxIterations, convergenceThreshold, rootThreshold, getStep());
+        result = 31 * result + Arrays.hashCode(rootRe);
+        return 31 * result + Arrays.hashCode(rootIm);
+    }
+
+    /**
+     * Renders rows from yMin to yMax (inclusive) of given viewport into data.
+     * Rendering stops as soon as ticket is cancelled.
+     *
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param width width of image
+     * @param height height of image
+     * @param yMin first row to render
+     * @param yMax last row to render
+     * @param data buffer of whole image in which results are written
+     * @param ticket cancellation state of request
+     */
+    public void render(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                       int yMin, int yMax, short[] data, RenderTicket ticket) {
+        renderTile(reMin, reMax, imMin, imMax, width, height, 0, width - 1, yMin, yMax,
+                data, width * yMin, width, ticket);
+    }
+
+    /**
+     * {@inheritDoc}
+     * Pixels are solved in runs of at most 64 pixels of a row and ticket is checked before
+     * every pixel, so rendering stops within time of one pixel after it is cancelled.
+     * Iteration counts are recorded if request is measured.
+     */
+    @Override
+    public void renderTile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                           int xMin, int xMax, int yMin, int yMax, short[] data, int offset, int stride,
+                           RenderTicket ticket) {
+        RequestMetrics metrics = ticket.getMetrics();
+        RequestMetrics.PixelCounter counter = metrics == null ? null : new RequestMetrics.PixelCounter();
+        int run = Math.min(RUN, xMax - xMin + 1);
+        double[] re = new double[run];
+        double[] im = new double[run];
+        int[] indexes = new int[run];
+        int[] iterations = counter == null ? null : new int[run];
+        BooleanSupplier cancelled = ticket::isCancelled;
+        for (int y = yMin; y < yMax + 1; y++) {
+            int index = offset + (y - yMin) * stride;
+            double cIm = (height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin;
+            for (int x0 = xMin; x0 < xMax + 1; x0 += run) {
+                int n = Math.min(run, xMax + 1 - x0);
+                for (int i = 0; i < n; i++) {
+                    re[i] = (x0 + i) / (width - 1.0) * (reMax - reMin) + reMin;
+                    im[i] = cIm;
+                }
+                int solved = solver.solve(re, im, 0, n, indexes, iterations, cancelled);
+                for (int i = 0; i < solved; i++) {
+                    data[index++] = (short) (indexes[i] + 1);
+                    if (counter != null)
+                        counter.record(indexes[i] + 1, iterations[i]);
+                }
+                if (solved < n) return;
+            }
+        }
+        if (counter != null)
+            metrics.add(counter);
+    }
+}
@@ -0,0 +1,206 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.DoubleDouble;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Deep zoom renderer. Orbit of one reference point is calculated in extended precision
+ * and every pixel z = Z + delta is iterated only as its small offset delta from the
+ * reference orbit Z in plain double, which keeps full relative precision of delta.
+ *
+ * With S(z) = sum of 1 / (z - r_i) the Newton step is z - 1 / S(z), so
+ * <pre>
+ * dS = S(Z + delta) - S(Z) = -delta * sum of 1 / ((Z - r_i) (Z - r_i + delta))
+ * delta' = delta + dS / (S(Z) (S(Z) + dS))
+ * </pre>
+ * Once delta grows large enough that double coordinates of the pixel are precise again,
+ * or reference orbit ends, pixel continues with ordinary double iteration from
+ * Z + delta, so cost of a pixel stays close to the cost of double iteration. Pixel also
+ * continues in double when dS is not small compared to S, which happens when reference
+ * passes close to a critical point of the polynomial and its step is huge.
+ *
+ * Renderer is bound to one viewport, viewport arguments of
+ * {@link #renderTile(double, double, double, double, int, int, int, int, int, int, short[], int, int, RenderTicket)}
+ * are ignored and only pixel coordinates are used.
+ */
+public class PerturbationRenderer implements TileRenderer {
+
+    /**
+     * Offset from reference point above which pixel is iterated in plain double
+     */
+    private static final double REBASE_DISTANCE = 1e-6;
+
+    /**
+     * Ratio of |dS| and |S| of reference above which pixel is iterated in plain double
+     */
+    private static final double GLITCH_RATIO = 0.5;
+
+    private final NewtonKernel kernel;
+    private final ReferenceOrbit orbit;
+    private final double spacingRe;
+    private final double spacingIm;
+    private final double centerX;
+    private final double centerY;
+
+    /**
+     * Constructing new renderer
+     *
+     * @param kernel kernel whose roots and parameters are used
+     * @param orbit orbit of reference point
+     * @param spacingRe horizontal distance of neighbouring pixels
+     * @param spacingIm vertical distance of neighbouring pixels
+     * @param centerX horizontal pixel coordinate of reference point, may be fractional
+     * @param centerY vertical pixel coordinate of reference point, may be fractional
+     */
+    public PerturbationRenderer(NewtonKernel kernel, ReferenceOrbit orbit, double spacingRe, double spacingIm,
+                                double centerX, double centerY) {
+        this.kernel = kernel;
+        this.orbit = orbit;
+        this.spacingRe = spacingRe;
+        this.spacingIm = spacingIm;
+        this.centerX = centerX;
+        this.centerY = centerY;
+    }
+
+    /**
+     * Creates renderer for image of given size with reference point in its center. Orbit is
+     * calculated in double-double or arbitrary precision, depending on depth of viewport.
+     *
+     * @param kernel kernel whose roots and parameters are used
+     * @param centerRe real part of center of viewport
+     * @param centerIm imaginary part of center of viewport
+     * @param spacingRe horizontal distance of neighbouring pixels
+     * @param spacingIm vertical distance of neighbouring pixels
+     * @param width width of image
+     * @param height height of image
+     * @return returns renderer of viewport
+     */
+    public static PerturbationRenderer create(NewtonKernel kernel, BigDecimal centerRe, BigDecimal centerIm,
+                                              double spacingRe, double spacingIm, int width, int height) {
+        double re = centerRe.doubleValue();
+        double im = centerIm.doubleValue();
+        double spacing = Math.min(spacingRe, spacingIm);
+        ReferenceOrbit orbit;
+        if (PrecisionMode.forViewport(re, im, spacing) == PrecisionMode.ARBITRARY) {
+            MathContext mc = PrecisionMode.mathContextFor(re, im, spacing);
+            orbit = ReferenceOrbit.compute(kernel, centerRe, centerIm, mc);
+        } else {
+            orbit = ReferenceOrbit.compute(kernel, DoubleDouble.valueOf(centerRe), DoubleDouble.valueOf(centerIm));
+        }
+        return new PerturbationRenderer(kernel, orbit, spacingRe, spacingIm, (width - 1) / 2.0, (height - 1) / 2.0);
+    }
+
+    /**
+     * Creates renderer for viewport given by double bounds. Center of viewport and pixel
+     * spacing are calculated exactly, so pixels stay distinct as long as bounds differ.
+     *
+     * @param kernel kernel whose roots and parameters are used
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param width width of image
+     * @param height height of image
+     * @return returns renderer of viewport
+     */
+    public static PerturbationRenderer create(NewtonKernel kernel, double reMin, double reMax,
+                                              double imMin, double imMax, int width, int height) {
+        BigDecimal two = BigDecimal.valueOf(2);
+        BigDecimal centerRe = new BigDecimal(reMin).add(new BigDecimal(reMax)).divide(two);
+        BigDecimal centerIm = new BigDecimal(imMin).add(new BigDecimal(imMax)).divide(two);
+        double spacingRe = new BigDecimal(reMax).subtract(new BigDecimal(reMin)).doubleValue() / (width - 1);
+        double spacingIm = new BigDecimal(imMax).subtract(new BigDecimal(imMin)).doubleValue() / (height - 1);
+        return create(kernel, centerRe, centerIm, spacingRe, spacingIm, width, height);
+    }
+
+    /**
+     * Creates renderer of a band of rows of the same viewport, row 0 of the band is the
+     * given row of the whole image
+     *
+     * @param firstRow first row of band in whole image
+     * @return returns renderer of band
+     */
+    public PerturbationRenderer band(int firstRow) {
+        return new PerturbationRenderer(kernel, orbit, spacingRe, spacingIm, centerX, centerY - firstRow);
+    }
+
+    @Override
+    public void renderTile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                           int xMin, int xMax, int yMin, int yMax, short[] data, int offset, int stride,
+                           RenderTicket ticket) {
+        for (int y = yMin; y < yMax + 1; y++) {
+            int index = offset + (y - yMin) * stride;
+            double deltaIm = (centerY - y) * spacingIm;
+            for (int x = xMin; x < xMax + 1; x++) {
+                if (ticket.isCancelled()) return;
+                double deltaRe = (x - centerX) * spacingRe;
+                data[index++] = (short) NewtonKernel.indexOf(iterate(deltaRe, deltaIm));
+            }
+        }
+    }
+
+    /**
+     * Iterates pixel at given offset from reference point
+     *
+     * @param deltaRe real part of offset
+     * @param deltaIm imaginary part of offset
+     * @return returns packed root index and number of iterations, as {@link NewtonKernel#iterate(double, double)}
+     */
+    public long iterate(double deltaRe, double deltaIm) {
+        int roots = kernel.order();
+        int maxIterations = kernel.getMaxIterations();
+        double threshold = kernel.convergenceThreshold();
+        int n = 0;
+        while (true) {
+            if (n >= orbit.length())
+                return kernel.iterateFrom(orbit.zRe(n) + deltaRe, orbit.zIm(n) + deltaIm, n);
+
+            /* dS = -delta * sum of 1 / (D (D + delta)) */
+            double sumRe = 0, sumIm = 0;
+            for (int i = 0; i < roots; i++) {
+                double dRe = orbit.dRe(n, i);
+                double dIm = orbit.dIm(n, i);
+                double eRe = dRe + deltaRe;
+                double eIm = dIm + deltaIm;
+                double pRe = dRe * eRe - dIm * eIm;
+                double pIm = dRe * eIm + dIm * eRe;
+                double p = pRe * pRe + pIm * pIm;
+                sumRe += pRe / p;
+                sumIm -= pIm / p;
+            }
+            double dsRe = -(deltaRe * sumRe - deltaIm * sumIm);
+            double dsIm = -(deltaRe * sumIm + deltaIm * sumRe);
+
+            /* near a critical point S of reference is small and dS is not, so change of step cancels badly */
+            double sRe = orbit.sRe(n);
+            double sIm = orbit.sIm(n);
+            if (dsRe * dsRe + dsIm * dsIm > GLITCH_RATIO * GLITCH_RATIO * (sRe * sRe + sIm * sIm))
+                return kernel.iterateFrom(orbit.zRe(n) + deltaRe, orbit.zIm(n) + deltaIm, n);
+
+            /* change of step is 1 / (S + dS) - 1 / S = -dS / (S (S + dS)) */
+            double tRe = sRe + dsRe;
+            double tIm = sIm + dsIm;
+            double qRe = sRe * tRe - sIm * tIm;
+            double qIm = sRe * tIm + sIm * tRe;
+            double q = qRe * qRe + qIm * qIm;
+            double changeRe = -(dsRe * qRe + dsIm * qIm) / q;
+            double changeIm = -(dsIm * qRe - dsRe * qIm) / q;
+
+            double stepRe = orbit.stepRe(n) + changeRe;
+            double stepIm = orbit.stepIm(n) + changeIm;
+            deltaRe -= changeRe;
+            deltaIm -= changeIm;
+            n++;
+
+            double module = Math.sqrt(stepRe * stepRe + stepIm * stepIm);
+            if (!(module > threshold) || n >= maxIterations) {
+                int index = kernel.closestRootIndex(orbit.zRe(n) + deltaRe, orbit.zIm(n) + deltaIm);
+                return (long) n << 32 | (index + 1);
+            }
+            if (deltaRe * deltaRe + deltaIm * deltaIm > REBASE_DISTANCE * REBASE_DISTANCE)
+                return kernel.iterateFrom(orbit.zRe(n) + deltaRe, orbit.zIm(n) + deltaIm, n);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.math.MathContext;
+
+/**
+ * Numeric precision needed for a viewport. Precision depends on ratio of pixel spacing
+ * and magnitude of coordinates: plain double has about 16 significant digits, so once
+ * neighbouring pixels differ only in the last few of them image turns blocky.
+ */
+public enum PrecisionMode {
+
+    /**
+     * Plain double arithmetic
+     */
+    DOUBLE,
+
+    /**
+     * Reference orbit in double-double arithmetic (about 32 digits), pixels by perturbation
+     */
+    DOUBLE_DOUBLE,
+
+    /**
+     * Reference orbit in {@link java.math.BigDecimal} arithmetic, pixels by perturbation
+     */
+    ARBITRARY;
+
+    /**
+     * Smallest relative pixel spacing rendered with plain double
+     */
+    static final double DOUBLE_LIMIT = 1e-12;
+
+    /**
+     * Smallest relative pixel spacing rendered with double-double reference orbit
+     */
+    static final double DOUBLE_DOUBLE_LIMIT = 1e-28;
+
+    /**
+     * Number of decimal digits of arbitrary precision beyond depth of viewport
+     */
+    private static final int GUARD_DIGITS = 20;
+
+    /**
+     * Selects precision for a viewport. Coordinates are measured relative to the larger of
+     * magnitude of viewport center and 1, because roots are of that magnitude.
+     *
+     * @param centerRe real part of viewport center
+     * @param centerIm imaginary part of viewport center
+     * @param spacing distance of neighbouring pixels
+     * @return returns precision needed for viewport
+     */
+    public static PrecisionMode forViewport(double centerRe, double centerIm, double spacing) {
+        double relative = spacing / scale(centerRe, centerIm);
+        if (relative >= DOUBLE_LIMIT)
+            return DOUBLE;
+        if (relative >= DOUBLE_DOUBLE_LIMIT)
+            return DOUBLE_DOUBLE;
+        return ARBITRARY;
+    }
+
+    /**
+     * @param centerRe real part of viewport center
+     * @param centerIm imaginary part of viewport center
+     * @param spacing distance of neighbouring pixels
+     * @return returns math context of arbitrary precision arithmetic for viewport
+     */
+    static MathContext mathContextFor(double centerRe, double centerIm, double spacing) {
+        double relative = spacing / scale(centerRe, centerIm);
+        int digits = (int) Math.ceil(-Math.log10(relative)) + GUARD_DIGITS;
+        return new MathContext(Math.max(digits, 34));
+    }
+
+    private static double scale(double centerRe, double centerIm) {
+        return Math.max(1, Math.max(Math.abs(centerRe), Math.abs(centerIm)));
+    }
+}
@@ -0,0 +1,75 @@
+package hr.fer.zemris.java.fractals.render;
+
+/**
+ * One pass of coarse-to-fine rendering. Pass with step s renders only pixels whose both
+ * coordinates are divisible by s and skips pixels already rendered by the previous, coarser
+ * pass (step 2s), so all passes together calculate every pixel exactly once.
+ */
+public class ProgressivePass implements TileRenderer {
+
+    /**
+     * Steps of default passes, 1/16, 1/4 and all pixels
+     */
+    public static final int[] DEFAULT_STEPS = {4, 2, 1};
+
+    private final NewtonKernel kernel;
+    private final int step;
+    private final int previousStep;
+
+    /**
+     * Constructing new pass
+     *
+     * @param kernel kernel used for calculation
+     * @param step distance between pixels rendered by this pass, power of two
+     * @param first true if this is the first pass, which does not skip any pixel
+     */
+    public ProgressivePass(NewtonKernel kernel, int step, boolean first) {
+        if (step < 1 || Integer.bitCount(step) != 1)
+            throw new IllegalArgumentException("Step must be power of two, was " + step);
+        this.kernel = kernel;
+        this.step = step;
+        this.previousStep = first ? 0 : 2 * step;
+    }
+
+    @Override
+    public void renderTile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                           int xMin, int xMax, int yMin, int yMax, short[] data, int offset, int stride,
+                           RenderTicket ticket) {
+        int mask = step - 1;
+        int previousMask = previousStep - 1;
+        for (int y = (yMin + mask) & ~mask; y < yMax + 1; y += step) {
+            boolean previousRow = previousStep != 0 && (y & previousMask) == 0;
+            int row = offset + (y - yMin) * stride - xMin;
+            double cIm = (height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin;
+            for (int x = (xMin + mask) & ~mask; x < xMax + 1; x += step) {
+                if (previousRow && (x & previousMask) == 0) continue;
+                if (ticket.isCancelled()) return;
+                double cRe = x / (width - 1.0) * (reMax - reMin) + reMin;
+                data[row + x] = (short) kernel.rootIndexFor(cRe, cIm);
+            }
+        }
+    }
+
+    /**
+     * Creates preview of partially rendered image in which every pixel has value of the
+     * closest rendered pixel above and left of it
+     *
+     * @param data image rendered with passes down to given step
+     * @param width width of image
+     * @param height height of image
+     * @param step step of the last finished pass
+     * @return returns new buffer with preview
+     */
+    public static short[] preview(short[] data, int width, int height, int step) {
+        int mask = step - 1;
+        short[] preview = new short[width * height];
+        for (int y = 0; y < height; y++) {
+            int source = (y & ~mask) * width;
+            int target = y * width;
+            for (int x = 0; x < width; x++) {
+                preview[target + x] = data[source + (x & ~mask)];
+            }
+        }
+        return preview;
+    }
+}
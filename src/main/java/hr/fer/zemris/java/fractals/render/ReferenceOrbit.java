@@ -0,0 +1,250 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.DoubleDouble;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * Newton-Raphson orbit of one reference point calculated in extended precision. Only
+ * values needed by perturbation of nearby pixels are kept, rounded to double: for every
+ * step n the point Z_n, differences Z_n - r_i from roots, S_n = sum of 1 / (Z_n - r_i)
+ * and the step 1 / S_n. Those values are not small, so double keeps their relative
+ * precision even when pixels of the viewport differ only beyond 16th digit.
+ *
+ * Orbit is immutable and shared by all threads which render the viewport.
+ */
+public final class ReferenceOrbit {
+
+    private final int roots;
+    private int length;
+    private double[] z;
+    private double[] d;
+    private double[] s;
+    private double[] step;
+
+    private ReferenceOrbit(int roots) {
+        this.roots = roots;
+        this.z = new double[64];
+        this.d = new double[64 * roots];
+        this.s = new double[64];
+        this.step = new double[64];
+    }
+
+    /**
+     * Calculates orbit of given point in double-double arithmetic
+     *
+     * @param kernel kernel whose roots and parameters are used
+     * @param re real part of reference point
+     * @param im imaginary part of reference point
+     * @return returns orbit of reference point
+     */
+    public static ReferenceOrbit compute(NewtonKernel kernel, DoubleDouble re, DoubleDouble im) {
+        return compute(kernel, re, im, DOUBLE_DOUBLE);
+    }
+
+    /**
+     * Calculates orbit of given point in arbitrary precision arithmetic
+     *
+     * @param kernel kernel whose roots and parameters are used
+     * @param re real part of reference point
+     * @param im imaginary part of reference point
+     * @param mc precision of arithmetic
+     * @return returns orbit of reference point
+     */
+    public static ReferenceOrbit compute(NewtonKernel kernel, BigDecimal re, BigDecimal im, MathContext mc) {
+        return compute(kernel, re.round(mc), im.round(mc), new BigDecimalArithmetic(mc));
+    }
+
+    /**
+     * @return returns number of calculated steps
+     */
+    public int length() {
+        return length;
+    }
+
+    double zRe(int n) {
+        return z[2 * n];
+    }
+
+    double zIm(int n) {
+        return z[2 * n + 1];
+    }
+
+    double dRe(int n, int root) {
+        return d[2 * (n * roots + root)];
+    }
+
+    double dIm(int n, int root) {
+        return d[2 * (n * roots + root) + 1];
+    }
+
+    double sRe(int n) {
+        return s[2 * n];
+    }
+
+    double sIm(int n) {
+        return s[2 * n + 1];
+    }
+
+    double stepRe(int n) {
+        return step[2 * n];
+    }
+
+    double stepIm(int n) {
+        return step[2 * n + 1];
+    }
+
+    /**
+     * Iterates reference point with the same stopping rules as {@link NewtonKernel}. Orbit
+     * also ends before a step which is not defined, at a root or at a critical point of
+     * the polynomial, and pixels continue from its last point in plain double.
+     */
+    private static <T> ReferenceOrbit compute(NewtonKernel kernel, T re, T im, Arithmetic<T> a) {
+        double[] rootRe = kernel.rootRe();
+        double[] rootIm = kernel.rootIm();
+        int n = rootRe.length;
+        ReferenceOrbit orbit = new ReferenceOrbit(n);
+        T zRe = re;
+        T zIm = im;
+        double module;
+        do {
+            int k = orbit.length;
+            orbit.ensureCapacity(k + 2);
+            orbit.z[2 * k] = a.toDouble(zRe);
+            orbit.z[2 * k + 1] = a.toDouble(zIm);
+
+            T sumRe = a.of(0);
+            T sumIm = a.of(0);
+            boolean atRoot = false;
+            for (int i = 0; i < n; i++) {
+                T dRe = a.sub(zRe, a.of(rootRe[i]));
+                T dIm = a.sub(zIm, a.of(rootIm[i]));
+                T d = a.add(a.mul(dRe, dRe), a.mul(dIm, dIm));
+                if (a.toDouble(d) == 0) {
+                    atRoot = true;
+                    break;
+                }
+                orbit.d[2 * (k * n + i)] = a.toDouble(dRe);
+                orbit.d[2 * (k * n + i) + 1] = a.toDouble(dIm);
+                sumRe = a.add(sumRe, a.div(dRe, d));
+                sumIm = a.sub(sumIm, a.div(dIm, d));
+            }
+            if (atRoot)
+                break;
+
+            T sum = a.add(a.mul(sumRe, sumRe), a.mul(sumIm, sumIm));
+            /* S = 0 at critical points of polynomial, for example at 0 for roots of unity, where step is not defined */
+            if (a.toDouble(sum) == 0)
+                break;
+            T stepRe = a.div(sumRe, sum);
+            T stepIm = a.div(a.sub(a.of(0), sumIm), sum);
+            zRe = a.sub(zRe, stepRe);
+            zIm = a.sub(zIm, stepIm);
+
+            orbit.s[2 * k] = a.toDouble(sumRe);
+            orbit.s[2 * k + 1] = a.toDouble(sumIm);
+            orbit.step[2 * k] = a.toDouble(stepRe);
+            orbit.step[2 * k + 1] = a.toDouble(stepIm);
+            orbit.length = k + 1;
+            module = Math.hypot(orbit.step[2 * k], orbit.step[2 * k + 1]);
+        } while (module > kernel.convergenceThreshold() && orbit.length < kernel.getMaxIterations());
+
+        orbit.z[2 * orbit.length] = a.toDouble(zRe);
+        orbit.z[2 * orbit.length + 1] = a.toDouble(zIm);
+        return orbit;
+    }
+
+    private void ensureCapacity(int steps) {
+        if (2 * steps <= z.length) return;
+        int capacity = Math.max(2 * steps, 2 * z.length);
+        z = Arrays.copyOf(z, capacity);
+        s = Arrays.copyOf(s, capacity);
+        step = Arrays.copyOf(step, capacity);
+        d = Arrays.copyOf(d, capacity * roots);
+    }
+
+    /**
+     * Operations of extended precision number type
+     */
+    private interface Arithmetic<T> {
+        T of(double value);
+        T add(T a, T b);
+        T sub(T a, T b);
+        T mul(T a, T b);
+        T div(T a, T b);
+        double toDouble(T value);
+    }
+
+    private static final Arithmetic<DoubleDouble> DOUBLE_DOUBLE = new Arithmetic<>() {
+        @Override
+        public DoubleDouble of(double value) {
+            return DoubleDouble.valueOf(value);
+        }
+
+        @Override
+        public DoubleDouble add(DoubleDouble a, DoubleDouble b) {
+            return a.add(b);
+        }
+
+        @Override
+        public DoubleDouble sub(DoubleDouble a, DoubleDouble b) {
+            return a.sub(b);
+        }
+
+        @Override
+        public DoubleDouble mul(DoubleDouble a, DoubleDouble b) {
+            return a.multiply(b);
+        }
+
+        @Override
+        public DoubleDouble div(DoubleDouble a, DoubleDouble b) {
+            return a.divide(b);
+        }
+
+        @Override
+        public double toDouble(DoubleDouble value) {
+            return value.doubleValue();
+        }
+    };
+
+    private static final class BigDecimalArithmetic implements Arithmetic<BigDecimal> {
+
+        private final MathContext mc;
+
+        BigDecimalArithmetic(MathContext mc) {
+            this.mc = mc;
+        }
+
+        @Override
+        public BigDecimal of(double value) {
+            return new BigDecimal(value);
+        }
+
+        @Override
+        public BigDecimal add(BigDecimal a, BigDecimal b) {
+            return a.add(b, mc);
+        }
+
+        @Override
+        public BigDecimal sub(BigDecimal a, BigDecimal b) {
+            return a.subtract(b, mc);
+        }
+
+        @Override
+        public BigDecimal mul(BigDecimal a, BigDecimal b) {
+            return a.multiply(b, mc);
+        }
+
+        @Override
+        public BigDecimal div(BigDecimal a, BigDecimal b) {
+            return a.divide(b, mc);
+        }
+
+        @Override
+        public double toDouble(BigDecimal value) {
+            return value.doubleValue();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Long-lived render engine built on work-stealing {@link ForkJoinPool}.
+ * Threads of the pool are created once and reused by all render requests.
+ * Image is split adaptively, by halving the longer side, until pieces are small
+ * enough to fit into cache, so idle threads can always steal remaining work
+ * from slower parts of the image.
+ *
+ * In {@link ExecutionMode#VIRTUAL} mode image is split into the same tiles, but every
+ * tile of a request runs in its own virtual thread of a {@link RenderScope}, at most
+ * parallelism tiles at once. In {@link ExecutionMode#SHARED} mode the same tiles are
+ * queued in a {@link RenderScheduler} shared with other engines, newest request first
+ * and from the centre of the image outwards. Canvas is rendered tile by tile of canvas
+ * in the same modes.
+ */
+public class RenderEngine {
+
+    /**
+     * Default maximal number of pixels in one tile, 64x64 shorts take 8kB
+     */
+    public static final int DEFAULT_TILE_PIXELS = 64 * 64;
+
+    private final ForkJoinPool pool;
+    private final int tilePixels;
+    private final ExecutionMode mode;
+
+    /**
+     * Factory of virtual threads, null in fork-join mode
+     */
+    private final ThreadFactory virtualThreads;
+
+    /**
+     * Queue of this engine in shared scheduler, null if mode is not shared
+     */
+    private final RenderScheduler.Client client;
+
+    /**
+     * Constructing new render engine with default tile size
+     *
+     * @param parallelism number of threads
+     */
+    public RenderEngine(int parallelism) {
+        this(parallelism, DEFAULT_TILE_PIXELS);
+    }
+
+    /**
+     * Constructing new render engine in mode chosen by system property
+     * {@value ExecutionMode#PROPERTY}
+     *
+     * @param parallelism number of threads
+     * @param tilePixels maximal number of pixels in one tile
+     * @throws IllegalArgumentException if parallelism or tilePixels is not positive or if
+     * mode is not available, see {@link ExecutionMode#checkAvailable()}
+     */
+    public RenderEngine(int parallelism, int tilePixels) {
+        this(parallelism, tilePixels, ExecutionMode.fromSystemProperty());
+    }
+
+    /**
+     * Constructing new render engine
+     *
+     * @param parallelism number of threads
+     * @param tilePixels maximal number of pixels in one tile
+     * @param mode way in which tiles are run
+     * @throws IllegalArgumentException if parallelism or tilePixels is not positive or if
+     * mode is not available, see {@link ExecutionMode#checkAvailable()}
+     */
+    public RenderEngine(int parallelism, int tilePixels, ExecutionMode mode) {
+        this(parallelism, tilePixels, mode, mode == ExecutionMode.SHARED ? RenderScheduler.shared() : null);
+    }
+
+    /**
+     * Constructing new render engine which renders tiles on given scheduler
+     *
+     * @param parallelism maximal number of tiles of engine rendered at once
+     * @param tilePixels maximal number of pixels in one tile
+     * @param scheduler scheduler shared with other engines
+     * @throws IllegalArgumentException if parallelism or tilePixels is not positive
+     */
+    public RenderEngine(int parallelism, int tilePixels, RenderScheduler scheduler) {
+        this(parallelism, tilePixels, ExecutionMode.SHARED, scheduler);
+    }
+
+    private RenderEngine(int parallelism, int tilePixels, ExecutionMode mode, RenderScheduler scheduler) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Number of threads must be 1 or greater, was " + parallelism);
+        if (tilePixels < 1)
+            throw new IllegalArgumentException("Number of pixels in tile must be 1 or greater, was " + tilePixels);
+        mode.checkAvailable();
+        this.pool = new ForkJoinPool(parallelism);
+        this.tilePixels = tilePixels;
+        this.mode = mode;
+        this.virtualThreads = mode == ExecutionMode.VIRTUAL ? ExecutionMode.virtualThreadFactory() : null;
+        this.client = mode == ExecutionMode.SHARED ? scheduler.register(parallelism) : null;
+    }
+
+    /**
+     * @return returns number of threads used by engine
+     */
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * @return returns mode in which tiles are run
+     */
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Renders whole image of given viewport into data and blocks until image is rendered
+     * or cancelled. Exception of any tile cancels the request and is rethrown.
+     *
+     * @param renderer backend used for calculation
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param width width of image
+     * @param height height of image
+     * @param minTiles minimal number of tiles image is split into
+     * @param data buffer of whole image in which results are written
+     * @param ticket cancellation state of request
+     */
+    public void render(TileRenderer renderer, double reMin, double reMax, double imMin, double imMax,
+                       int width, int height, int minTiles, short[] data, RenderTicket ticket) {
+        long pixels = (long) width * height;
+        int leafPixels = (int) Math.max(1, Math.min(tilePixels, pixels / Math.max(1, minTiles)));
+        TileTask task = new TileTask(renderer, reMin, reMax, imMin, imMax, width, height,
+                0, width - 1, 0, height - 1, leafPixels, data, ticket);
+        if (mode == ExecutionMode.VIRTUAL) {
+            List<TileTask> leaves = new ArrayList<>();
+            task.split(leaves);
+            RenderScope scope = new RenderScope(virtualThreads, pool.getParallelism(), ticket);
+            for (TileTask leaf : leaves)
+                scope.fork(leaf::renderLeaf);
+            scope.join();
+        } else if (mode == ExecutionMode.SHARED) {
+            List<TileTask> leaves = new ArrayList<>();
+            task.split(leaves);
+            long[] costs = new long[leaves.size()];
+            double[] distances = new double[leaves.size()];
+            List<Runnable> work = new ArrayList<>(leaves.size());
+            for (int i = 0; i < leaves.size(); i++) {
+                TileTask leaf = leaves.get(i);
+                costs[i] = leaf.pixels();
+                distances[i] = leaf.distanceFromCentre();
+                work.add(leaf::renderLeaf);
+            }
+            client.invoke(work, costs, distances, ticket);
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Renders whole canvas of given viewport and blocks until it is rendered or cancelled.
+     * Every tile is rendered into a per-thread buffer and then written into canvas;
+     * tiles which canvas already has are skipped. Exception of any tile cancels the
+     * request and is rethrown.
+     *
+     * @param renderer backend used for calculation
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param canvas canvas into which image is written
+     * @param ticket cancellation state of request
+     */
+    public void render(TileRenderer renderer, double reMin, double reMax, double imMin, double imMax,
+                       Canvas canvas, RenderTicket ticket) {
+        int tiles = canvas.getTilesX() * canvas.getTilesY();
+        CanvasTask task = new CanvasTask(renderer, reMin, reMax, imMin, imMax, canvas, 0, tiles, ticket);
+        if (mode == ExecutionMode.VIRTUAL) {
+            List<CanvasTask> leaves = new ArrayList<>();
+            task.split(leaves);
+            RenderScope scope = new RenderScope(virtualThreads, pool.getParallelism(), ticket);
+            for (CanvasTask leaf : leaves)
+                scope.fork(leaf::renderLeaf);
+            scope.join();
+        } else if (mode == ExecutionMode.SHARED) {
+            List<CanvasTask> leaves = new ArrayList<>();
+            task.split(leaves);
+            long[] costs = new long[leaves.size()];
+            double[] distances = new double[leaves.size()];
+            List<Runnable> work = new ArrayList<>(leaves.size());
+            for (int i = 0; i < leaves.size(); i++) {
+                CanvasTask leaf = leaves.get(i);
+                costs[i] = leaf.pixels();
+                distances[i] = leaf.distanceFromCentre();
+                work.add(leaf::renderLeaf);
+            }
+            client.invoke(work, costs, distances, ticket);
+        } else {
+            pool.invoke(task);
+        }
+    }
+
+    /**
+     * Runs independent jobs on threads of this engine and blocks until all of them finish.
+     * Exception of a job is rethrown after all jobs finish.
+     *
+     * @param jobs jobs to run
+     */
+    public void invokeAll(Collection<? extends Runnable> jobs) {
+        if (mode == ExecutionMode.VIRTUAL) {
+            RenderScope scope = new RenderScope(virtualThreads, pool.getParallelism(), new RenderTicket(0, new AtomicBoolean()));
+            for (Runnable job : jobs)
+                scope.fork(job);
+            scope.join();
+            return;
+        }
+        if (mode == ExecutionMode.SHARED) {
+            client.invoke(new ArrayList<>(jobs), null, null, new RenderTicket(0, new AtomicBoolean()));
+            return;
+        }
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(jobs.size());
+        for (Runnable job : jobs)
+            tasks.add(ForkJoinTask.adapt(job));
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Stops threads of this engine and leaves shared scheduler. Engine can not be used after shutdown.
+     */
+    public void shutdown() {
+        pool.shutdown();
+        if (client != null)
+            client.close();
+    }
+}
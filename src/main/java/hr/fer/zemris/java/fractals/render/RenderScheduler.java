@@ -0,0 +1,381 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Render scheduler shared by several render engines, so that concurrent requests of all
+ * producers together never use more threads than the global budget. Every engine is one
+ * client of the scheduler with its own queue of tiles.
+ *
+ * Clients are served fairly by number of pixels: a free thread takes a tile of the client
+ * which got the fewest pixels so far, so a large render of one client can not starve small
+ * interactive renders of other clients. A client which was idle starts with as many pixels
+ * as the least served active client, so idle time is not saved up for later. Every client
+ * runs at most its parallelism of tiles at once.
+ *
+ * Within one client tiles of the newest request go first, and tiles of one request go from
+ * the centre of the viewport outwards. Tiles of cancelled or superseded requests are
+ * dropped without rendering.
+ */
+public final class RenderScheduler {
+
+    /**
+     * Name of system property with number of threads of shared scheduler
+     */
+    public static final String THREADS_PROPERTY = "newton.scheduler.threads";
+
+    /**
+     * Time after which waiting request checks whether it was cancelled, in milliseconds
+     */
+    private static final long CANCEL_CHECK = 10;
+
+    private static RenderScheduler shared;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final List<Client> clients = new ArrayList<>();
+    private final List<Thread> threads = new ArrayList<>();
+
+    /**
+     * Sequence of submitted requests, newer requests have greater numbers, guarded by lock
+     */
+    private long sequence;
+
+    /**
+     * Set when scheduler is shut down, guarded by lock
+     */
+    private boolean shutdown;
+
+    /**
+     * Constructing new scheduler and starting its threads
+     *
+     * @param threads global number of threads rendering tiles
+     * @throws IllegalArgumentException if number of threads is not positive
+     */
+    public RenderScheduler(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be 1 or greater, was " + threads);
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(this::work, "render-scheduler-" + i);
+            thread.setDaemon(true);
+            this.threads.add(thread);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns scheduler shared by the whole JVM, created on first use. Its number of threads
+     * is given by system property {@value #THREADS_PROPERTY}, number of processors by default.
+     *
+     * @return returns shared scheduler
+     * @throws IllegalArgumentException if property is not a positive number
+     */
+    public static synchronized RenderScheduler shared() {
+        if (shared == null) {
+            String value = System.getProperty(THREADS_PROPERTY);
+            int threads = Runtime.getRuntime().availableProcessors();
+            if (value != null && !value.isBlank()) {
+                try {
+                    threads = Integer.parseInt(value.trim());
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Number of threads must be a number, was " + value);
+                }
+            }
+            shared = new RenderScheduler(threads);
+        }
+        return shared;
+    }
+
+    /**
+     * @return returns global number of threads rendering tiles
+     */
+    public int getThreads() {
+        return threads.size();
+    }
+
+    /**
+     * Stops threads of scheduler once they finish their current tiles. Tiles still in queues
+     * are dropped and their requests cancelled.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            for (Client client : new ArrayList<>(clients))
+                client.close();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Registers new client
+     *
+     * @param parallelism maximal number of tiles of client rendered at once
+     * @return returns new client
+     */
+    Client register(int parallelism) {
+        lock.lock();
+        try {
+            if (shutdown)
+                throw new IllegalStateException("Scheduler is shut down");
+            Client client = new Client(parallelism);
+            clients.add(client);
+            return client;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Loop of scheduler thread
+     */
+    private void work() {
+        while (true) {
+            Job job;
+            lock.lock();
+            try {
+                while ((job = next()) == null) {
+                    if (shutdown) return;
+                    available.awaitUninterruptibly();
+                }
+            } finally {
+                lock.unlock();
+            }
+            Throwable error = null;
+            try {
+                job.work.run();
+            } catch (Throwable e) {
+                error = e;
+            }
+            lock.lock();
+            try {
+                job.client.running--;
+                job.batch.finished(error);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes next tile to render from the least served client, called with lock held
+     *
+     * @return returns next tile, or null if no client has a tile which can run
+     */
+    private Job next() {
+        Client best = null;
+        for (Client client : clients) {
+            client.dropCancelledHead();
+            if (client.isRunnable() && (best == null || client.served < best.served))
+                best = client;
+        }
+        if (best == null)
+            return null;
+        Job job = best.queue.poll();
+        best.running++;
+        best.served += job.pixels;
+        return job;
+    }
+
+    /**
+     * @return returns the fewest pixels served to any other active client, called with lock held
+     */
+    private long minimalServed(Client except) {
+        long min = Long.MAX_VALUE;
+        for (Client client : clients) {
+            if (client != except && (!client.queue.isEmpty() || client.running > 0))
+                min = Math.min(min, client.served);
+        }
+        return min;
+    }
+
+    /**
+     * Model of one tile waiting in queue of client
+     */
+    private static final class Job {
+
+        private final Client client;
+        private final Batch batch;
+        private final Runnable work;
+        private final long pixels;
+        private final double distance;
+
+        private Job(Client client, Batch batch, Runnable work, long pixels, double distance) {
+            this.client = client;
+            this.batch = batch;
+            this.work = work;
+            this.pixels = pixels;
+            this.distance = distance;
+        }
+    }
+
+    /**
+     * Tiles of newer requests first, then tiles closer to the centre of viewport
+     */
+    private static final Comparator<Job> PRIORITY = Comparator
+            .<Job>comparingLong(job -> -job.batch.sequence)
+            .thenComparingDouble(job -> job.distance);
+
+    /**
+     * Tiles of one request which are not finished yet, guarded by lock of scheduler
+     */
+    private final class Batch {
+
+        private final long sequence;
+        private final RenderTicket ticket;
+        private final Condition done = lock.newCondition();
+        private int remaining;
+        private Throwable failure;
+
+        private Batch(long sequence, RenderTicket ticket, int remaining) {
+            this.sequence = sequence;
+            this.ticket = ticket;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Records finished or dropped tile, the first failure supersedes the request
+         */
+        private void finished(Throwable error) {
+            if (error != null && failure == null) {
+                failure = error;
+                ticket.supersede();
+            }
+            if (--remaining == 0)
+                done.signalAll();
+        }
+    }
+
+    /**
+     * Client of scheduler, one per render engine
+     */
+    final class Client {
+
+        private final int parallelism;
+        private final PriorityQueue<Job> queue = new PriorityQueue<>(PRIORITY);
+
+        /**
+         * Number of running tiles and pixels served so far, guarded by lock of scheduler
+         */
+        private int running;
+        private long served;
+
+        private Client(int parallelism) {
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Renders given tiles of one request on threads of scheduler and blocks until all of
+         * them are rendered or request is cancelled. If waiting thread is interrupted, request
+         * is cancelled, running tiles are still awaited and interrupt flag is restored.
+         *
+         * @param work tiles to render
+         * @param pixels number of pixels of every tile, null if all tiles cost the same
+         * @param distances distances of tiles from centre of viewport, null if order does not matter
+         * @param ticket cancellation state of request
+         * @throws RuntimeException the first exception thrown by a tile, as is if it is unchecked
+         * @throws Error the first error thrown by a tile
+         */
+        void invoke(List<? extends Runnable> work, long[] pixels, double[] distances, RenderTicket ticket) {
+            if (work.isEmpty())
+                return;
+            Batch batch;
+            lock.lock();
+            try {
+                if (shutdown || !clients.contains(this))
+                    throw new IllegalStateException("Scheduler client is closed");
+                batch = new Batch(++sequence, ticket, work.size());
+                if (queue.isEmpty() && running == 0) {
+                    long min = minimalServed(this);
+                    if (min != Long.MAX_VALUE)
+                        served = Math.max(served, min);
+                }
+                for (int i = 0; i < work.size(); i++)
+                    queue.add(new Job(this, batch, work.get(i), pixels == null ? 1 : pixels[i],
+                            distances == null ? 0 : distances[i]));
+                available.signalAll();
+
+                boolean interrupted = false;
+                while (batch.remaining > 0) {
+                    try {
+                        batch.done.await(CANCEL_CHECK, TimeUnit.MILLISECONDS);
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                        ticket.supersede();
+                    }
+                    if (ticket.isCancelled())
+                        drop();
+                }
+                if (interrupted)
+                    Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+
+            Throwable e = batch.failure;
+            if (e == null)
+                return;
+            if (e instanceof RuntimeException)
+                throw (RuntimeException) e;
+            if (e instanceof Error)
+                throw (Error) e;
+            throw new IllegalStateException("Render job failed", e);
+        }
+
+        /**
+         * Removes client from scheduler, its queued tiles are dropped and their requests cancelled
+         */
+        void close() {
+            lock.lock();
+            try {
+                clients.remove(this);
+                for (Job job : queue)
+                    job.batch.ticket.supersede();
+                drop();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Drops queued tiles of cancelled requests, called with lock held
+         */
+        private void drop() {
+            Iterator<Job> it = queue.iterator();
+            while (it.hasNext()) {
+                Job job = it.next();
+                if (job.batch.ticket.isCancelled()) {
+                    it.remove();
+                    job.batch.finished(null);
+                }
+            }
+        }
+
+        /**
+         * Drops tiles of cancelled requests from head of queue, called with lock held
+         */
+        private void dropCancelledHead() {
+            Job job;
+            while ((job = queue.peek()) != null && job.batch.ticket.isCancelled()) {
+                queue.poll();
+                job.batch.finished(null);
+            }
+        }
+
+        /**
+         * @return returns true if client has a tile which can run now, called with lock held
+         */
+        private boolean isRunnable() {
+            return running < parallelism && !queue.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Structured scope of one render request. Every forked job runs in its own thread and
+ * {@link #join()} returns only when all started jobs finished, so no job of a request
+ * outlives the request. The first exception of a job cancels the request, jobs which
+ * did not start yet are skipped, and the exception is rethrown by {@link #join()}. Failure
+ * to create or start a thread of a job is handled the same way.
+ *
+ * Jobs are started by {@link #join()}, at most parallelism of them at once, and every
+ * finished job starts the next one. Starting all jobs at once would put threads of one
+ * large request in front of all other requests in the queue of the scheduler, while
+ * starting them one after another lets jobs of concurrent requests interleave.
+ *
+ * Every running job takes one of parallelism worker slots and its thread is named after
+ * the slot, so per-thread measurements of a request have at most parallelism entries
+ * and not one entry per job.
+ */
+final class RenderScope {
+
+    /**
+     * Prefix of names of threads of jobs, followed by worker slot
+     */
+    static final String THREAD_NAME = "render-virtual-";
+
+    private final ThreadFactory factory;
+    private final int parallelism;
+    private final RenderTicket ticket;
+    private final List<Runnable> jobs = new ArrayList<>();
+
+    /**
+     * Worker slots taken by running jobs, guarded by this
+     */
+    private final boolean[] slots;
+
+    /**
+     * Index of next job to start, number of running jobs and the first failure, guarded by this
+     */
+    private int next;
+    private int running;
+    private Throwable failure;
+
+    /**
+     * Constructing new scope
+     *
+     * @param factory factory of threads of jobs
+     * @param parallelism maximal number of jobs running at once
+     * @param ticket cancellation state of request
+     */
+    RenderScope(ThreadFactory factory, int parallelism, RenderTicket ticket) {
+        this.factory = factory;
+        this.parallelism = parallelism;
+        this.ticket = ticket;
+        this.slots = new boolean[parallelism];
+    }
+
+    /**
+     * Adds job to scope, job is started by {@link #join()}
+     *
+     * @param job job to run
+     */
+    void fork(Runnable job) {
+        jobs.add(job);
+    }
+
+    /**
+     * Runs jobs and waits until all started jobs finish. If waiting thread is interrupted,
+     * request is cancelled, running jobs are still awaited and interrupt flag is restored.
+     *
+     * @throws RuntimeException the first exception thrown by a job, as is if it is unchecked
+     * @throws Error the first error thrown by a job
+     */
+    void join() {
+        boolean interrupted = false;
+        synchronized (this) {
+            while (running < parallelism && startNext()) ;
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    ticket.supersede();
+                }
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+
+        Throwable e;
+        synchronized (this) {
+            e = failure;
+        }
+        if (e == null)
+            return;
+        if (e instanceof RuntimeException)
+            throw (RuntimeException) e;
+        if (e instanceof Error)
+            throw (Error) e;
+        throw new IllegalStateException("Render job failed", e);
+    }
+
+    /**
+     * Starts next job, called with lock held. Job is counted as running only after its
+     * thread started. If thread can not be created or started, the error fails the scope
+     * like an exception of a job, so {@link #join()} still waits only for started jobs.
+     *
+     * @return returns false if there is no job to start
+     */
+    private boolean startNext() {
+        if (next == jobs.size() || failure != null || ticket.isCancelled())
+            return false;
+        Runnable job = jobs.get(next++);
+        int slot = 0;
+        while (slots[slot])
+            slot++;
+        int worker = slot;
+        try {
+            Thread thread = factory.newThread(() -> run(job, worker));
+            if (thread == null)
+                throw new IllegalStateException("Thread factory rejected render job");
+            thread.setName(THREAD_NAME + worker);
+            thread.start();
+        } catch (Throwable e) {
+            failure = e;
+            ticket.supersede();
+            return false;
+        }
+        slots[worker] = true;
+        running++;
+        return true;
+    }
+
+    private void run(Runnable job, int slot) {
+        Throwable error = null;
+        try {
+            job.run();
+        } catch (Throwable e) {
+            error = e;
+        }
+        synchronized (this) {
+            running--;
+            slots[slot] = false;
+            if (error != null && failure == null) {
+                failure = error;
+                ticket.supersede();
+            }
+            startNext();
+            if (running == 0)
+                notifyAll();
+        }
+    }
+}
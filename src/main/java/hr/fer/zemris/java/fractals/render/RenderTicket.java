@@ -0,0 +1,86 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Cancellation state of one render request. Request is cancelled when caller sets its
+ * cancel flag or when producer supersedes it by a newer request. Workers poll the ticket
+ * before every pixel, or every group of pixels iterated together in vector lanes, so
+ * abandoned requests stop within time of one pixel calculation.
+ * Ticket also carries optional collector of metrics of the request.
+ */
+public final class RenderTicket {
+
+    /**
+     * Number of request this ticket belongs to
+     */
+    private final long requestNo;
+
+    /**
+     * Cancel flag given by caller
+     */
+    private final AtomicBoolean cancel;
+
+    /**
+     * Set when newer request replaced this one
+     */
+    private volatile boolean superseded;
+
+    /**
+     * Collector of metrics of request, null if request is not measured
+     */
+    private final RequestMetrics metrics;
+
+    /**
+     * Constructing new ticket
+     *
+     * @param requestNo number of request
+     * @param cancel cancel flag given by caller
+     */
+    public RenderTicket(long requestNo, AtomicBoolean cancel) {
+        this(requestNo, cancel, null);
+    }
+
+    /**
+     * Constructing new ticket of measured request
+     *
+     * @param requestNo number of request
+     * @param cancel cancel flag given by caller
+     * @param metrics collector of metrics of request, null if request is not measured
+     */
+    public RenderTicket(long requestNo, AtomicBoolean cancel, RequestMetrics metrics) {
+        this.requestNo = requestNo;
+        this.cancel = cancel;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return returns number of request this ticket belongs to
+     */
+    public long getRequestNo() {
+        return requestNo;
+    }
+
+    /**
+     * @return returns collector of metrics of request, or null if request is not measured
+     */
+    public RequestMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return returns true if request was cancelled by caller or superseded by newer request
+     */
+    public boolean isCancelled() {
+        return superseded || cancel.get();
+    }
+
+    /**
+     * Marks request as replaced by newer request
+     */
+    public void supersede() {
+        superseded = true;
+    }
+}
@@ -0,0 +1,260 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.io.Palette;
+import hr.fer.zemris.java.fractals.io.PngWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Renders frames of a {@link ZoomPath} through a pipeline of three stages: frames are
+ * calculated on {@link RenderEngine} by the calling thread, encoded by an encoder thread
+ * and written by a writer thread. Stages are connected by bounded queues, so a slow
+ * stage blocks the previous one and at most a few frames are kept in memory, while
+ * calculation of the next frame overlaps with encoding and writing of previous ones.
+ *
+ * Frames are assembled from tiles of {@link CachingRenderer}. Consecutive frames of a
+ * zoom differ only slightly, so on the same zoom level most of their lattice tiles are
+ * the same and only tiles newly exposed at the edges or of a finer level are calculated.
+ * Frames too deep for plain double are rendered by {@link PerturbationRenderer} without
+ * reuse.
+ */
+public class SequenceRenderer {
+
+    /**
+     * Default number of frames waiting between two stages
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 4;
+
+    private final RenderEngine engine;
+    private final CachingRenderer caching;
+    private final int width;
+    private final int height;
+    private final int queueCapacity;
+
+    /**
+     * Constructing new renderer with default queue capacity
+     *
+     * @param engine engine on which frames are calculated
+     * @param cache cache of tiles shared by frames
+     * @param width width of frames
+     * @param height height of frames
+     */
+    public SequenceRenderer(RenderEngine engine, TileCache cache, int width, int height) {
+        this(engine, cache, width, height, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * Constructing new renderer
+     *
+     * @param engine engine on which frames are calculated
+     * @param cache cache of tiles shared by frames
+     * @param width width of frames
+     * @param height height of frames
+     * @param queueCapacity number of frames waiting between two stages
+     * @throws IllegalArgumentException if frames are smaller than 2x2 or queue capacity is not positive
+     */
+    public SequenceRenderer(RenderEngine engine, TileCache cache, int width, int height, int queueCapacity) {
+        if (width < 2 || height < 2)
+            throw new IllegalArgumentException("Frame must be at least 2x2, was " + width + "x" + height);
+        if (queueCapacity < 1)
+            throw new IllegalArgumentException("Queue capacity must be positive, was " + queueCapacity);
+        this.engine = engine;
+        this.caching = new CachingRenderer(engine, cache);
+        this.width = width;
+        this.height = height;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * @return returns cache of tiles shared by frames
+     */
+    public TileCache getCache() {
+        return caching.getCache();
+    }
+
+    /**
+     * Renders all frames of path and blocks until they are written, cancelled, or one of
+     * stages fails. After cancellation or failure frames already calculated are dropped.
+     *
+     * @param renderer backend used for calculation of missing tiles
+     * @param kernel kernel whose roots and parameters are used
+     * @param path path of animation
+     * @param encoder encoder of frames
+     * @param writer writer of encoded frames
+     * @param cancel cancel flag, checked for every pixel
+     * @return returns number of written frames
+     * @throws IOException if encoding or writing of a frame fails
+     * @throws InterruptedException if calling thread is interrupted
+     */
+    public int render(TileRenderer renderer, NewtonKernel kernel, ZoomPath path, FrameEncoder encoder,
+                      FrameWriter writer, AtomicBoolean cancel) throws IOException, InterruptedException {
+        BlockingQueue<Frame> computed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Frame> encoded = new ArrayBlockingQueue<>(queueCapacity);
+        ShortBufferPool buffers = new ShortBufferPool(queueCapacity + 2);
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        int[] written = new int[1];
+
+        Thread encoderThread = new Thread(() -> {
+            try {
+                Frame frame;
+                while ((frame = computed.take()) != Frame.END) {
+                    if (failure.get() == null && !cancel.get()) {
+                        try {
+                            encoded.put(new Frame(frame.index, null, encoder.encode(frame.data, width, height)));
+                        } catch (IOException | RuntimeException e) {
+                            failure.compareAndSet(null, e);
+                        }
+                    }
+                    buffers.release(frame.data);
+                }
+                encoded.put(Frame.END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "frame-encoder");
+
+        Thread writerThread = new Thread(() -> {
+            try {
+                Frame frame;
+                while ((frame = encoded.take()) != Frame.END) {
+                    if (failure.get() != null || cancel.get()) continue;
+                    try {
+                        writer.write(frame.index, frame.encoded);
+                        written[0]++;
+                    } catch (IOException | RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "frame-writer");
+
+        encoderThread.start();
+        writerThread.start();
+        boolean finished = false;
+        try {
+            for (int i = 0; i < path.frameCount() && failure.get() == null && !cancel.get(); i++) {
+                short[] data = buffers.acquire(width * height);
+                double[] v = path.viewport(i, width, height);
+                renderFrame(renderer, kernel, v[0], v[1], v[2], v[3], data, new RenderTicket(i, cancel));
+                if (cancel.get()) break;
+                computed.put(new Frame(i, data, null));
+            }
+            computed.put(Frame.END);
+            finished = true;
+        } finally {
+            if (!finished) {
+                encoderThread.interrupt();
+                writerThread.interrupt();
+            }
+            encoderThread.join();
+            writerThread.join();
+        }
+
+        Exception e = failure.get();
+        if (e instanceof IOException)
+            throw (IOException) e;
+        if (e != null)
+            throw (RuntimeException) e;
+        return written[0];
+    }
+
+    private void renderFrame(TileRenderer renderer, NewtonKernel kernel, double reMin, double reMax,
+                             double imMin, double imMax, short[] data, RenderTicket ticket) {
+        double spacing = Math.min((reMax - reMin) / (width - 1), (imMax - imMin) / (height - 1));
+        if (PrecisionMode.forViewport((reMin + reMax) / 2, (imMin + imMax) / 2, spacing) != PrecisionMode.DOUBLE) {
+            PerturbationRenderer deep = PerturbationRenderer.create(kernel, reMin, reMax, imMin, imMax, width, height);
+            engine.render(deep, reMin, reMax, imMin, imMax, width, height, 1, data, ticket);
+        } else {
+            caching.render(renderer, kernel, reMin, reMax, imMin, imMax, width, height, data, ticket);
+        }
+    }
+
+    /**
+     * Creates encoder of frames into indexed color PNG images
+     *
+     * @param palette palette of images
+     * @return returns PNG encoder
+     */
+    public static FrameEncoder pngEncoder(Palette palette) {
+        return (data, width, height) -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(width * height / 4);
+            PngWriter png = new PngWriter(out, width, height, palette);
+            png.writeRows(data, height);
+            png.close();
+            return out.toByteArray();
+        };
+    }
+
+    /**
+     * Creates writer which writes every frame into its own file
+     *
+     * @param directory directory of files
+     * @param pattern pattern of file names with frame index, for example {@code frame-%05d.png}
+     * @return returns writer into files
+     */
+    public static FrameWriter fileWriter(Path directory, String pattern) {
+        return (index, encoded) -> Files.write(directory.resolve(String.format(pattern, index)), encoded);
+    }
+
+    /**
+     * Encoder of calculated frames, called from one thread
+     */
+    public interface FrameEncoder {
+
+        /**
+         * Encodes one frame
+         *
+         * @param data root indexes of frame, row by row; must not be kept after return
+         * @param width width of frame
+         * @param height height of frame
+         * @return returns encoded frame
+         * @throws IOException if encoding fails
+         */
+        byte[] encode(short[] data, int width, int height) throws IOException;
+    }
+
+    /**
+     * Writer of encoded frames, called from one thread with frames in order
+     */
+    public interface FrameWriter {
+
+        /**
+         * Writes one frame
+         *
+         * @param index index of frame
+         * @param encoded encoded frame
+         * @throws IOException if writing fails
+         */
+        void write(int index, byte[] encoded) throws IOException;
+    }
+
+    /**
+     * Frame passed between stages
+     */
+    private static final class Frame {
+
+        /**
+         * Marks end of frames
+         */
+        static final Frame END = new Frame(-1, null, null);
+
+        final int index;
+        final short[] data;
+        final byte[] encoded;
+
+        Frame(int index, short[] data, byte[] encoded) {
+            this.index = index;
+            this.data = data;
+            this.encoded = encoded;
+        }
+    }
+}
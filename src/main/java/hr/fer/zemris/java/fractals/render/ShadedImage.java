@@ -0,0 +1,123 @@
+package hr.fer.zemris.java.fractals.render;
+
+/**
+ * Image with root index and smooth iteration count of every pixel, kept in two
+ * parallel primitive buffers in row-major order starting from the top row.
+ * Root indexes are the same as in ordinary rendering. Number of iterations of a pixel
+ * is the integer part of its smooth value plus one, see
+ * {@link NewtonKernel#iterate(double, double, float[], int)}.
+ */
+public final class ShadedImage {
+
+    private final int width;
+    private final int height;
+    private final short[] indexes;
+    private final float[] smooth;
+
+    /**
+     * Constructing new image with allocated buffers
+     *
+     * @param width width of image
+     * @param height height of image
+     */
+    public ShadedImage(int width, int height) {
+        this(width, height, new short[width * height], new float[width * height]);
+    }
+
+    /**
+     * Constructing new image over given buffers
+     *
+     * @param width width of image
+     * @param height height of image
+     * @param indexes buffer of root indexes
+     * @param smooth buffer of smooth iteration counts
+     * @throws IllegalArgumentException if buffers are smaller than image
+     */
+    public ShadedImage(int width, int height, short[] indexes, float[] smooth) {
+        if (indexes.length < width * height || smooth.length < width * height)
+            throw new IllegalArgumentException("Buffers are smaller than image " + width + "x" + height);
+        this.width = width;
+        this.height = height;
+        this.indexes = indexes;
+        this.smooth = smooth;
+    }
+
+    /**
+     * @return returns width of image
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return returns height of image
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return returns buffer of root indexes (starting from 1, 0 for pixels which did not converge)
+     */
+    public short[] getIndexes() {
+        return indexes;
+    }
+
+    /**
+     * @return returns buffer of smooth iteration counts
+     */
+    public float[] getSmooth() {
+        return smooth;
+    }
+
+    /**
+     * @param pixel position of pixel, y * width + x
+     * @return returns number of iterations of pixel
+     */
+    public int iterationsAt(int pixel) {
+        return (int) smooth[pixel] + 1;
+    }
+
+    /**
+     * Creates renderer which writes root indexes into buffer given by render engine and
+     * smooth iteration counts into this image. Renderer can be used only for viewports of
+     * the same size as this image.
+     *
+     * @param kernel kernel used for calculation
+     * @return returns renderer of this image
+     */
+    public TileRenderer rendererFor(NewtonKernel kernel) {
+        return rendererFor(kernel, 0, height);
+    }
+
+    /**
+     * Creates renderer which writes root indexes into buffer given by render engine and
+     * smooth iteration counts into this image, which holds a band of rows of a larger
+     * image. Renderer can be used only for viewports of the larger image and only for
+     * tiles of the band.
+     *
+     * @param kernel kernel used for calculation
+     * @param firstRow row of larger image which is the first row of this image
+     * @param imageHeight height of larger image
+     * @return returns renderer of band
+     */
+    public TileRenderer rendererFor(NewtonKernel kernel, int firstRow, int imageHeight) {
+        return (reMin, reMax, imMin, imMax, width, height, xMin, xMax, yMin, yMax, data, offset, stride, ticket) -> {
+            if (width != this.width || height != imageHeight)
+                throw new IllegalArgumentException("Image is " + this.width + "x" + imageHeight
+                        + ", viewport is " + width + "x" + height);
+            if (yMin < firstRow || yMax >= firstRow + this.height)
+                throw new IllegalArgumentException("Rows " + yMin + " to " + yMax + " are outside of band");
+            for (int y = yMin; y < yMax + 1; y++) {
+                int index = offset + (y - yMin) * stride;
+                int position = (y - firstRow) * width + xMin;
+                double cIm = (height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin;
+                for (int x = xMin; x < xMax + 1; x++) {
+                    if (ticket.isCancelled()) return;
+                    double cRe = x / (width - 1.0) * (reMax - reMin) + reMin;
+                    data[index++] = (short) NewtonKernel.indexOf(kernel.iterate(cRe, cIm, smooth, position++));
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,67 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+
+/**
+ * Small pool of image buffers. Buffers of abandoned requests are returned to the pool
+ * and reused by following requests of the same size, which is the common case while
+ * user scrolls or zooms. Buffers taken from pool are not cleared.
+ */
+public class ShortBufferPool {
+
+    /**
+     * Default maximal number of buffers kept in pool
+     */
+    public static final int DEFAULT_CAPACITY = 4;
+
+    private final Deque<short[]> buffers = new ArrayDeque<>();
+    private final int capacity;
+
+    /**
+     * Constructing new pool with default capacity
+     */
+    public ShortBufferPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructing new pool
+     *
+     * @param capacity maximal number of buffers kept in pool
+     */
+    public ShortBufferPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns buffer of given length, pooled one if there is such buffer in the pool
+     *
+     * @param length length of buffer
+     * @return returns buffer of given length
+     */
+    public synchronized short[] acquire(int length) {
+        Iterator<short[]> it = buffers.iterator();
+        while (it.hasNext()) {
+            short[] buffer = it.next();
+            if (buffer.length == length) {
+                it.remove();
+                return buffer;
+            }
+        }
+        return new short[length];
+    }
+
+    /**
+     * Returns buffer to the pool. If pool is full, the oldest buffer is dropped.
+     *
+     * @param buffer buffer that is no longer used
+     */
+    public synchronized void release(short[] buffer) {
+        if (capacity < 1) return;
+        if (buffers.size() == capacity)
+            buffers.removeLast();
+        buffers.addFirst(buffer);
+    }
+}
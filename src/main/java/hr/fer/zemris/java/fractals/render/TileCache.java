@@ -0,0 +1,197 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Memory bounded cache of rendered tiles. Tiles are evicted in least recently used
+ * order when total size of cached tiles exceeds the memory budget. Numbers of hits,
+ * misses and evictions are counted so the budget can be sized.
+ *
+ * Cache is thread safe and can be shared by several producers, tiles of different
+ * renderers, root sets or parameters have different keys.
+ */
+public class TileCache {
+
+    /**
+     * Approximate memory taken by one entry beside its data (key, array header, map entry)
+     */
+    private static final int ENTRY_OVERHEAD = 128;
+
+    private final LinkedHashMap<Key, short[]> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final long maxBytes;
+    private long bytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * Constructing new cache
+     *
+     * @param maxBytes memory budget of cache in bytes
+     * @throws IllegalArgumentException if maxBytes is not positive
+     */
+    public TileCache(long maxBytes) {
+        if (maxBytes < 1)
+            throw new IllegalArgumentException("Memory budget must be positive, was " + maxBytes);
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns cached tile and marks it as most recently used
+     *
+     * @param key key of tile
+     * @return returns data of tile, or null if tile is not cached; data must not be modified
+     */
+    public synchronized short[] get(Key key) {
+        short[] tile = tiles.get(key);
+        if (tile == null)
+            misses++;
+        else
+            hits++;
+        return tile;
+    }
+
+    /**
+     * Puts tile into cache and evicts least recently used tiles if cache is over budget.
+     * Data must not be modified after it is put into cache.
+     *
+     * @param key key of tile
+     * @param tile data of tile
+     */
+    public synchronized void put(Key key, short[] tile) {
+        short[] old = tiles.put(key, tile);
+        if (old != null)
+            bytes -= sizeOf(old);
+        bytes += sizeOf(tile);
+
+        Iterator<Map.Entry<Key, short[]>> it = tiles.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            bytes -= sizeOf(it.next().getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes all tiles from cache, counters are kept
+     */
+    public synchronized void clear() {
+        tiles.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return returns number of cached tiles
+     */
+    public synchronized int size() {
+        return tiles.size();
+    }
+
+    /**
+     * @return returns approximate memory taken by cached tiles in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return returns memory budget in bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * @return returns number of lookups which found the tile
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return returns number of lookups which did not find the tile
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return returns number of tiles evicted because of memory budget
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("Tile cache : %d tiles, %d of %d kB, hits %d, misses %d, evictions %d",
+                tiles.size(), bytes / 1024, maxBytes / 1024, hits, misses, evictions);
+    }
+
+    private static long sizeOf(short[] tile) {
+        return 2L * tile.length + ENTRY_OVERHEAD;
+    }
+
+    /**
+     * Key of one tile. Tile is identified by renderer which calculates it, kernel of the
+     * renderer (roots and parameters), zoom level and position of tile on that level.
+     * Renderers are compared by equals, so equal renderers of different producers share
+     * tiles while, for example, adaptive and brute-force tiles are kept apart.
+     */
+    public static final class Key {
+
+        private final TileRenderer renderer;
+        private final NewtonKernel kernel;
+        private final int level;
+        private final long tileX;
+        private final long tileY;
+
+        /**
+         * Constructing new key
+         *
+         * @param renderer renderer which calculates the tile
+         * @param kernel kernel of renderer
+         * @param level zoom level
+         * @param tileX horizontal position of tile on its level
+         * @param tileY vertical position of tile on its level
+         */
+        public Key(TileRenderer renderer, NewtonKernel kernel, int level, long tileX, long tileY) {
+            this.renderer = Objects.requireNonNull(renderer);
+            this.kernel = Objects.requireNonNull(kernel);
+            this.level = level;
+            this.tileX = tileX;
+            this.tileY = tileY;
+        }
+
+        /**
+         * @return returns horizontal position of tile on its level
+         */
+        long tileX() {
+            return tileX;
+        }
+
+        /**
+         * @return returns vertical position of tile on its level
+         */
+        long tileY() {
+            return tileY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return level == other.level && tileX == other.tileX && tileY == other.tileY
+                    && kernel.equals(other.kernel) && renderer.equals(other.renderer);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(renderer, kernel, level, tileX, tileY);
+        }
+    }
+}
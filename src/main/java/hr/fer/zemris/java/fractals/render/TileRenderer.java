@@ -0,0 +1,31 @@
+package hr.fer.zemris.java.fractals.render;
+
+/**
+ * Backend that calculates rectangular parts of image
+ */
+public interface TileRenderer {
+
+    /**
+     * Renders rectangle [xMin, xMax] x [yMin, yMax] (inclusive) of given viewport into data.
+     * Pixel (x, y) is written to {@code data[offset + (y - yMin) * stride + (x - xMin)]}.
+     * Rendering stops soon after ticket is cancelled.
+     *
+     * @param reMin minimal real value of viewport
+     * @param reMax maximal real value of viewport
+     * @param imMin minimal imaginary value of viewport
+     * @param imMax maximal imaginary value of viewport
+     * @param width width of image
+     * @param height height of image
+     * @param xMin first column to render
+     * @param xMax last column to render
+     * @param yMin first row to render
+     * @param yMax last row to render
+     * @param data buffer in which results are written
+     * @param offset index in data of pixel (xMin, yMin)
+     * @param stride distance in data between two successive rows
+     * @param ticket cancellation state of request
+     */
+    void renderTile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                    int xMin, int xMax, int yMin, int yMax, short[] data, int offset, int stride,
+                    RenderTicket ticket);
+}
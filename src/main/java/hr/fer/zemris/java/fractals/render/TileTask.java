@@ -0,0 +1,130 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Model of calculation of one rectangular part of image. Task splits itself in two
+ * halves along longer side while it has more than leafPixels pixels.
+ * If request is measured, queue wait and rendering time of every leaf are recorded.
+ */
+class TileTask extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final TileRenderer renderer;
+    private final double reMin;
+    private final double reMax;
+    private final double imMin;
+    private final double imMax;
+    private final int width;
+    private final int height;
+    private final int xMin;
+    private final int xMax;
+    private final int yMin;
+    private final int yMax;
+    private final int leafPixels;
+    private final short[] data;
+    private final RenderTicket ticket;
+
+    /**
+     * Time of creation of task, used for queue wait of measured requests
+     */
+    private final long created;
+
+    TileTask(TileRenderer renderer, double reMin, double reMax, double imMin, double imMax,
+             int width, int height, int xMin, int xMax, int yMin, int yMax,
+             int leafPixels, short[] data, RenderTicket ticket) {
+        this.renderer = renderer;
+        this.reMin = reMin;
+        this.reMax = reMax;
+        this.imMin = imMin;
+        this.imMax = imMax;
+        this.width = width;
+        this.height = height;
+        this.xMin = xMin;
+        this.xMax = xMax;
+        this.yMin = yMin;
+        this.yMax = yMax;
+        this.leafPixels = leafPixels;
+        this.data = data;
+        this.ticket = ticket;
+        this.created = ticket.getMetrics() == null ? 0 : System.nanoTime();
+    }
+
+    @Override
+    protected void compute() {
+        if (ticket.isCancelled()) return;
+
+        int tileWidth = xMax - xMin + 1;
+        int tileHeight = yMax - yMin + 1;
+        if ((long) tileWidth * tileHeight <= leafPixels) {
+            renderLeaf();
+            return;
+        }
+
+        if (tileWidth > tileHeight) {
+            int xMid = xMin + tileWidth / 2;
+            invokeAll(part(xMin, xMid - 1, yMin, yMax), part(xMid, xMax, yMin, yMax));
+        } else {
+            int yMid = yMin + tileHeight / 2;
+            invokeAll(part(xMin, xMax, yMin, yMid - 1), part(xMin, xMax, yMid, yMax));
+        }
+    }
+
+    /**
+     * Renders this task as one leaf
+     */
+    void renderLeaf() {
+        RequestMetrics metrics = ticket.getMetrics();
+        long start = metrics == null ? 0 : System.nanoTime();
+        renderer.renderTile(reMin, reMax, imMin, imMax, width, height, xMin, xMax, yMin, yMax,
+                data, width * yMin + xMin, width, ticket);
+        if (metrics != null)
+            metrics.recordTile(start - created, System.nanoTime() - start);
+    }
+
+    /**
+     * @return returns number of pixels of this task
+     */
+    long pixels() {
+        return (long) (xMax - xMin + 1) * (yMax - yMin + 1);
+    }
+
+    /**
+     * @return returns squared distance in pixels of centre of this task from centre of image
+     */
+    double distanceFromCentre() {
+        double dx = (xMin + xMax - (width - 1)) / 2.0;
+        double dy = (yMin + yMax - (height - 1)) / 2.0;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Splits this task the same way as {@link #compute()} does, without running it
+     *
+     * @param leaves list into which leaves are added
+     */
+    void split(List<TileTask> leaves) {
+        int tileWidth = xMax - xMin + 1;
+        int tileHeight = yMax - yMin + 1;
+        if ((long) tileWidth * tileHeight <= leafPixels) {
+            leaves.add(this);
+        } else if (tileWidth > tileHeight) {
+            int xMid = xMin + tileWidth / 2;
+            part(xMin, xMid - 1, yMin, yMax).split(leaves);
+            part(xMid, xMax, yMin, yMax).split(leaves);
+        } else {
+            int yMid = yMin + tileHeight / 2;
+            part(xMin, xMax, yMin, yMid - 1).split(leaves);
+            part(xMin, xMax, yMid, yMax).split(leaves);
+        }
+    }
+
+    private TileTask part(int xMin, int xMax, int yMin, int yMax) {
+        return new TileTask(renderer, reMin, reMax, imMin, imMax, width, height,
+                xMin, xMax, yMin, yMax, leafPixels, data, ticket);
+    }
+}
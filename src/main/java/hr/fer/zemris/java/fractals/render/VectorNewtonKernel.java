@@ -0,0 +1,164 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Newton-Raphson kernel that iterates several pixels of a row at once using
+ * lanes of {@link DoubleVector}. Lanes that converged or reached a root are masked
+ * out and the group is finished when no lane is active. Every lane performs the same
+ * operations as {@link NewtonKernel#rootIndexFor(double, double)} with steps computed from
+ * roots ({@link hr.fer.zemris.math.NewtonStep#ROOT_PRODUCT}), so results are identical to
+ * the scalar kernel with that step, and iteration counts of measured requests are the same
+ * as the scalar kernel records.
+ *
+ * This class is compiled only with profile vector and needs
+ * {@code --add-modules jdk.incubator.vector} at runtime. It should be created through
+ * {@link Backend#create(NewtonKernel)} which falls back to scalar kernel when module is
+ * not available and rejects kernels with other steps.
+ */
+public final class VectorNewtonKernel implements TileRenderer {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private final NewtonKernel kernel;
+    private final double[] rootRe;
+    private final double[] rootIm;
+    private final int maxIterations;
+    private final double convergenceThreshold;
+    private final double rootThreshold;
+
+    /**
+     * Constructing new vector kernel with roots and parameters of given scalar kernel
+     *
+     * @param kernel scalar kernel, used also for pixels that do not fill whole vector
+     */
+    public VectorNewtonKernel(NewtonKernel kernel) {
+        Backend.VECTOR.checkStep(kernel.getStep());
+        this.kernel = kernel;
+        this.rootRe = kernel.rootRe();
+        this.rootIm = kernel.rootIm();
+        this.maxIterations = kernel.getMaxIterations();
+        this.convergenceThreshold = kernel.convergenceThreshold();
+        this.rootThreshold = kernel.rootThreshold();
+    }
+
+    /**
+     * Vector kernels are equal if their scalar kernels are equal, so they produce the
+     * same image for every viewport.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VectorNewtonKernel)) return false;
+        return kernel.equals(((VectorNewtonKernel) o).kernel);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * kernel.hashCode() + 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * Iteration counts are recorded if request is measured.
+     */
+    @Override
+    public void renderTile(double reMin, double reMax, double imMin, double imMax, int width, int height,
+                           int xMin, int xMax, int yMin, int yMax, short[] data, int offset, int stride,
+                           RenderTicket ticket) {
+        RequestMetrics metrics = ticket.getMetrics();
+        RequestMetrics.PixelCounter counter = metrics == null ? null : new RequestMetrics.PixelCounter();
+        int lanes = SPECIES.length();
+        double[] startRe = new double[lanes];
+        double[] index = new double[lanes];
+        double[] iterations = new double[lanes];
+
+        for (int y = yMin; y < yMax + 1; y++) {
+            int row = offset + (y - yMin) * stride - xMin;
+            double cIm = (height - 1.0 - y) / (height - 1) * (imMax - imMin) + imMin;
+            int x = xMin;
+            for (; x + lanes <= xMax + 1; x += lanes) {
+                if (ticket.isCancelled()) return;
+                for (int i = 0; i < lanes; i++)
+                    startRe[i] = (x + i) / (width - 1.0) * (reMax - reMin) + reMin;
+                iterate(startRe, cIm, index, iterations);
+                for (int i = 0; i < lanes; i++) {
+                    data[row + x + i] = (short) (index[i] + 1);
+                    if (counter != null)
+                        counter.record((int) index[i] + 1, (int) iterations[i]);
+                }
+            }
+            for (; x < xMax + 1; x++) {
+                if (ticket.isCancelled()) return;
+                double cRe = x / (width - 1.0) * (reMax - reMin) + reMin;
+                long result = kernel.iterate(cRe, cIm);
+                data[row + x] = (short) NewtonKernel.indexOf(result);
+                if (counter != null)
+                    counter.record(NewtonKernel.indexOf(result), NewtonKernel.iterationsOf(result));
+            }
+        }
+        if (counter != null)
+            metrics.add(counter);
+    }
+
+    /**
+     * Iterates one group of pixels from the same row and classifies them
+     *
+     * @param startRe real parts of starting points
+     * @param startIm imaginary part of starting points
+     * @param index array into which indexes of closest roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written
+     */
+    private void iterate(double[] startRe, double startIm, double[] index, double[] iterations) {
+        DoubleVector zRe = DoubleVector.fromArray(SPECIES, startRe, 0);
+        DoubleVector zIm = DoubleVector.broadcast(SPECIES, startIm);
+        VectorMask<Double> active = SPECIES.maskAll(true);
+        DoubleVector count = DoubleVector.zero(SPECIES);
+        int n = rootRe.length;
+
+        for (int iter = 1; active.anyTrue(); iter++) {
+            count = count.add(1, active);
+            DoubleVector sumRe = DoubleVector.zero(SPECIES);
+            DoubleVector sumIm = DoubleVector.zero(SPECIES);
+            VectorMask<Double> atRoot = SPECIES.maskAll(false);
+            for (int i = 0; i < n; i++) {
+                DoubleVector dRe = zRe.sub(rootRe[i]);
+                DoubleVector dIm = zIm.sub(rootIm[i]);
+                DoubleVector d = dRe.mul(dRe).add(dIm.mul(dIm));
+                atRoot = atRoot.or(d.eq(0));
+                sumRe = sumRe.add(dRe.div(d));
+                sumIm = sumIm.sub(dIm.div(d));
+            }
+            VectorMask<Double> step = active.andNot(atRoot);
+
+            DoubleVector sum = sumRe.mul(sumRe).add(sumIm.mul(sumIm));
+            DoubleVector stepRe = sumRe.div(sum);
+            DoubleVector stepIm = sumIm.neg().div(sum);
+            zRe = zRe.sub(stepRe, step);
+            zIm = zIm.sub(stepIm, step);
+            DoubleVector module = stepRe.mul(stepRe).add(stepIm.mul(stepIm)).lanewise(VectorOperators.SQRT);
+
+            active = step.and(module.compare(VectorOperators.GT, convergenceThreshold));
+            if (iter >= maxIterations)
+                break;
+        }
+
+        DoubleVector closest = DoubleVector.broadcast(SPECIES, -1);
+        DoubleVector minDistance = DoubleVector.broadcast(SPECIES, Double.MAX_VALUE);
+        for (int i = 0; i < n; i++) {
+            DoubleVector dRe = zRe.neg().add(rootRe[i]);
+            DoubleVector dIm = zIm.neg().add(rootIm[i]);
+            DoubleVector distance = dRe.mul(dRe).add(dIm.mul(dIm)).lanewise(VectorOperators.SQRT);
+            VectorMask<Double> closer = distance.compare(VectorOperators.LT, rootThreshold)
+                    .and(distance.compare(VectorOperators.LT, minDistance));
+            closest = closest.blend(i, closer);
+            minDistance = minDistance.blend(distance, closer);
+        }
+        closest.intoArray(index, 0);
+        count.intoArray(iterations, 0);
+    }
+}
@@ -0,0 +1,124 @@
+package hr.fer.zemris.java.fractals.render;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Path of a zoom animation given by keyframes. Between two keyframes span of viewport
+ * changes geometrically, so zoom speed looks constant, and center moves in proportion
+ * to the change of span, so the point zoomed into stays at the same place of the image.
+ */
+public final class ZoomPath {
+
+    private final List<Keyframe> keyframes;
+    private final int framesPerSegment;
+
+    /**
+     * Constructing new path
+     *
+     * @param keyframes keyframes of path, in order
+     * @param framesPerSegment number of frames from one keyframe to the next one
+     * @throws IllegalArgumentException if there are no keyframes or framesPerSegment is not positive
+     */
+    public ZoomPath(List<Keyframe> keyframes, int framesPerSegment) {
+        if (keyframes.isEmpty())
+            throw new IllegalArgumentException("At least one keyframe is required");
+        if (framesPerSegment < 1)
+            throw new IllegalArgumentException("Number of frames per segment must be positive, was " + framesPerSegment);
+        this.keyframes = Collections.unmodifiableList(new ArrayList<>(keyframes));
+        this.framesPerSegment = framesPerSegment;
+    }
+
+    /**
+     * @return returns keyframes of path
+     */
+    public List<Keyframe> getKeyframes() {
+        return keyframes;
+    }
+
+    /**
+     * @return returns number of frames of path, the last keyframe included
+     */
+    public int frameCount() {
+        return (keyframes.size() - 1) * framesPerSegment + 1;
+    }
+
+    /**
+     * Calculates viewport of given frame. Span of keyframe is the real width of image,
+     * imaginary height follows from aspect ratio of image so pixels stay square.
+     *
+     * @param frame index of frame
+     * @param width width of image
+     * @param height height of image
+     * @return returns reMin, reMax, imMin and imMax of frame
+     * @throws IllegalArgumentException if frame is not on the path
+     */
+    public double[] viewport(int frame, int width, int height) {
+        if (frame < 0 || frame >= frameCount())
+            throw new IllegalArgumentException("Frame " + frame + " is not in [0, " + frameCount() + ")");
+        int segment = Math.min(frame / framesPerSegment, keyframes.size() - 1);
+        Keyframe from = keyframes.get(segment);
+        double centerRe = from.centerRe;
+        double centerIm = from.centerIm;
+        double span = from.span;
+        if (segment < keyframes.size() - 1) {
+            Keyframe to = keyframes.get(segment + 1);
+            double t = (double) (frame - segment * framesPerSegment) / framesPerSegment;
+            span = from.span * Math.pow(to.span / from.span, t);
+            double move = from.span == to.span ? t : (from.span - span) / (from.span - to.span);
+            centerRe += (to.centerRe - from.centerRe) * move;
+            centerIm += (to.centerIm - from.centerIm) * move;
+        }
+        double halfRe = span / 2;
+        double halfIm = span * (height - 1.0) / (width - 1) / 2;
+        return new double[] {centerRe - halfRe, centerRe + halfRe, centerIm - halfIm, centerIm + halfIm};
+    }
+
+    /**
+     * One keyframe of path
+     */
+    public static final class Keyframe {
+
+        private final double centerRe;
+        private final double centerIm;
+        private final double span;
+
+        /**
+         * Constructing new keyframe
+         *
+         * @param centerRe real part of center of viewport
+         * @param centerIm imaginary part of center of viewport
+         * @param span real width of viewport
+         * @throws IllegalArgumentException if span is not positive and finite
+         */
+        public Keyframe(double centerRe, double centerIm, double span) {
+            if (!(span > 0) || Double.isInfinite(span))
+                throw new IllegalArgumentException("Span must be positive, was " + span);
+            this.centerRe = centerRe;
+            this.centerIm = centerIm;
+            this.span = span;
+        }
+
+        /**
+         * @return returns real part of center of viewport
+         */
+        public double getCenterRe() {
+            return centerRe;
+        }
+
+        /**
+         * @return returns imaginary part of center of viewport
+         */
+        public double getCenterIm() {
+            return centerIm;
+        }
+
+        /**
+         * @return returns real width of viewport
+         */
+        public double getSpan() {
+            return span;
+        }
+    }
+}
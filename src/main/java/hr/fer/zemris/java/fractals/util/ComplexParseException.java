@@ -0,0 +1,40 @@
+package hr.fer.zemris.java.fractals.util;
+
+/**
+ * Exception thrown by {@link ComplexParser} when input is not a valid complex number.
+ * Message starts with line and column of the error, both starting from 1.
+ */
+public class ComplexParseException extends IllegalArgumentException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int line;
+    private final int column;
+
+    /**
+     * Constructing new exception
+     *
+     * @param line line of error
+     * @param column column of error
+     * @param message description of error
+     */
+    public ComplexParseException(int line, int column, String message) {
+        super("Line " + line + ", column " + column + ": " + message);
+        this.line = line;
+        this.column = column;
+    }
+
+    /**
+     * @return returns line of error, starting from 1
+     */
+    public int getLine() {
+        return line;
+    }
+
+    /**
+     * @return returns column of error, starting from 1
+     */
+    public int getColumn() {
+        return column;
+    }
+}
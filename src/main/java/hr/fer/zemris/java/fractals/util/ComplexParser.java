@@ -0,0 +1,453 @@
+package hr.fer.zemris.java.fractals.util;
+
+import hr.fer.zemris.math.Complex;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Streaming parser of complex numbers. Input is read in one pass through a small buffer,
+ * from a {@link Reader}, from a {@link ByteBuffer} of ASCII text or from a string, and
+ * numbers are built directly from digits without intermediate strings. Only numbers which
+ * can not be converted exactly from at most 18 significant digits and a power of ten up to
+ * 10^22 are handed over to {@link Double#parseDouble(String)}, so results are always
+ * correctly rounded.
+ *
+ * Numbers are separated by new lines, commas or semicolons. Empty entries are skipped and
+ * {@code #} starts a comment until the end of line. Word {@code done} ends the input, as
+ * in interactive input of roots. One number has real part, imaginary part or both in any
+ * order, for example {@code 1}, {@code -2.5e-3}, {@code i}, {@code -i}, {@code i2},
+ * {@code 1 - i2}, {@code 2i}, {@code 1e3 + 4.5i} or {@code -i 0.5 + 3}. Spaces and tabs
+ * may appear between signs, numbers and {@code i}, but not inside digits of a number.
+ *
+ * Errors are reported by {@link ComplexParseException} with line and column of the error.
+ */
+public final class ComplexParser {
+
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /**
+     * Powers of ten which are exact in double
+     */
+    private static final double[] POWERS = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Largest mantissa which is exact in double
+     */
+    private static final long MAX_EXACT = 1L << 53;
+
+    /**
+     * Maximal number of significant digits kept in mantissa, fits into long
+     */
+    private static final int MAX_DIGITS = 18;
+
+    private final Reader reader;
+    private final ByteBuffer bytes;
+    private final char[] buffer;
+    private int position;
+    private int limit;
+
+    /**
+     * Characters of current number, used only if number has to be parsed by the slow path
+     */
+    private char[] token = new char[32];
+    private int tokenLength;
+
+    /**
+     * Line and column of the next character
+     */
+    private int line = 1;
+    private int column = 1;
+    private boolean afterCarriageReturn;
+
+    /**
+     * Line of the last parsed number
+     */
+    private int numberLine;
+
+    private double re;
+    private double im;
+    private boolean done;
+
+    /**
+     * Constructing new parser of text from given reader
+     *
+     * @param reader source of text, not closed by parser
+     */
+    public ComplexParser(Reader reader) {
+        this.reader = reader;
+        this.bytes = null;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Constructing new parser of ASCII text in remaining bytes of given buffer. Position of
+     * the buffer is advanced while parsing.
+     *
+     * @param bytes source of text
+     */
+    public ComplexParser(ByteBuffer bytes) {
+        this.reader = null;
+        this.bytes = bytes;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Constructing new parser of given text
+     *
+     * @param text text to parse
+     */
+    public ComplexParser(CharSequence text) {
+        this.reader = null;
+        this.bytes = null;
+        this.buffer = text.toString().toCharArray();
+        this.limit = buffer.length;
+    }
+
+    /**
+     * Parses text which contains exactly one complex number
+     *
+     * @param text text to parse
+     * @return returns parsed complex number
+     * @throws ComplexParseException if text is not exactly one complex number
+     */
+    public static Complex parse(CharSequence text) {
+        ComplexParser parser = new ComplexParser(text);
+        if (!parser.next())
+            throw parser.error("expected complex number");
+        Complex result = parser.get();
+        if (parser.next())
+            throw new ComplexParseException(parser.numberLine, 1, "expected only one complex number");
+        return result;
+    }
+
+    /**
+     * Parses all complex numbers of given text
+     *
+     * @param text text to parse
+     * @return returns parsed complex numbers
+     * @throws ComplexParseException if text is not valid
+     */
+    public static Complex[] parseAll(CharSequence text) {
+        try {
+            return new ComplexParser(text).readAll();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Parses remaining complex numbers of input
+     *
+     * @return returns parsed complex numbers
+     * @throws IOException if reading fails
+     * @throws ComplexParseException if input is not valid
+     */
+    public Complex[] readAll() throws IOException {
+        int count = 0;
+        double[] values = new double[64];
+        while (nextNumber()) {
+            if (count * 2 == values.length)
+                values = Arrays.copyOf(values, values.length * 2);
+            values[2 * count] = re;
+            values[2 * count + 1] = im;
+            count++;
+        }
+        Complex[] result = new Complex[count];
+        for (int i = 0; i < count; i++)
+            result[i] = new Complex(values[2 * i], values[2 * i + 1]);
+        return result;
+    }
+
+    /**
+     * Parses next complex number, whose parts are then available through {@link #getRe()}
+     * and {@link #getIm()}
+     *
+     * @return returns false if there are no more numbers
+     * @throws UncheckedIOException if reading fails
+     * @throws ComplexParseException if input is not valid
+     */
+    public boolean next() {
+        try {
+            return nextNumber();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return returns real part of the last parsed number
+     */
+    public double getRe() {
+        return re;
+    }
+
+    /**
+     * @return returns imaginary part of the last parsed number
+     */
+    public double getIm() {
+        return im;
+    }
+
+    /**
+     * @return returns the last parsed number
+     */
+    public Complex get() {
+        return new Complex(re, im);
+    }
+
+    /**
+     * @return returns line of the last parsed number, starting from 1
+     */
+    public int getLine() {
+        return numberLine;
+    }
+
+    private boolean nextNumber() throws IOException {
+        while (!done) {
+            skipBlanks();
+            int c = peek();
+            if (c < 0)
+                return false;
+            if (c == '\n' || c == '\r' || c == ',' || c == ';') {
+                consume();
+            } else if (c == '#') {
+                while ((c = peek()) >= 0 && c != '\n' && c != '\r')
+                    consume();
+            } else if (c == 'd' || c == 'D') {
+                expectDone();
+                done = true;
+            } else {
+                numberLine = line;
+                parseNumber();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void parseNumber() throws IOException {
+        boolean hasRe = false, hasIm = false;
+        re = 0;
+        im = 0;
+        for (boolean first = true; ; first = false) {
+            int termLine = line, termColumn = column;
+            int c = peek();
+            double sign = 1;
+            if (c == '+' || c == '-') {
+                sign = c == '-' ? -1 : 1;
+                consume();
+                skipBlanks();
+                c = peek();
+            } else if (!first) {
+                throw error("expected + or -");
+            }
+
+            double value;
+            boolean imaginary;
+            if (c == 'i') {
+                consume();
+                skipBlanks();
+                value = isNumberStart(peek()) ? parseDouble() : 1;
+                imaginary = true;
+            } else if (isNumberStart(c)) {
+                value = parseDouble();
+                skipBlanks();
+                imaginary = peek() == 'i';
+                if (imaginary)
+                    consume();
+            } else {
+                throw error("expected number or i");
+            }
+
+            if (imaginary) {
+                if (hasIm)
+                    throw new ComplexParseException(termLine, termColumn, "imaginary part given twice");
+                im = sign * value;
+                hasIm = true;
+            } else {
+                if (hasRe)
+                    throw new ComplexParseException(termLine, termColumn, "real part given twice");
+                re = sign * value;
+                hasRe = true;
+            }
+
+            skipBlanks();
+            c = peek();
+            if (c < 0 || c == '\n' || c == '\r' || c == ',' || c == ';' || c == '#')
+                return;
+        }
+    }
+
+    /**
+     * Parses unsigned decimal number with optional fraction and exponent
+     */
+    private double parseDouble() throws IOException {
+        tokenLength = 0;
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean anyDigit = false;
+
+        int c;
+        while (isDigit(c = peek())) {
+            append(c);
+            consume();
+            anyDigit = true;
+            if (digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa != 0) digits++;
+            } else {
+                exponent++;
+                exact &= c == '0';
+            }
+        }
+        if (c == '.') {
+            append(c);
+            consume();
+            while (isDigit(c = peek())) {
+                append(c);
+                consume();
+                anyDigit = true;
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + (c - '0');
+                    if (mantissa != 0) digits++;
+                    exponent--;
+                } else {
+                    exact &= c == '0';
+                }
+            }
+        }
+        if (!anyDigit)
+            throw error("expected digit");
+
+        if (c == 'e' || c == 'E') {
+            append(c);
+            consume();
+            int exponentSign = 1;
+            c = peek();
+            if (c == '+' || c == '-') {
+                append(c);
+                consume();
+                exponentSign = c == '-' ? -1 : 1;
+                c = peek();
+            }
+            if (!isDigit(c))
+                throw error("expected digit of exponent");
+            int value = 0;
+            while (isDigit(c = peek())) {
+                append(c);
+                consume();
+                if (value < 100_000)
+                    value = value * 10 + (c - '0');
+            }
+            exponent += exponentSign * value;
+        }
+
+        if (mantissa == 0)
+            return 0;
+        if (exact && mantissa <= MAX_EXACT && exponent >= -22 && exponent <= 22)
+            return exponent < 0 ? mantissa / POWERS[-exponent] : mantissa * POWERS[exponent];
+        return Double.parseDouble(new String(token, 0, tokenLength));
+    }
+
+    private void expectDone() throws IOException {
+        int errorLine = line, errorColumn = column;
+        for (int i = 0; i < 4; i++) {
+            int c = peek();
+            if (c < 0 || Character.toLowerCase((char) c) != "done".charAt(i))
+                throw new ComplexParseException(errorLine, errorColumn, "expected number or i");
+            consume();
+        }
+    }
+
+    private void append(int c) {
+        if (tokenLength == token.length)
+            token = Arrays.copyOf(token, token.length * 2);
+        token[tokenLength++] = (char) c;
+    }
+
+    private void skipBlanks() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\t')
+            consume();
+    }
+
+    /**
+     * @return returns next character without consuming it, or -1 at the end of input
+     */
+    private int peek() throws IOException {
+        if (position == limit && !fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private void consume() {
+        char c = buffer[position++];
+        if (c == '\n') {
+            if (!afterCarriageReturn)
+                line++;
+            column = 1;
+            afterCarriageReturn = false;
+        } else if (c == '\r') {
+            line++;
+            column = 1;
+            afterCarriageReturn = true;
+        } else {
+            column++;
+            afterCarriageReturn = false;
+        }
+    }
+
+    /**
+     * Reads next part of input into buffer, only when buffer is empty
+     *
+     * @return returns false at the end of input
+     */
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        if (reader != null) {
+            int n;
+            while ((n = reader.read(buffer)) == 0) ;
+            limit = Math.max(n, 0);
+        } else if (bytes != null) {
+            int n = Math.min(bytes.remaining(), buffer.length);
+            for (int i = 0; i < n; i++) {
+                byte b = bytes.get();
+                if (b < 0)
+                    throw new ComplexParseException(line, column + i, "non-ASCII character");
+                buffer[i] = (char) b;
+            }
+            limit = n;
+        }
+        return limit > 0;
+    }
+
+    /**
+     * Creates exception at the next character, which is already in buffer after a peek
+     */
+    private ComplexParseException error(String message) {
+        int c = position < limit ? buffer[position] : -1;
+        if (c < 0)
+            return new ComplexParseException(line, column, message + ", found end of input");
+        if (c == '\n' || c == '\r')
+            return new ComplexParseException(line, column, message + ", found end of line");
+        return new ComplexParseException(line, column, message + ", found '" + (char) c + "'");
+    }
+
+    private static boolean isDigit(int c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberStart(int c) {
+        return isDigit(c) || c == '.';
+    }
+}
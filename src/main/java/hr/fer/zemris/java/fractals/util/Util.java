@@ -2,8 +2,13 @@ package hr.fer.zemris.java.fractals.util;
 
 import hr.fer.zemris.math.Complex;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Scanner;
 
 /**
  * Class with utility methods
@@ -11,111 +16,54 @@ import java.util.Scanner;
 public class Util {
 
     /**
+     * Reads roots from system input, one root per line, until line {@code done} or end of
+     * input. Input may also be piped from a file.
+     *
      * @return returns array of complex numbers from system input
+     * @throws ComplexParseException if a root can not be parsed
      */
     public static Complex[] getFactors() {
-        Scanner sc = new Scanner(System.in);
+        ComplexParser parser = new ComplexParser(new InputStreamReader(System.in, StandardCharsets.US_ASCII));
 
         ArrayList<Complex> roots = new ArrayList<>();
-        int i = 1;
-        while (true) {
-            System.out.print("Root " + i + "> ");
-            String line = sc.nextLine();
-            if (line.equalsIgnoreCase("done"))
-                break;
-            Complex root = Util.parseComplex(line);
-            roots.add(root);
-            i++;
+        System.out.print("Root 1> ");
+        while (parser.next()) {
+            roots.add(parser.get());
+            System.out.print("Root " + (roots.size() + 1) + "> ");
         }
         System.out.println("Image of fractal will appear shortly. Thank you.");
 
-        Complex[] factors = new Complex[roots.size()];
-        factors = roots.toArray(factors);
-        return factors;
+        return roots.toArray(new Complex[0]);
     }
 
     /**
-     * Tries to parse given string into complex number
+     * Reads roots from given file, see {@link ComplexParser} for its format. File is mapped
+     * into memory and parsed in one pass, so files with millions of roots are read quickly.
      *
-     * @param line input string
-     * @return returns complex number from given string if possible
-     * @throws IllegalArgumentException if can not parse string into complex number
+     * @param file file of roots
+     * @return returns roots from file
+     * @throws IOException if file can not be read
+     * @throws ComplexParseException if a root can not be parsed
      */
-    public static Complex parseComplex(String line) {
-        char[] number = line.toCharArray();
-        String re = "", im = "";
-        int i = 0;
-        while (i < number.length && Character.isWhitespace(number[i])) i++;
-        if (Character.isDigit(number[i])) {
-            re = determineNumber(number, i);
-            i += re.length();
-        } else if (number[i] == '-' && i + 1 < number.length && Character.isDigit(number[i+1])) {
-            i++;
-            re = determineNumber(number, i);
-            i += re.length();
-            re = "-" + re;
-
-        }
-        while (i < number.length && Character.isWhitespace(number[i])) i++;
-        String sign = "";
-        if (i < number.length && (number[i] == '+' || number[i] == '-'))
-            sign += number[i++];
-        while (i < number.length && Character.isWhitespace(number[i])) i++;
-        if (i < number.length && number[i] == 'i') {
-            i++;
-            im = determineNumber(number, i);
-            i += im.length();
-            im = sign + im;
-            im = im + "i";
-        }
-        if (re.equals(""))
-            re = "0.0";
-
-
-        if (im.equals(""))
-            im = "0.0";
-        if (im.equals("i") || im.equals("+i"))
-            im = "1.0";
-        if (im.equals("-i"))
-            im = "-1.0";
-        if (im.endsWith("i"))
-            im = im.substring(0, im.length()-1);
-
-        if (i != number.length)
-            throw new IllegalArgumentException("Can not turn string " + line + " into complex number");
-
-        return new Complex(Double.parseDouble(re), Double.parseDouble(im));
-    }
-
-    private static String determineNumber(char[] line, int index) {
-        String number = "";
-        String tmp = readNumbers(line, index);
-        number += tmp;
-        index += tmp.length();
-        /*if there is more elements in array and current element is "." and i we already have any digit saved into number and if next element is digit*/
-        if (index < line.length-1 && line[index] == '.' && !number.equals("") && Character.isDigit(line[index+1])) {
-            number += line[index++];
+    public static Complex[] readRoots(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new IOException("File " + file + " is larger than 2 GB");
+            return new ComplexParser(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)).readAll();
         }
-        tmp = readNumbers(line, index);
-        number += tmp;
-        index += tmp.length();
-
-        return number;
     }
 
     /**
-     * returns string of sequential digits in input string
+     * Tries to parse given string into complex number, see {@link ComplexParser} for the
+     * accepted forms
      *
      * @param line input string
-     * @param index current position in input string
-     * @return returns string of sequential digits in input string
+     * @return returns complex number from given string if possible
+     * @throws IllegalArgumentException if can not parse string into complex number
      */
-    private static String readNumbers(char[] line, int index) {
-        String number = "";
-        while (index < line.length && Character.isDigit(line[index])) {
-            number += line[index++];
-        }
-        return number;
+    public static Complex parseComplex(String line) {
+        return ComplexParser.parse(line);
     }
 
     /**
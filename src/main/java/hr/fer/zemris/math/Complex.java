@@ -123,7 +123,10 @@ public class Complex {
     }
 
     /**
-     * Returns new complex number as this^n
+     * Returns new complex number as this^n, computed by repeated squaring. Earlier versions
+     * computed power in polar form, so results may differ from them in the last bits; powers
+     * of real and imaginary numbers now have exact zero parts instead of rounding errors
+     * of sine and cosine.
      *
      * @param n non-negative integer
      * @return returns this^n, n is non-negative integer
@@ -134,14 +137,7 @@ public class Complex {
             throw new IllegalArgumentException("n must be non-negative integer");
         if (n == 0)
             return ONE;
-        Complex c = new Complex(this.re, this.im);
-        double magnitude = Math.pow(c.module(), n);
-        double angle = Math.atan2(c.im, c.re);
-        if (angle < 0)
-            angle += (2 * PI);
-        angle *= n;
-
-        return new Complex(magnitude * Math.cos(angle), magnitude * Math.sin(angle));
+        return new MutableComplex(this.re, this.im).power(n).toComplex();
     }
 
     // returns n-th root of this, n is positive integer
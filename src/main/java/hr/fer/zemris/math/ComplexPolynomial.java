@@ -1,7 +1,5 @@
 package hr.fer.zemris.math;
 
-import java.util.Arrays;
-
 public class ComplexPolynomial {
 
     private Complex[] factors;
@@ -27,24 +25,53 @@ public class ComplexPolynomial {
     }
 
     /**
-     * Computes new polynomial as this * p
+     * Computes new polynomial as this * p. Products of polynomials with at least 64
+     * coefficients each are computed by fast Fourier transform.
      *
      * @param p complex polynomial
      * @return returns new polynomial computed as this * p
      */
     public ComplexPolynomial multiply(ComplexPolynomial p) {
+        Complex[] other = p.getFactors();
+        if (Math.min(this.factors.length, other.length) >= PolynomialExpansion.FFT_COEFFICIENTS)
+            return multiplyLarge(other);
         Complex[] resultFactors = new Complex[this.order() + p.order() + 1];
-        Arrays.fill(resultFactors, Complex.ZERO);
-        for (int i = 0; i < this.factors.length; i++) {
-            for (int j = 0; j < p.getFactors().length; j++) {
-                Complex tmp = this.factors[i].multiply(p.getFactors()[j]);
-                resultFactors[i + j] = resultFactors[i + j].add(tmp);
-            }
+        MutableComplex sum = new MutableComplex();
+        for (int k = 0; k < resultFactors.length; k++) {
+            sum.set(0, 0);
+            int from = Math.max(0, k - other.length + 1);
+            int to = Math.min(k, this.factors.length - 1);
+            for (int i = from; i <= to; i++)
+                sum.fma(this.factors[i], other[k - i]);
+            resultFactors[k] = sum.toComplex();
         }
 
         return new ComplexPolynomial(resultFactors);
     }
 
+    /**
+     * Multiplies by large polynomial through {@link PolynomialExpansion}, in O(n log n)
+     */
+    private ComplexPolynomial multiplyLarge(Complex[] other) {
+        double[][] a = parts(this.factors);
+        double[][] b = parts(other);
+        double[][] product = PolynomialExpansion.multiply(a[0], a[1], b[0], b[1]);
+        Complex[] resultFactors = new Complex[product[0].length];
+        for (int i = 0; i < resultFactors.length; i++)
+            resultFactors[i] = new Complex(product[0][i], product[1][i]);
+        return new ComplexPolynomial(resultFactors);
+    }
+
+    private static double[][] parts(Complex[] factors) {
+        double[] re = new double[factors.length];
+        double[] im = new double[factors.length];
+        for (int i = 0; i < factors.length; i++) {
+            re[i] = factors[i].getRe();
+            im[i] = factors[i].getIm();
+        }
+        return new double[][] {re, im};
+    }
+
     /**
      * Computes first derivative of this polynomial
      *
@@ -60,19 +87,45 @@ public class ComplexPolynomial {
     }
 
     /**
-     * Computes polynomial value at given point z
+     * Computes polynomial value at given point z using Horner's scheme
      *
      * @param z complex number
      * @return returns new complex number computed as value of polynomial at given point z
      */
     public Complex apply(Complex z) {
-        Complex result = Complex.ZERO;
-        for (int i = 0; i < this.factors.length; i++) {
-            Complex zi = z.power(i);
-            Complex factor = this.factors[i].multiply(zi);
-            result = result.add(factor);
+        double zRe = z.getRe();
+        double zIm = z.getIm();
+        double re = 0, im = 0;
+        for (int i = this.factors.length - 1; i >= 0; i--) {
+            double tmp = re * zRe - im * zIm + this.factors[i].getRe();
+            im = re * zIm + im * zRe + this.factors[i].getIm();
+            re = tmp;
+        }
+        return new Complex(re, im);
+    }
+
+    /**
+     * Computes polynomial value and value of its first derivative at given point z
+     * in one pass of Horner's scheme, without computing derivative polynomial.
+     *
+     * @param z complex number
+     * @return returns array of two complex numbers, value of polynomial at z
+     * and value of its first derivative at z
+     */
+    public Complex[] applyWithDerivative(Complex z) {
+        double zRe = z.getRe();
+        double zIm = z.getIm();
+        double re = 0, im = 0;
+        double dRe = 0, dIm = 0;
+        for (int i = this.factors.length - 1; i >= 0; i--) {
+            double tmp = dRe * zRe - dIm * zIm + re;
+            dIm = dRe * zIm + dIm * zRe + im;
+            dRe = tmp;
+            tmp = re * zRe - im * zIm + this.factors[i].getRe();
+            im = re * zIm + im * zRe + this.factors[i].getIm();
+            re = tmp;
         }
-        return result;
+        return new Complex[] {new Complex(re, im), new Complex(dRe, dIm)};
     }
 
     @Override
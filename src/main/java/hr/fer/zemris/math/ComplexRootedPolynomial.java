@@ -1,6 +1,7 @@
 package hr.fer.zemris.math;
 
 import java.util.Arrays;
+import java.util.concurrent.Executor;
 
 public class ComplexRootedPolynomial {
 
@@ -14,6 +15,11 @@ public class ComplexRootedPolynomial {
      */
     private Complex[] roots;
 
+    /**
+     * Compiled plan of roots, looked up on first use
+     */
+    private NewtonPlan plan;
+
     /**
      * Constructing new complex rooted polynomial
      *
@@ -32,28 +38,63 @@ public class ComplexRootedPolynomial {
      * @return returns complex number that is value of polynomial at given point z
      */
     public Complex apply(Complex z) {
-        Complex result = this.constant;
+        MutableComplex result = new MutableComplex(this.constant);
         for (int i = 0; i < this.roots.length; i++) {
-            result = result.multiply(z.sub(roots[i]));
+            result.mulAssign(z.getRe() - roots[i].getRe(), z.getIm() - roots[i].getIm());
         }
 
-        return result;
+        return result.toComplex();
     }
 
     /**
-     * @return returns new ComplexPolynomial from complex rooted polynomial
+     * Computes Newton-Raphson correction f(z) / f'(z) directly from roots as
+     * 1 / (sum of 1 / (z - r_i)), without expanding polynomial. Constant of
+     * polynomial cancels out.
+     *
+     * @param z complex number
+     * @return returns f(z) / f'(z); zero if z is one of the roots
      */
-    public ComplexPolynomial toComplexPolynom() {
-        ComplexPolynomial[] rootedPolynomials = new ComplexPolynomial[this.roots.length];
+    public Complex newtonCorrection(Complex z) {
+        double sumRe = 0, sumIm = 0;
         for (int i = 0; i < this.roots.length; i++) {
-            rootedPolynomials[i] = new ComplexPolynomial(this.roots[i].negate(), Complex.ONE);
+            double dRe = z.getRe() - this.roots[i].getRe();
+            double dIm = z.getIm() - this.roots[i].getIm();
+            double d = dRe * dRe + dIm * dIm;
+            if (d == 0)
+                return Complex.ZERO;
+            sumRe += dRe / d;
+            sumIm -= dIm / d;
         }
-        //ComplexPolynomial result = new ComplexPolynomial(this.constant);
-        ComplexPolynomial result = new ComplexPolynomial(Complex.ONE);
-        for (ComplexPolynomial p : rootedPolynomials)
-            result = result.multiply(p);
+        double sum = sumRe * sumRe + sumIm * sumIm;
+        return new Complex(sumRe / sum, -sumIm / sum);
+    }
 
-        return result;
+    /**
+     * @return returns compiled iteration plan of roots of this polynomial, shared by all
+     * polynomials with the same roots
+     */
+    public NewtonPlan plan() {
+        NewtonPlan plan = this.plan;
+        if (plan == null) {
+            plan = NewtonPlan.of(this.roots);
+            this.plan = plan;
+        }
+        return plan;
+    }
+
+    /**
+     * Expands this polynomial. Expansion of roots is taken from {@link #plan()}, so it is
+     * computed only once per root set, and then multiplied by constant of this polynomial.
+     *
+     * @return returns new ComplexPolynomial from complex rooted polynomial
+     */
+    public ComplexPolynomial toComplexPolynom() {
+        Complex[] factors = plan().polynomial().getFactors();
+        if (!(this.constant.getRe() == 1 && this.constant.getIm() == 0)) {
+            for (int i = 0; i < factors.length; i++)
+                factors[i] = factors[i].multiply(this.constant);
+        }
+        return new ComplexPolynomial(factors);
     }
 
     @Override
@@ -75,15 +116,75 @@ public class ComplexRootedPolynomial {
      * If there is no such root, returns -1
      */
     public int indexOfClosestRootFor(Complex z, double treshold) {
-        int index = -1;
-        double minDistance = Double.MAX_VALUE;
-        for (int i = 0; i < this.roots.length; i++) {
-            double distance = Math.sqrt((this.roots[i].getRe() - z.getRe()) * (this.roots[i].getRe() - z.getRe()) + (this.roots[i].getIm() - z.getIm()) * (this.roots[i].getIm() - z.getIm()));
-            if (distance < treshold && distance < minDistance) {
-                index = i;
-                minDistance = distance;
-            }
-        }
-        return index;
+        return plan().grid(treshold).indexOfClosestRoot(z.getRe(), z.getIm());
+    }
+
+    /**
+     * Finds indexes of closest roots within treshold for a row of points, for example
+     * final points of one image row. Result for each point is the same as of
+     * {@link #indexOfClosestRootFor(Complex, double)}.
+     *
+     * @param re real parts of points
+     * @param im imaginary parts of points
+     * @param treshold treshold
+     * @param indexes array into which indexes of closest roots (or -1) are written
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void indexesOfClosestRootsFor(double[] re, double[] im, double treshold, int[] indexes) {
+        if (re.length != im.length || re.length != indexes.length)
+            throw new IllegalArgumentException("Arrays of points and indexes must be of the same length");
+        plan().grid(treshold).indexesOfClosestRoots(re, im, indexes, 0, re.length);
+    }
+
+    /**
+     * Creates Newton-Raphson solver of roots of this polynomial. Solver is built on
+     * {@link #plan()}, so it shares compiled roots with all polynomials with the same roots.
+     *
+     * @param maxIterations maximal number of iterations for one point
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param treshold maximal distance from root for classifying point to that root
+     * @return returns new solver
+     * @throws IllegalArgumentException if maxIterations is not positive
+     */
+    public NewtonSolver solver(int maxIterations, double convergenceThreshold, double treshold) {
+        return new NewtonSolver(plan(), maxIterations, convergenceThreshold, treshold);
+    }
+
+    /**
+     * Iterates Newton-Raphson method from every starting point and writes index of root to
+     * which it converged (or -1) and number of iterations into given arrays. Points are
+     * processed in parallel on the common fork-join pool, see {@link NewtonSolver}.
+     *
+     * @param re real parts of starting points
+     * @param im imaginary parts of starting points
+     * @param maxIterations maximal number of iterations for one point
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param treshold maximal distance from root for classifying point to that root
+     * @param indexes array into which indexes of roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written, null if they are not needed
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void rootIndexesFor(double[] re, double[] im, int maxIterations, double convergenceThreshold,
+                               double treshold, int[] indexes, int[] iterations) {
+        solver(maxIterations, convergenceThreshold, treshold).solve(re, im, indexes, iterations);
+    }
+
+    /**
+     * Same as {@link #rootIndexesFor(double[], double[], int, double, double, int[], int[])},
+     * but points are processed in parallel on given executor.
+     *
+     * @param re real parts of starting points
+     * @param im imaginary parts of starting points
+     * @param maxIterations maximal number of iterations for one point
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param treshold maximal distance from root for classifying point to that root
+     * @param indexes array into which indexes of roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written, null if they are not needed
+     * @param executor executor running chunks of points
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void rootIndexesFor(double[] re, double[] im, int maxIterations, double convergenceThreshold,
+                               double treshold, int[] indexes, int[] iterations, Executor executor) {
+        solver(maxIterations, convergenceThreshold, treshold).solve(re, im, indexes, iterations, executor);
     }
 }
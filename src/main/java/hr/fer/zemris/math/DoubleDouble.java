@@ -0,0 +1,176 @@
+package hr.fer.zemris.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * Model of real number in double-double arithmetic. Number is kept as unevaluated sum
+ * of two doubles hi + lo with |lo| at most half of ulp of hi, which gives about 106
+ * bits (32 decimal digits) of precision with the exponent range of double.
+ * Operations use error-free transformations (two-sum and fused multiply-add).
+ */
+public final class DoubleDouble {
+
+    public static final DoubleDouble ZERO = new DoubleDouble(0, 0);
+
+    /**
+     * Higher part of number
+     */
+    private final double hi;
+
+    /**
+     * Lower part of number
+     */
+    private final double lo;
+
+    private DoubleDouble(double hi, double lo) {
+        this.hi = hi;
+        this.lo = lo;
+    }
+
+    /**
+     * @param value value of number
+     * @return returns double-double number equal to given double
+     */
+    public static DoubleDouble valueOf(double value) {
+        return new DoubleDouble(value, 0);
+    }
+
+    /**
+     * @param value value of number
+     * @return returns double-double number nearest to given decimal number
+     */
+    public static DoubleDouble valueOf(BigDecimal value) {
+        double hi = value.doubleValue();
+        if (Double.isInfinite(hi))
+            return new DoubleDouble(hi, 0);
+        double lo = value.subtract(new BigDecimal(hi)).doubleValue();
+        return normalize(hi, lo);
+    }
+
+    /**
+     * @return returns higher part of number, which is the nearest double to the number
+     */
+    public double hi() {
+        return hi;
+    }
+
+    /**
+     * @return returns lower part of number
+     */
+    public double lo() {
+        return lo;
+    }
+
+    /**
+     * @return returns number rounded to double
+     */
+    public double doubleValue() {
+        return hi + lo;
+    }
+
+    /**
+     * @return returns exact decimal value of number
+     */
+    public BigDecimal toBigDecimal() {
+        return new BigDecimal(hi).add(new BigDecimal(lo));
+    }
+
+    /**
+     * @param d number to add
+     * @return returns sum of this and given number
+     */
+    public DoubleDouble add(DoubleDouble d) {
+        double s = hi + d.hi;
+        double e = twoSumError(hi, d.hi, s);
+        double t = lo + d.lo;
+        double f = twoSumError(lo, d.lo, t);
+        e += t;
+        double u = s + e;
+        e = e - (u - s) + f;
+        return normalize(u, e);
+    }
+
+    /**
+     * @param d number to add
+     * @return returns sum of this and given number
+     */
+    public DoubleDouble add(double d) {
+        double s = hi + d;
+        double e = twoSumError(hi, d, s) + lo;
+        return normalize(s, e);
+    }
+
+    /**
+     * @param d number to subtract
+     * @return returns difference of this and given number
+     */
+    public DoubleDouble sub(DoubleDouble d) {
+        return add(d.negate());
+    }
+
+    /**
+     * @param d number to subtract
+     * @return returns difference of this and given number
+     */
+    public DoubleDouble sub(double d) {
+        return add(-d);
+    }
+
+    /**
+     * @param d number to multiply with
+     * @return returns product of this and given number
+     */
+    public DoubleDouble multiply(DoubleDouble d) {
+        double p = hi * d.hi;
+        double e = Math.fma(hi, d.hi, -p);
+        e += hi * d.lo + lo * d.hi;
+        return normalize(p, e);
+    }
+
+    /**
+     * @param d number to divide with
+     * @return returns quotient of this and given number
+     */
+    public DoubleDouble divide(DoubleDouble d) {
+        double q1 = hi / d.hi;
+        DoubleDouble r = sub(d.multiply(q1));
+        double q2 = r.hi / d.hi;
+        r = r.sub(d.multiply(q2));
+        double q3 = r.hi / d.hi;
+        return normalize(q1, q2).add(q3);
+    }
+
+    /**
+     * @return returns negated number
+     */
+    public DoubleDouble negate() {
+        return new DoubleDouble(-hi, -lo);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().round(new MathContext(32)).toString();
+    }
+
+    private DoubleDouble multiply(double d) {
+        double p = hi * d;
+        double e = Math.fma(hi, d, -p) + lo * d;
+        return normalize(p, e);
+    }
+
+    private static double twoSumError(double a, double b, double s) {
+        double bb = s - a;
+        return (a - (s - bb)) + (b - bb);
+    }
+
+    private static DoubleDouble normalize(double hi, double lo) {
+        /* error term of an overflowed operation is infinite of the opposite sign */
+        if (Double.isInfinite(hi) || Double.isNaN(hi))
+            return new DoubleDouble(hi, 0);
+        double s = hi + lo;
+        if (Double.isInfinite(s) || Double.isNaN(s))
+            return new DoubleDouble(s, 0);
+        return new DoubleDouble(s, lo - (s - hi));
+    }
+}
@@ -0,0 +1,323 @@
+package hr.fer.zemris.math;
+
+/**
+ * Mutable complex number for hot loops. Every operation changes this number in place
+ * and returns it, so calls can be chained and a loop working with a few accumulators
+ * does not create any objects. Arithmetic gives the same results as the same operation
+ * of {@link Complex}, except {@link #power(int)}, which uses repeated squaring.
+ *
+ * Mutable complex number is not thread safe.
+ */
+public final class MutableComplex {
+
+    /**
+     * Real part of complex number
+     */
+    private double re;
+
+    /**
+     * Imaginary part of complex number
+     */
+    private double im;
+
+    /**
+     * Constructing new complex number in center of complex plane (0, 0i)
+     */
+    public MutableComplex() {
+    }
+
+    /**
+     * Constructing new complex number with real and imaginary part
+     *
+     * @param re real part of complex number
+     * @param im imaginary part of complex number
+     */
+    public MutableComplex(double re, double im) {
+        this.re = re;
+        this.im = im;
+    }
+
+    /**
+     * Constructing new complex number with value of given immutable complex number
+     *
+     * @param c complex number
+     */
+    public MutableComplex(Complex c) {
+        this(c.getRe(), c.getIm());
+    }
+
+    /**
+     * @return returns real part of complex number
+     */
+    public double getRe() {
+        return re;
+    }
+
+    /**
+     * @return returns imaginary part of complex number
+     */
+    public double getIm() {
+        return im;
+    }
+
+    /**
+     * @return returns module of complex number
+     */
+    public double module() {
+        return Math.sqrt(re * re + im * im);
+    }
+
+    /**
+     * Sets this to re + im i
+     *
+     * @param re real part
+     * @param im imaginary part
+     * @return returns this
+     */
+    public MutableComplex set(double re, double im) {
+        this.re = re;
+        this.im = im;
+        return this;
+    }
+
+    /**
+     * Sets this to c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex set(Complex c) {
+        return set(c.getRe(), c.getIm());
+    }
+
+    /**
+     * Sets this to c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex set(MutableComplex c) {
+        return set(c.re, c.im);
+    }
+
+    /**
+     * Sets this to this + (re + im i)
+     *
+     * @param re real part of addend
+     * @param im imaginary part of addend
+     * @return returns this
+     */
+    public MutableComplex addAssign(double re, double im) {
+        this.re += re;
+        this.im += im;
+        return this;
+    }
+
+    /**
+     * Sets this to this + c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex addAssign(Complex c) {
+        return addAssign(c.getRe(), c.getIm());
+    }
+
+    /**
+     * Sets this to this + c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex addAssign(MutableComplex c) {
+        return addAssign(c.re, c.im);
+    }
+
+    /**
+     * Sets this to this - (re + im i)
+     *
+     * @param re real part of subtrahend
+     * @param im imaginary part of subtrahend
+     * @return returns this
+     */
+    public MutableComplex subAssign(double re, double im) {
+        this.re -= re;
+        this.im -= im;
+        return this;
+    }
+
+    /**
+     * Sets this to this - c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex subAssign(Complex c) {
+        return subAssign(c.getRe(), c.getIm());
+    }
+
+    /**
+     * Sets this to this - c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex subAssign(MutableComplex c) {
+        return subAssign(c.re, c.im);
+    }
+
+    /**
+     * Sets this to this * (re + im i)
+     *
+     * @param re real part of factor
+     * @param im imaginary part of factor
+     * @return returns this
+     */
+    public MutableComplex mulAssign(double re, double im) {
+        double tmp = this.re * re - this.im * im;
+        this.im = this.re * im + this.im * re;
+        this.re = tmp;
+        return this;
+    }
+
+    /**
+     * Sets this to this * c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex mulAssign(Complex c) {
+        return mulAssign(c.getRe(), c.getIm());
+    }
+
+    /**
+     * Sets this to this * c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex mulAssign(MutableComplex c) {
+        return mulAssign(c.re, c.im);
+    }
+
+    /**
+     * Sets this to this / (re + im i)
+     *
+     * @param re real part of divisor
+     * @param im imaginary part of divisor
+     * @return returns this
+     */
+    public MutableComplex divAssign(double re, double im) {
+        double divisor = re * re + im * im;
+        double tmp = (this.re * re + this.im * im) / divisor;
+        this.im = (this.im * re - this.re * im) / divisor;
+        this.re = tmp;
+        return this;
+    }
+
+    /**
+     * Sets this to this / c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex divAssign(Complex c) {
+        return divAssign(c.getRe(), c.getIm());
+    }
+
+    /**
+     * Sets this to this / c
+     *
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex divAssign(MutableComplex c) {
+        return divAssign(c.re, c.im);
+    }
+
+    /**
+     * Sets this to this + a * b
+     *
+     * @param a complex number
+     * @param b complex number
+     * @return returns this
+     */
+    public MutableComplex fma(Complex a, Complex b) {
+        return addAssign(a.getRe() * b.getRe() - a.getIm() * b.getIm(),
+                a.getRe() * b.getIm() + a.getIm() * b.getRe());
+    }
+
+    /**
+     * Sets this to this + a * b
+     *
+     * @param a complex number
+     * @param b complex number
+     * @return returns this
+     */
+    public MutableComplex fma(MutableComplex a, MutableComplex b) {
+        return addAssign(a.re * b.re - a.im * b.im, a.re * b.im + a.im * b.re);
+    }
+
+    /**
+     * Sets this to this * z + c, one step of Horner's scheme
+     *
+     * @param z complex number
+     * @param c complex number
+     * @return returns this
+     */
+    public MutableComplex mulAdd(MutableComplex z, Complex c) {
+        return mulAssign(z.re, z.im).addAssign(c.getRe(), c.getIm());
+    }
+
+    /**
+     * Sets this to -this
+     *
+     * @return returns this
+     */
+    public MutableComplex negateAssign() {
+        re = -re;
+        im = -im;
+        return this;
+    }
+
+    /**
+     * Sets this to this^n, computed by repeated squaring, same as {@link Complex#power(int)},
+     * so results may differ in the last bits from the polar form used by earlier versions
+     *
+     * @param n non-negative integer
+     * @return returns this
+     * @throws IllegalArgumentException if n is negative
+     */
+    public MutableComplex power(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("n must be non-negative integer");
+        double baseRe = re, baseIm = im;
+        double resultRe = 1, resultIm = 0;
+        while (n > 0) {
+            if ((n & 1) != 0) {
+                double tmp = resultRe * baseRe - resultIm * baseIm;
+                resultIm = resultRe * baseIm + resultIm * baseRe;
+                resultRe = tmp;
+            }
+            n >>>= 1;
+            if (n > 0) {
+                double tmp = baseRe * baseRe - baseIm * baseIm;
+                baseIm = 2 * baseRe * baseIm;
+                baseRe = tmp;
+            }
+        }
+        return set(resultRe, resultIm);
+    }
+
+    /**
+     * @return returns new immutable complex number with value of this
+     */
+    public Complex toComplex() {
+        return new Complex(re, im);
+    }
+
+    @Override
+    public String toString() {
+        return toComplex().toString();
+    }
+}
@@ -0,0 +1,209 @@
+package hr.fer.zemris.math;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compiled Newton-Raphson iteration plan of one root set. Everything that depends only
+ * on roots is prepared once: roots in primitive arrays, a {@link RootGrid} which
+ * classifies final points to roots without scanning all of them, and, on first use,
+ * coefficients of the monic polynomial with those roots and of its derivative, expanded
+ * by {@link PolynomialExpansion}.
+ *
+ * Plans are immutable and thread safe. Plans of recently used root sets are cached, so
+ * all producers and requests with the same roots share one plan.
+ */
+public final class NewtonPlan {
+
+    /**
+     * Number of plans kept in cache
+     */
+    private static final int CACHE_SIZE = 16;
+
+    private static final Map<Key, NewtonPlan> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, NewtonPlan> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private final double[] rootRe;
+    private final double[] rootIm;
+
+    /**
+     * Expanded coefficients, computed on first use since iteration from roots does not
+     * need them
+     */
+    private volatile Coefficients coefficients;
+
+    /**
+     * Grid of the most recently used threshold
+     */
+    private volatile RootGrid grid;
+
+    private NewtonPlan(double[] rootRe, double[] rootIm) {
+        this.rootRe = rootRe;
+        this.rootIm = rootIm;
+    }
+
+    /**
+     * Returns plan of given roots, cached one if the same roots were compiled recently
+     *
+     * @param roots roots of polynomial
+     * @return returns plan of roots
+     * @throws IllegalArgumentException if there are no roots
+     */
+    public static NewtonPlan of(Complex... roots) {
+        if (roots.length == 0)
+            throw new IllegalArgumentException("At least one root is required");
+        double[] re = new double[roots.length];
+        double[] im = new double[roots.length];
+        for (int i = 0; i < roots.length; i++) {
+            re[i] = roots[i].getRe();
+            im[i] = roots[i].getIm();
+        }
+        Key key = new Key(re, im);
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(key, k -> new NewtonPlan(re, im));
+        }
+    }
+
+    /**
+     * @return returns number of roots
+     */
+    public int order() {
+        return rootRe.length;
+    }
+
+    /**
+     * @return returns real parts of roots, array must not be modified
+     */
+    public double[] rootRe() {
+        return rootRe;
+    }
+
+    /**
+     * @return returns imaginary parts of roots, array must not be modified
+     */
+    public double[] rootIm() {
+        return rootIm;
+    }
+
+    /**
+     * @return returns expanded monic polynomial with roots of this plan
+     */
+    public ComplexPolynomial polynomial() {
+        Coefficients c = coefficients();
+        return toPolynomial(c.re, c.im);
+    }
+
+    /**
+     * @return returns first derivative of expanded polynomial
+     */
+    public ComplexPolynomial derivative() {
+        Coefficients c = coefficients();
+        return toPolynomial(c.derivativeRe, c.derivativeIm);
+    }
+
+    /**
+     * @return returns expanded coefficients, expanding them on first call
+     */
+    Coefficients coefficients() {
+        Coefficients c = this.coefficients;
+        if (c == null) {
+            c = new Coefficients(rootRe, rootIm);
+            this.coefficients = c;
+        }
+        return c;
+    }
+
+    /**
+     * Returns grid which classifies points to roots of this plan within given threshold.
+     * Grid of the last used threshold is kept, so callers with the same threshold share it.
+     *
+     * @param threshold maximal distance from root
+     * @return returns grid of roots
+     */
+    public RootGrid grid(double threshold) {
+        RootGrid grid = this.grid;
+        if (grid == null || Double.compare(grid.getThreshold(), threshold) != 0) {
+            grid = new RootGrid(rootRe, rootIm, threshold);
+            this.grid = grid;
+        }
+        return grid;
+    }
+
+    /**
+     * Finds index of closest root within threshold for given point. Result is the same as
+     * of {@link ComplexRootedPolynomial#indexOfClosestRootFor(Complex, double)}: distance is
+     * sqrt(dRe * dRe + dIm * dIm) and of roots at equal distance the one with lower index wins.
+     *
+     * @param zRe real part of point
+     * @param zIm imaginary part of point
+     * @param threshold maximal distance from root
+     * @return returns index of closest root or -1 if there is no root within threshold
+     */
+    public int indexOfClosestRoot(double zRe, double zIm, double threshold) {
+        return grid(threshold).indexOfClosestRoot(zRe, zIm);
+    }
+
+    private static ComplexPolynomial toPolynomial(double[] re, double[] im) {
+        Complex[] factors = new Complex[re.length];
+        for (int i = 0; i < re.length; i++)
+            factors[i] = new Complex(re[i], im[i]);
+        return new ComplexPolynomial(factors);
+    }
+
+    /**
+     * Coefficients of monic polynomial with roots of plan and of its derivative,
+     * coefficient i belongs to z^i
+     */
+    static final class Coefficients {
+
+        final double[] re;
+        final double[] im;
+        final double[] derivativeRe;
+        final double[] derivativeIm;
+
+        Coefficients(double[] rootRe, double[] rootIm) {
+            int n = rootRe.length;
+            re = new double[n + 1];
+            im = new double[n + 1];
+            PolynomialExpansion.expand(rootRe, rootIm, re, im);
+
+            derivativeRe = new double[n];
+            derivativeIm = new double[n];
+            for (int i = 0; i < n; i++) {
+                derivativeRe[i] = (i + 1) * re[i + 1];
+                derivativeIm[i] = (i + 1) * im[i + 1];
+            }
+        }
+    }
+
+    /**
+     * Key of cache, roots compared by value
+     */
+    private static final class Key {
+
+        private final double[] re;
+        private final double[] im;
+
+        Key(double[] re, double[] im) {
+            this.re = re;
+            this.im = im;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return Arrays.equals(re, other.re) && Arrays.equals(im, other.im);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(re) + Arrays.hashCode(im);
+        }
+    }
+}
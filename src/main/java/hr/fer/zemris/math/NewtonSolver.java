@@ -0,0 +1,426 @@
+package hr.fer.zemris.math;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+/**
+ * Allocation-free Newton-Raphson root finder of one root set with fixed iteration
+ * parameters. Newton steps are computed as chosen by {@link NewtonStep}, from expanded
+ * coefficients of the {@link NewtonPlan} by default or directly from its roots, and
+ * final points are classified by {@link RootGrid} of the plan.
+ *
+ * Besides single points, solver classifies whole arrays of starting points given as
+ * separate arrays of real and imaginary parts. Results are written into arrays given
+ * by caller, so no object is created per point, and large arrays are split into chunks
+ * which run in parallel on given executor or on the common fork-join pool.
+ *
+ * Solver is immutable and can be shared between threads.
+ */
+public final class NewtonSolver {
+
+    /**
+     * Number of points in one parallel chunk
+     */
+    private static final int CHUNK = 1024;
+
+    private final NewtonPlan plan;
+    private final RootGrid grid;
+    private final NewtonStep step;
+    private final double[] rootRe;
+    private final double[] rootIm;
+
+    /**
+     * Expanded coefficients of polynomial and derivative, null if step is computed from roots
+     */
+    private final NewtonPlan.Coefficients coefficients;
+    private final int maxIterations;
+    private final double convergenceThreshold;
+    private final double rootThreshold;
+
+    /**
+     * Constructing new solver which computes steps from expanded coefficients
+     *
+     * @param plan compiled plan of roots
+     * @param maxIterations maximal number of iterations for one point
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param rootThreshold maximal distance from root for classifying point to that root
+     * @throws IllegalArgumentException if maxIterations is not positive
+     */
+    public NewtonSolver(NewtonPlan plan, int maxIterations, double convergenceThreshold, double rootThreshold) {
+        this(plan, maxIterations, convergenceThreshold, rootThreshold, NewtonStep.EXPANDED);
+    }
+
+    /**
+     * Constructing new solver
+     *
+     * @param plan compiled plan of roots
+     * @param maxIterations maximal number of iterations for one point
+     * @param convergenceThreshold distance of two successive iterations under which iteration stops
+     * @param rootThreshold maximal distance from root for classifying point to that root
+     * @param step way in which Newton steps are computed
+     * @throws IllegalArgumentException if maxIterations is not positive
+     */
+    public NewtonSolver(NewtonPlan plan, int maxIterations, double convergenceThreshold, double rootThreshold,
+                        NewtonStep step) {
+        if (maxIterations < 1)
+            throw new IllegalArgumentException("Maximal number of iterations must be positive, was " + maxIterations);
+        this.plan = plan;
+        this.grid = plan.grid(rootThreshold);
+        this.step = step;
+        this.coefficients = step == NewtonStep.EXPANDED ? plan.coefficients() : null;
+        this.rootRe = plan.rootRe();
+        this.rootIm = plan.rootIm();
+        this.maxIterations = maxIterations;
+        this.convergenceThreshold = convergenceThreshold;
+        this.rootThreshold = rootThreshold;
+    }
+
+    /**
+     * @return returns compiled plan of roots
+     */
+    public NewtonPlan getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return returns way in which Newton steps are computed
+     */
+    public NewtonStep getStep() {
+        return step;
+    }
+
+    /**
+     * @return returns maximal number of iterations for one point
+     */
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * @return returns distance of two successive iterations under which iteration stops
+     */
+    public double getConvergenceThreshold() {
+        return convergenceThreshold;
+    }
+
+    /**
+     * @return returns maximal distance from root for classifying point to that root
+     */
+    public double getRootThreshold() {
+        return rootThreshold;
+    }
+
+    /**
+     * Iterates Newton-Raphson method from each starting point in range and classifies the
+     * final point. Points are processed in the calling thread.
+     *
+     * @param re real parts of starting points
+     * @param im imaginary parts of starting points
+     * @param from index of first point
+     * @param to index after last point
+     * @param indexes array into which indexes of roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written, null if they are not needed
+     */
+    public void solve(double[] re, double[] im, int from, int to, int[] indexes, int[] iterations) {
+        solve(re, im, from, to, indexes, iterations, null);
+    }
+
+    /**
+     * Iterates Newton-Raphson method from each starting point in range and classifies the
+     * final point, like {@link #solve(double[], double[], int, int, int[], int[])}, but
+     * checks given condition before every point and stops as soon as it is true.
+     *
+     * @param re real parts of starting points
+     * @param im imaginary parts of starting points
+     * @param from index of first point
+     * @param to index after last point
+     * @param indexes array into which indexes of roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written, null if they are not needed
+     * @param cancelled condition which stops solving, null if solving is never stopped
+     * @return returns index after last solved point, to if all points were solved
+     */
+    public int solve(double[] re, double[] im, int from, int to, int[] indexes, int[] iterations,
+                     BooleanSupplier cancelled) {
+        for (int i = from; i < to; i++) {
+            if (cancelled != null && cancelled.getAsBoolean())
+                return i;
+            long result = iterate(re[i], im[i], 0, null, 0);
+            indexes[i] = indexOf(result) - 1;
+            if (iterations != null)
+                iterations[i] = iterationsOf(result);
+        }
+        return to;
+    }
+
+    /**
+     * Iterates Newton-Raphson method from each starting point and classifies the final
+     * point, in parallel on the common fork-join pool. Result for each point is the same
+     * as of {@link #iterate(double, double)}, with index of root starting from 0.
+     *
+     * @param re real parts of starting points
+     * @param im imaginary parts of starting points
+     * @param indexes array into which indexes of roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written, null if they are not needed
+     * @throws IllegalArgumentException if arrays are not of the same length
+     */
+    public void solve(double[] re, double[] im, int[] indexes, int[] iterations) {
+        int n = checkLengths(re, im, indexes, iterations);
+        IntStream.range(0, chunks(n)).parallel()
+                .forEach(c -> solve(re, im, c * CHUNK, Math.min(n, (c + 1) * CHUNK), indexes, iterations));
+    }
+
+    /**
+     * Iterates Newton-Raphson method from each starting point and classifies the final
+     * point, in parallel on given executor. Method blocks until all points are processed,
+     * also if calling thread is interrupted, whose interrupt flag is then restored.
+     *
+     * @param re real parts of starting points
+     * @param im imaginary parts of starting points
+     * @param indexes array into which indexes of roots (or -1) are written
+     * @param iterations array into which numbers of iterations are written, null if they are not needed
+     * @param executor executor running chunks of points
+     * @throws IllegalArgumentException if arrays are not of the same length
+     * @throws RuntimeException the first exception thrown while processing a chunk
+     */
+    public void solve(double[] re, double[] im, int[] indexes, int[] iterations, Executor executor) {
+        int n = checkLengths(re, im, indexes, iterations);
+        int chunks = chunks(n);
+        CountDownLatch done = new CountDownLatch(chunks);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        for (int c = 0; c < chunks; c++) {
+            int from = c * CHUNK;
+            int to = Math.min(n, from + CHUNK);
+            try {
+                executor.execute(() -> {
+                    try {
+                        solve(re, im, from, to, indexes, iterations);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+                for (int rest = c; rest < chunks; rest++)
+                    done.countDown();
+                break;
+            }
+        }
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                done.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (failure.get() != null)
+            throw failure.get();
+    }
+
+    /**
+     * Iterates Newton-Raphson method starting from given point and classifies the final point.
+     * Result packs root index and number of iterations into one long, they can be
+     * extracted with {@link #indexOf(long)} and {@link #iterationsOf(long)}.
+     *
+     * @param startRe real part of starting point
+     * @param startIm imaginary part of starting point
+     * @return returns packed root index (starting from 1, 0 if it did not converge)
+     * and number of iterations
+     */
+    public long iterate(double startRe, double startIm) {
+        return iterate(startRe, startIm, 0, null, 0);
+    }
+
+    /**
+     * Continues iteration from given point, which is reached after given number of
+     * iterations, classifies the final point and writes smooth iteration count of the
+     * point into given buffer.
+     *
+     * Smooth iteration count is iterations - 1 + t, where t from [0, 1) is the part of the
+     * last step, measured on logarithmic scale of step lengths, needed to get under the
+     * convergence threshold. So it changes continuously across bands of equal iteration
+     * counts and number of iterations is its integer part plus one.
+     *
+     * @param zRe real part of current point
+     * @param zIm imaginary part of current point
+     * @param iterations number of iterations already done, smaller than maximal number
+     * @param smooth buffer for smooth iteration count, or null if it is not needed
+     * @param position position in smooth buffer
+     * @return returns packed root index and total number of iterations, same as
+     * {@link #iterate(double, double)}
+     */
+    public long iterate(double zRe, double zIm, int iterations, float[] smooth, int position) {
+        if (coefficients != null)
+            return iterateExpanded(zRe, zIm, iterations, smooth, position);
+        int n = rootRe.length;
+        double module = 0;
+        double previous;
+        int iter = iterations;
+        do {
+            double sumRe = 0, sumIm = 0;
+            boolean atRoot = false;
+            for (int i = 0; i < n; i++) {
+                double dRe = zRe - rootRe[i];
+                double dIm = zIm - rootIm[i];
+                double d = dRe * dRe + dIm * dIm;
+                if (d == 0) {
+                    atRoot = true;
+                    break;
+                }
+                sumRe += dRe / d;
+                sumIm -= dIm / d;
+            }
+            iter++;
+            previous = module;
+            if (atRoot) {
+                module = 0;
+                break;
+            }
+
+            /* f(z) / f'(z) = 1 / sum */
+            double sum = sumRe * sumRe + sumIm * sumIm;
+            double stepRe = sumRe / sum;
+            double stepIm = -sumIm / sum;
+            zRe -= stepRe;
+            zIm -= stepIm;
+            module = Math.sqrt(stepRe * stepRe + stepIm * stepIm);
+        } while (module > convergenceThreshold && iter < maxIterations);
+
+        if (smooth != null)
+            smooth[position] = smoothIterations(iter, previous, module);
+        return (long) iter << 32 | (grid.indexOfClosestRoot(zRe, zIm) + 1);
+    }
+
+    /**
+     * Iterates with f(z) and f'(z) evaluated from expanded coefficients, with the same
+     * operations in the same order as the original {@link ComplexPolynomial} and
+     * {@link Complex} code, so results are bit-identical to it
+     */
+    private long iterateExpanded(double zRe, double zIm, int iterations, float[] smooth, int position) {
+        double[] re = coefficients.re;
+        double[] im = coefficients.im;
+        double[] derivativeRe = coefficients.derivativeRe;
+        double[] derivativeIm = coefficients.derivativeIm;
+        int n = re.length;
+        double module = 0;
+        double previous;
+        int iter = iterations;
+        do {
+            /* z^i is computed in polar form as Complex.power originally did it */
+            double zModule = Math.sqrt(zRe * zRe + zIm * zIm);
+            double angle = Math.atan2(zIm, zRe);
+            if (angle < 0)
+                angle += (2 * Math.PI);
+
+            double numRe = 0, numIm = 0;
+            double denRe = 0, denIm = 0;
+            for (int i = 0; i < n; i++) {
+                double powRe, powIm;
+                if (i == 0) {
+                    powRe = 1;
+                    powIm = 0;
+                } else {
+                    double magnitude = Math.pow(zModule, i);
+                    double a = angle * i;
+                    powRe = magnitude * Math.cos(a);
+                    powIm = magnitude * Math.sin(a);
+                }
+                numRe += re[i] * powRe - (im[i] * powIm);
+                numIm += re[i] * powIm + im[i] * powRe;
+                if (i < n - 1) {
+                    denRe += derivativeRe[i] * powRe - (derivativeIm[i] * powIm);
+                    denIm += derivativeRe[i] * powIm + derivativeIm[i] * powRe;
+                }
+            }
+
+            /* numerator / denominator, multiplied by conjugate as in Complex.divide */
+            double dividendRe = numRe * denRe - (numIm * -denIm);
+            double dividendIm = numRe * -denIm + numIm * denRe;
+            double divisor = denRe * denRe - (denIm * -denIm);
+
+            double oldRe = zRe;
+            double oldIm = zIm;
+            zRe = zRe - dividendRe / divisor;
+            zIm = zIm - dividendIm / divisor;
+            double diffRe = oldRe - zRe;
+            double diffIm = oldIm - zIm;
+            previous = module;
+            module = Math.sqrt(diffRe * diffRe + diffIm * diffIm);
+            iter++;
+        } while (module > convergenceThreshold && iter < maxIterations);
+
+        if (smooth != null)
+            smooth[position] = smoothIterations(iter, previous, module);
+        return (long) iter << 32 | (grid.indexOfClosestRoot(zRe, zIm) + 1);
+    }
+
+    /**
+     * Finds index of closest root within root threshold for given point
+     *
+     * @param zRe real part of point
+     * @param zIm imaginary part of point
+     * @return returns index of closest root or -1 if there is no root within threshold
+     */
+    public int closestRootIndex(double zRe, double zIm) {
+        return grid.indexOfClosestRoot(zRe, zIm);
+    }
+
+    /**
+     * @param result result of {@link #iterate(double, double)}
+     * @return returns root index (starting from 1) or 0 if iteration did not converge
+     */
+    public static int indexOf(long result) {
+        return (int) result;
+    }
+
+    /**
+     * @param result result of {@link #iterate(double, double)}
+     * @return returns number of iterations
+     */
+    public static int iterationsOf(long result) {
+        return (int) (result >>> 32);
+    }
+
+    /**
+     * @param iter number of iterations
+     * @param previous length of the step before the last one, 0 if there was only one step
+     * @param last length of the last step
+     * @return returns smooth iteration count
+     */
+    private float smoothIterations(int iter, double previous, double last) {
+        double t;
+        if (last > convergenceThreshold) {
+            /* did not converge */
+            t = 0;
+        } else if (previous <= convergenceThreshold || last <= 0) {
+            /* converged in the first step or hit a root exactly */
+            t = 1;
+        } else {
+            double logPrevious = Math.log(previous);
+            t = (logPrevious - Math.log(convergenceThreshold)) / (logPrevious - Math.log(last));
+            if (!(t >= 0)) t = 0;
+        }
+        float value = (float) (iter - 1 + t);
+        return value < iter ? value : Math.nextDown((float) iter);
+    }
+
+    private static int checkLengths(double[] re, double[] im, int[] indexes, int[] iterations) {
+        if (re.length != im.length || re.length != indexes.length
+                || (iterations != null && re.length != iterations.length))
+            throw new IllegalArgumentException("Arrays of points, indexes and iterations must be of the same length");
+        return re.length;
+    }
+
+    private static int chunks(int n) {
+        return (n + CHUNK - 1) / CHUNK;
+    }
+}
@@ -0,0 +1,238 @@
+package hr.fer.zemris.math;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Expansion of polynomials given by roots into coefficients and multiplication of
+ * polynomials given by coefficients, with coefficients in pairs of primitive arrays of
+ * real and imaginary parts, coefficient i belonging to z^i.
+ *
+ * Roots are expanded by a product tree: small groups of roots are multiplied out one
+ * linear factor at a time, and partial products are then multiplied pairwise, so both
+ * operands of every multiplication have about the same degree. Every group takes roots
+ * spread around the origin, so partial products stay well scaled. Products of large
+ * polynomials are computed by fast Fourier transform in O(n log n), small ones directly.
+ * Expansion of n roots takes O(n log^2 n) instead of O(n^2).
+ *
+ * Error of a product computed by Fourier transform is bounded relative to the largest
+ * coefficient, like error of direct multiplication, and balanced products of the tree
+ * add fewer rounding errors than multiplying factors one by one.
+ */
+public final class PolynomialExpansion {
+
+    /**
+     * Largest number of roots expanded one linear factor at a time
+     */
+    static final int LEAF_ROOTS = 32;
+
+    /**
+     * Smallest number of coefficients of both operands for which product is computed by
+     * Fourier transform
+     */
+    static final int FFT_COEFFICIENTS = 64;
+
+    private PolynomialExpansion() {
+    }
+
+    /**
+     * Expands monic polynomial (z - r_0)(z - r_1)...(z - r_n-1)
+     *
+     * @param rootRe real parts of roots
+     * @param rootIm imaginary parts of roots
+     * @param re array of length n + 1 into which real parts of coefficients are written
+     * @param im array of length n + 1 into which imaginary parts of coefficients are written
+     * @throws IllegalArgumentException if arrays are not of matching lengths
+     */
+    public static void expand(double[] rootRe, double[] rootIm, double[] re, double[] im) {
+        int n = rootRe.length;
+        if (rootIm.length != n || re.length != n + 1 || im.length != n + 1)
+            throw new IllegalArgumentException("Expected " + n + " roots and " + (n + 1) + " coefficients");
+        double[][] result;
+        if (n <= LEAF_ROOTS) {
+            result = expandLeaf(rootRe, rootIm);
+        } else {
+            /* roots sorted by argument, every subtree takes every other root of its parent */
+            double[] angles = new double[n];
+            Integer[] order = new Integer[n];
+            for (int i = 0; i < n; i++) {
+                angles[i] = Math.atan2(rootIm[i], rootRe[i]);
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparingDouble(i -> angles[i]));
+            double[] sortedRe = new double[n];
+            double[] sortedIm = new double[n];
+            for (int i = 0; i < n; i++) {
+                sortedRe[i] = rootRe[order[i]];
+                sortedIm[i] = rootIm[order[i]];
+            }
+            result = expand(sortedRe, sortedIm);
+        }
+        System.arraycopy(result[0], 0, re, 0, n + 1);
+        System.arraycopy(result[1], 0, im, 0, n + 1);
+    }
+
+    /**
+     * Multiplies two polynomials
+     *
+     * @param aRe real parts of coefficients of the first polynomial
+     * @param aIm imaginary parts of coefficients of the first polynomial
+     * @param bRe real parts of coefficients of the second polynomial
+     * @param bIm imaginary parts of coefficients of the second polynomial
+     * @return returns real and imaginary parts of coefficients of product
+     * @throws IllegalArgumentException if polynomial has no coefficients or parts differ in length
+     */
+    public static double[][] multiply(double[] aRe, double[] aIm, double[] bRe, double[] bIm) {
+        if (aRe.length == 0 || bRe.length == 0 || aRe.length != aIm.length || bRe.length != bIm.length)
+            throw new IllegalArgumentException("Polynomials must have equally many real and imaginary parts of coefficients");
+        if (Math.min(aRe.length, bRe.length) >= FFT_COEFFICIENTS)
+            return multiplyFourier(aRe, aIm, bRe, bIm);
+        return multiplyDirect(aRe, aIm, bRe, bIm);
+    }
+
+    /**
+     * Expands roots sorted by argument. Roots at even and at odd positions are expanded
+     * separately, so both halves are spread around the origin like all roots are. Halves
+     * of contiguous arcs would have coefficients many orders of magnitude larger than
+     * the product, which would be lost to cancellation when halves are multiplied.
+     */
+    private static double[][] expand(double[] rootRe, double[] rootIm) {
+        int n = rootRe.length;
+        if (n <= LEAF_ROOTS)
+            return expandLeaf(rootRe, rootIm);
+        double[] evenRe = new double[(n + 1) / 2], evenIm = new double[(n + 1) / 2];
+        double[] oddRe = new double[n / 2], oddIm = new double[n / 2];
+        for (int i = 0; i < n; i++) {
+            if ((i & 1) == 0) {
+                evenRe[i >> 1] = rootRe[i];
+                evenIm[i >> 1] = rootIm[i];
+            } else {
+                oddRe[i >> 1] = rootRe[i];
+                oddIm[i >> 1] = rootIm[i];
+            }
+        }
+        double[][] even = expand(evenRe, evenIm);
+        double[][] odd = expand(oddRe, oddIm);
+        return multiply(even[0], even[1], odd[0], odd[1]);
+    }
+
+    /**
+     * Multiplies linear factors one by one, in place
+     */
+    private static double[][] expandLeaf(double[] rootRe, double[] rootIm) {
+        int n = rootRe.length;
+        double[] re = new double[n + 1];
+        double[] im = new double[n + 1];
+        re[0] = 1;
+        for (int k = 0; k < n; k++) {
+            double rRe = rootRe[k];
+            double rIm = rootIm[k];
+            for (int i = k + 1; i > 0; i--) {
+                double tmp = re[i - 1] - (re[i] * rRe - im[i] * rIm);
+                im[i] = im[i - 1] - (re[i] * rIm + im[i] * rRe);
+                re[i] = tmp;
+            }
+            double tmp = -(re[0] * rRe - im[0] * rIm);
+            im[0] = -(re[0] * rIm + im[0] * rRe);
+            re[0] = tmp;
+        }
+        return new double[][] {re, im};
+    }
+
+    private static double[][] multiplyDirect(double[] aRe, double[] aIm, double[] bRe, double[] bIm) {
+        int length = aRe.length + bRe.length - 1;
+        double[] re = new double[length];
+        double[] im = new double[length];
+        for (int i = 0; i < aRe.length; i++) {
+            double xRe = aRe[i], xIm = aIm[i];
+            for (int j = 0; j < bRe.length; j++) {
+                re[i + j] += xRe * bRe[j] - xIm * bIm[j];
+                im[i + j] += xRe * bIm[j] + xIm * bRe[j];
+            }
+        }
+        return new double[][] {re, im};
+    }
+
+    private static double[][] multiplyFourier(double[] aRe, double[] aIm, double[] bRe, double[] bIm) {
+        int length = aRe.length + bRe.length - 1;
+        int n = Integer.highestOneBit(length - 1) << 1;
+        double[] cos = new double[n / 2];
+        double[] sin = new double[n / 2];
+        for (int k = 0; k < n / 2; k++) {
+            /* computed directly for every k, recurrences would accumulate error */
+            double angle = 2 * Math.PI * k / n;
+            cos[k] = Math.cos(angle);
+            sin[k] = Math.sin(angle);
+        }
+
+        double[] xRe = new double[n], xIm = new double[n];
+        double[] yRe = new double[n], yIm = new double[n];
+        System.arraycopy(aRe, 0, xRe, 0, aRe.length);
+        System.arraycopy(aIm, 0, xIm, 0, aIm.length);
+        System.arraycopy(bRe, 0, yRe, 0, bRe.length);
+        System.arraycopy(bIm, 0, yIm, 0, bIm.length);
+        transform(xRe, xIm, cos, sin, false);
+        transform(yRe, yIm, cos, sin, false);
+        for (int i = 0; i < n; i++) {
+            double tmp = xRe[i] * yRe[i] - xIm[i] * yIm[i];
+            xIm[i] = xRe[i] * yIm[i] + xIm[i] * yRe[i];
+            xRe[i] = tmp;
+        }
+        transform(xRe, xIm, cos, sin, true);
+
+        double[] re = new double[length];
+        double[] im = new double[length];
+        for (int i = 0; i < length; i++) {
+            re[i] = xRe[i] / n;
+            im[i] = xIm[i] / n;
+        }
+        return new double[][] {re, im};
+    }
+
+    /**
+     * Iterative radix-2 Fourier transform in place, without scaling
+     *
+     * @param re real parts, length is a power of two
+     * @param im imaginary parts
+     * @param cos cosines of 2 pi k / n
+     * @param sin sines of 2 pi k / n
+     * @param inverse true for inverse transform
+     */
+    private static void transform(double[] re, double[] im, double[] cos, double[] sin, boolean inverse) {
+        int n = re.length;
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1)
+                j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                double tmp = re[i];
+                re[i] = re[j];
+                re[j] = tmp;
+                tmp = im[i];
+                im[i] = im[j];
+                im[j] = tmp;
+            }
+        }
+
+        double sign = inverse ? 1 : -1;
+        for (int length = 2; length <= n; length <<= 1) {
+            int half = length >> 1;
+            int step = n / length;
+            for (int start = 0; start < n; start += length) {
+                for (int k = 0; k < half; k++) {
+                    double wRe = cos[k * step];
+                    double wIm = sign * sin[k * step];
+                    int p = start + k;
+                    int q = p + half;
+                    double tRe = re[q] * wRe - im[q] * wIm;
+                    double tIm = re[q] * wIm + im[q] * wRe;
+                    re[q] = re[p] - tRe;
+                    im[q] = im[p] - tIm;
+                    re[p] += tRe;
+                    im[p] += tIm;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package hr.fer.zemris.math;
+
+/**
+ * Uniform grid over roots for classification of points to the closest root within a
+ * fixed threshold. Cells are at least as large as the threshold, so only roots from the
+ * cell of the point and its eight neighbours can be closer than the threshold, and for
+ * roots spread over the plane the grid has about one root per cell. Point is answered in
+ * roughly constant time regardless of number of roots.
+ *
+ * Results are exactly the same as of linear scan comparing sqrt(dRe * dRe + dIm * dIm)
+ * with threshold: roots are filtered by squared distance against a squared bound which
+ * is adjusted so that the filter accepts exactly the same values, and only accepted
+ * candidates are compared by their square root, with ties going to the lower index.
+ *
+ * Grid is immutable and thread safe.
+ */
+public final class RootGrid {
+
+    /**
+     * Relative enlargement of cells, covers rounding of cell coordinates
+     */
+    private static final double CELL_MARGIN = 0x1p-20;
+
+    /**
+     * Largest cell coordinate for which rounding of cell coordinates is negligible
+     */
+    private static final double MAX_CELLS = 0x1p30;
+
+    private final double[] rootRe;
+    private final double[] rootIm;
+    private final double threshold;
+
+    /**
+     * Squared distances smaller than this bound have square root smaller than threshold
+     */
+    private final double bound;
+
+    private final double minRe;
+    private final double minIm;
+    private final double cell;
+    private final int columns;
+    private final int rows;
+
+    /**
+     * Indexes of roots of cell c are cellRoots[cellStart[c]] to cellRoots[cellStart[c + 1] - 1],
+     * null if grid is not used and all roots are scanned
+     */
+    private final int[] cellStart;
+    private final int[] cellRoots;
+
+    /**
+     * Constructing new grid
+     *
+     * @param rootRe real parts of roots
+     * @param rootIm imaginary parts of roots
+     * @param threshold maximal distance of point from root
+     */
+    public RootGrid(double[] rootRe, double[] rootIm, double threshold) {
+        this.rootRe = rootRe;
+        this.rootIm = rootIm;
+        this.threshold = threshold;
+        this.bound = squaredBound(threshold);
+
+        int n = rootRe.length;
+        double minRe = Double.POSITIVE_INFINITY, maxRe = Double.NEGATIVE_INFINITY;
+        double minIm = Double.POSITIVE_INFINITY, maxIm = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minRe = Math.min(minRe, rootRe[i]);
+            maxRe = Math.max(maxRe, rootRe[i]);
+            minIm = Math.min(minIm, rootIm[i]);
+            maxIm = Math.max(maxIm, rootIm[i]);
+        }
+        this.minRe = minRe;
+        this.minIm = minIm;
+
+        double extent = Math.max(maxRe - minRe, maxIm - minIm);
+        double side = Math.ceil(Math.sqrt(n));
+        double cell = Math.max(threshold * (1 + CELL_MARGIN), extent / side);
+        boolean usable = n > 1 && cell > 0 && Double.isFinite(cell)
+                && Math.max(Math.abs(minRe), Math.abs(maxRe)) / cell < MAX_CELLS
+                && Math.max(Math.abs(minIm), Math.abs(maxIm)) / cell < MAX_CELLS;
+        if (!usable) {
+            this.cell = 0;
+            this.columns = 0;
+            this.rows = 0;
+            this.cellStart = null;
+            this.cellRoots = null;
+            return;
+        }
+        this.cell = cell;
+        this.columns = (int) ((maxRe - minRe) / cell) + 1;
+        this.rows = (int) ((maxIm - minIm) / cell) + 1;
+
+        int[] cellOf = new int[n];
+        this.cellStart = new int[columns * rows + 1];
+        for (int i = 0; i < n; i++) {
+            cellOf[i] = cellOf(rootRe[i], rootIm[i]);
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < columns * rows; c++)
+            cellStart[c + 1] += cellStart[c];
+        this.cellRoots = new int[n];
+        int[] next = cellStart.clone();
+        for (int i = 0; i < n; i++)
+            cellRoots[next[cellOf[i]]++] = i;
+    }
+
+    /**
+     * @return returns threshold of this grid
+     */
+    public double getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Finds index of closest root within threshold for given point
+     *
+     * @param zRe real part of point
+     * @param zIm imaginary part of point
+     * @return returns index of closest root or -1 if there is no root within threshold
+     */
+    public int indexOfClosestRoot(double zRe, double zIm) {
+        if (cellStart == null)
+            return scan(zRe, zIm);
+
+        double x = Math.floor((zRe - minRe) / cell);
+        double y = Math.floor((zIm - minIm) / cell);
+        if (!(x >= -1 && x <= columns && y >= -1 && y <= rows))
+            return -1;
+
+        int column = (int) x;
+        int row = (int) y;
+        int index = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+            for (int c = Math.max(0, column - 1); c <= Math.min(columns - 1, column + 1); c++) {
+                int start = cellStart[r * columns + c];
+                int end = cellStart[r * columns + c + 1];
+                for (int k = start; k < end; k++) {
+                    int i = cellRoots[k];
+                    double dRe = rootRe[i] - zRe;
+                    double dIm = rootIm[i] - zIm;
+                    double squared = dRe * dRe + dIm * dIm;
+                    if (squared < bound) {
+                        double distance = Math.sqrt(squared);
+                        if (distance < minDistance || distance == minDistance && i < index) {
+                            index = i;
+                            minDistance = distance;
+                        }
+                    }
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Classifies a row of points, for example final points of one image row
+     *
+     * @param zRe real parts of points
+     * @param zIm imaginary parts of points
+     * @param indexes array into which indexes of closest roots (or -1) are written
+     * @param from index of first point
+     * @param to index after last point
+     */
+    public void indexesOfClosestRoots(double[] zRe, double[] zIm, int[] indexes, int from, int to) {
+        for (int i = from; i < to; i++)
+            indexes[i] = indexOfClosestRoot(zRe[i], zIm[i]);
+    }
+
+    /**
+     * Checks all roots, used when roots can not be put in a grid
+     */
+    private int scan(double zRe, double zIm) {
+        int index = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < rootRe.length; i++) {
+            double dRe = rootRe[i] - zRe;
+            double dIm = rootIm[i] - zIm;
+            double squared = dRe * dRe + dIm * dIm;
+            if (squared < bound) {
+                double distance = Math.sqrt(squared);
+                if (distance < minDistance || distance == minDistance && i < index) {
+                    index = i;
+                    minDistance = distance;
+                }
+            }
+        }
+        return index;
+    }
+
+    private int cellOf(double re, double im) {
+        int column = Math.min(columns - 1, (int) ((re - minRe) / cell));
+        int row = Math.min(rows - 1, (int) ((im - minIm) / cell));
+        return row * columns + column;
+    }
+
+    /**
+     * @return returns the smallest squared distance whose square root is not smaller than
+     * threshold, so that sqrt(s) &lt; threshold exactly when s &lt; bound
+     */
+    private static double squaredBound(double threshold) {
+        if (Double.isNaN(threshold))
+            return Double.NaN;
+        if (threshold <= 0)
+            return 0;
+        double bound = threshold * threshold;
+        if (Math.sqrt(bound) >= threshold) {
+            while (bound > 0 && Math.sqrt(Math.nextDown(bound)) >= threshold)
+                bound = Math.nextDown(bound);
+        } else {
+            while (Math.sqrt(bound) < threshold)
+                bound = Math.nextUp(bound);
+        }
+        return bound;
+    }
+}
@@ -0,0 +1,109 @@
+package hr.fer.zemris.java.fractals;
+
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.ShadedImage;
+import hr.fer.zemris.math.Complex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests that batch renders bands on pixel grid of the whole image, so its images are
+ * the same as images which producers deliver to the viewer
+ */
+class NewtonBatchTest {
+
+    private static final Complex[] ROOTS = {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7)
+    };
+
+    private static final String VIEWPORT = "--viewport=-1.7,2.3,-1.3,1.9";
+    private static final double RE_MIN = -1.7, RE_MAX = 2.3, IM_MIN = -1.3, IM_MAX = 1.9;
+
+    /**
+     * Height for which bands of 64 rows leave a band of one row
+     */
+    private static final int WIDTH = 150, HEIGHT = 129;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void parallelBandsAreIdenticalToViewerImage() throws Exception {
+        for (String adaptive : new String[] {"false", "true"}) {
+            for (String band : new String[] {"2", "64", "100", "1000"}) {
+                Path raw = directory.resolve("parallel-" + adaptive + "-" + band + ".raw");
+                NewtonBatch.render(job("--raw=" + raw, "--band=" + band, "--adaptive=" + adaptive,
+                        "--workers=3", "--tracks=4"));
+
+                NewtonParallel.FractalProducerImpl producer =
+                        new NewtonParallel.FractalProducerImpl(4, 3, new NewtonKernel(ROOTS), Backend.SCALAR);
+                producer.setAdaptive(Boolean.parseBoolean(adaptive));
+                short[][] delivered = new short[1][];
+                producer.produce(RE_MIN, RE_MAX, IM_MIN, IM_MAX, WIDTH, HEIGHT, 1,
+                        (data, limit, requestNo) -> delivered[0] = data.clone(), new AtomicBoolean());
+                assertArrayEquals(delivered[0], readShorts(raw), "adaptive " + adaptive + ", band " + band);
+            }
+        }
+    }
+
+    @Test
+    void sequentialBandsAreIdenticalToViewerImage() throws Exception {
+        Path raw = directory.resolve("sequential.raw");
+        NewtonBatch.render(job("--raw=" + raw, "--band=2", "--producer=sequential"));
+
+        short[][] delivered = new short[1][];
+        new Newton.FractalProducerImpl(new NewtonKernel(ROOTS)).produce(RE_MIN, RE_MAX, IM_MIN, IM_MAX, WIDTH, HEIGHT,
+                1, (data, limit, requestNo) -> delivered[0] = data, new AtomicBoolean());
+        assertArrayEquals(delivered[0], readShorts(raw));
+    }
+
+    @Test
+    void smoothBandsAreIdenticalToWholeImage() throws Exception {
+        Path raw = directory.resolve("smooth.raw");
+        Path smooth = directory.resolve("smooth.f32");
+        NewtonBatch.render(job("--raw=" + raw, "--smooth=" + smooth, "--band=64", "--workers=2", "--tracks=4"));
+
+        ShadedImage image = new NewtonParallel.FractalProducerImpl(4, 2, new NewtonKernel(ROOTS), Backend.SCALAR)
+                .produceShaded(RE_MIN, RE_MAX, IM_MIN, IM_MAX, WIDTH, HEIGHT, new AtomicBoolean());
+        assertArrayEquals(image.getIndexes(), readShorts(raw));
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(smooth));
+        float[] values = new float[buffer.remaining() / 4];
+        buffer.asFloatBuffer().get(values);
+        assertArrayEquals(image.getSmooth(), values);
+    }
+
+    @Test
+    void keyDependsOnAdaptiveAndBackend() throws IOException {
+        NewtonBatch.Job plain = job("--raw=out.raw");
+        assertNotEquals(plain.key(), job("--raw=out.raw", "--adaptive=true").key());
+        assertNotEquals(plain.key(), job("--raw=out.raw", "--backend=vector", "--step=root-product").key());
+        assertNotEquals(job("--raw=out.raw", "--step=root-product").key(),
+                job("--raw=out.raw", "--backend=vector", "--step=root-product").key());
+    }
+
+    private static NewtonBatch.Job job(String... args) throws IOException {
+        String[] all = new String[args.length + 3];
+        all[0] = "--roots=1+i,-1.5+0.25i,0.3-1.2i,0.7i";
+        all[1] = VIEWPORT;
+        all[2] = "--size=" + WIDTH + "x" + HEIGHT;
+        System.arraycopy(args, 0, all, 3, args.length);
+        return NewtonBatch.Job.fromArguments(all);
+    }
+
+    private static short[] readShorts(Path path) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        short[] data = new short[buffer.remaining() / 2];
+        buffer.asShortBuffer().get(data);
+        return data;
+    }
+}
@@ -0,0 +1,79 @@
+package hr.fer.zemris.java.fractals;
+
+import hr.fer.zemris.java.fractals.render.Backend;
+import hr.fer.zemris.java.fractals.render.HeapCanvas;
+import hr.fer.zemris.java.fractals.render.MappedCanvas;
+import hr.fer.zemris.java.fractals.render.NewtonKernel;
+import hr.fer.zemris.java.fractals.render.RenderTicket;
+import hr.fer.zemris.math.Complex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/**
+ * Tests that producers give the same image in heap and memory mapped canvas as the kernel
+ */
+class ProducerCanvasTest {
+
+    private static final int WIDTH = 120;
+    private static final int HEIGHT = 90;
+
+    private static final NewtonKernel KERNEL = new NewtonKernel(new Complex[] {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7)});
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void parallelProducerRendersIntoAnyCanvas() throws IOException {
+        NewtonParallel.FractalProducerImpl producer = new NewtonParallel.FractalProducerImpl(8, 3, KERNEL, Backend.SCALAR);
+        short[] expected = expected();
+
+        short[][] delivered = new short[1][];
+        producer.produce(-2, 2, -1.5, 1.5, WIDTH, HEIGHT, 1, (data, limit, requestNo) -> delivered[0] = data.clone(),
+                new AtomicBoolean());
+        assertArrayEquals(expected, delivered[0]);
+
+        HeapCanvas heap = new HeapCanvas(WIDTH, HEIGHT, 32);
+        producer.render(-2, 2, -1.5, 1.5, heap, new AtomicBoolean());
+        assertArrayEquals(expected, heap.getData());
+
+        try (MappedCanvas mapped = new MappedCanvas(directory.resolve("parallel"), WIDTH, HEIGHT, 32, 1)) {
+            producer.render(-2, 2, -1.5, 1.5, mapped, new AtomicBoolean());
+            assertArrayEquals(expected, read(mapped));
+        }
+    }
+
+    @Test
+    void sequentialProducerRendersIntoAnyCanvas() throws IOException {
+        Newton.FractalProducerImpl producer = new Newton.FractalProducerImpl(KERNEL);
+        short[] expected = expected();
+
+        short[][] delivered = new short[1][];
+        producer.produce(-2, 2, -1.5, 1.5, WIDTH, HEIGHT, 1, (data, limit, requestNo) -> delivered[0] = data,
+                new AtomicBoolean());
+        assertArrayEquals(expected, delivered[0]);
+
+        try (MappedCanvas mapped = new MappedCanvas(directory.resolve("sequential"), WIDTH, HEIGHT, 50, 1)) {
+            producer.render(-2, 2, -1.5, 1.5, mapped, new AtomicBoolean());
+            assertArrayEquals(expected, read(mapped));
+        }
+    }
+
+    private static short[] expected() {
+        short[] data = new short[WIDTH * HEIGHT];
+        KERNEL.render(-2, 2, -1.5, 1.5, WIDTH, HEIGHT, 0, HEIGHT - 1, data, new RenderTicket(0, new AtomicBoolean()));
+        return data;
+    }
+
+    private static short[] read(MappedCanvas canvas) {
+        short[] data = new short[WIDTH * HEIGHT];
+        canvas.readRows(0, HEIGHT, data);
+        return data;
+    }
+}
@@ -0,0 +1,82 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.Complex;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Regression tests of {@link AdaptiveRenderer} against brute-force {@link NewtonKernel}
+ * on the root sets of {@link NewtonKernelTest}, viewport [-2, 2] x [-2, 2]
+ */
+class AdaptiveRendererTest {
+
+    private static final Complex[] UNITY = {
+            new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)
+    };
+
+    private static final Complex[] CUBIC = {
+            new Complex(1, 0), new Complex(-0.5, Math.sqrt(3) / 2), new Complex(-0.5, -Math.sqrt(3) / 2)
+    };
+
+    private static final Complex[] MIXED = {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7),
+            new Complex(-0.4, -0.4)
+    };
+
+    @Test
+    void defaultToleranceIsPixelIdenticalToBruteForce() {
+        for (Complex[] roots : new Complex[][] {UNITY, CUBIC, MIXED}) {
+            for (int size : new int[] {200, 600}) {
+                for (int tile : new int[] {size, 64, 37}) {
+                    NewtonKernel kernel = new NewtonKernel(roots);
+                    assertEquals(0, differences(kernel, new AdaptiveRenderer(kernel), size, tile),
+                            roots.length + " roots, " + size + "x" + size + ", tile " + tile);
+                }
+            }
+        }
+    }
+
+    @Test
+    void engineRendersLikeBruteForce() {
+        NewtonKernel kernel = new NewtonKernel(MIXED);
+        int size = 300;
+        short[] expected = new short[size * size];
+        kernel.render(-2, 2, -2, 2, size, size, 0, size - 1, expected, new RenderTicket(0, new AtomicBoolean()));
+
+        RenderEngine engine = new RenderEngine(3);
+        try {
+            short[] data = new short[size * size];
+            engine.render(new AdaptiveRenderer(kernel), -2, 2, -2, 2, size, size, 12, data,
+                    new RenderTicket(0, new AtomicBoolean()));
+            for (int i = 0; i < data.length; i++)
+                assertEquals(expected[i], data[i], "pixel " + i);
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * @return returns number of pixels in which renderer differs from kernel when image is
+     * rendered in square tiles of given size
+     */
+    private static int differences(NewtonKernel kernel, TileRenderer renderer, int size, int tile) {
+        RenderTicket ticket = new RenderTicket(0, new AtomicBoolean());
+        short[] expected = new short[size * size];
+        kernel.render(-2, 2, -2, 2, size, size, 0, size - 1, expected, ticket);
+        short[] data = new short[size * size];
+        for (int y = 0; y < size; y += tile) {
+            for (int x = 0; x < size; x += tile)
+                renderer.renderTile(-2, 2, -2, 2, size, size, x, Math.min(x + tile, size) - 1,
+                        y, Math.min(y + tile, size) - 1, data, y * size + x, size, ticket);
+        }
+        int different = 0;
+        for (int i = 0; i < data.length; i++) {
+            if (data[i] != expected[i])
+                different++;
+        }
+        return different;
+    }
+}
@@ -0,0 +1,114 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RenderStatistics;
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.NewtonStep;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests of {@link Backend}. Vector kernel is compared with scalar kernel only when tests
+ * run with profile vector ({@code mvn -Pvector test} on JDK 17 or newer), otherwise those
+ * tests are skipped.
+ */
+class BackendTest {
+
+    private static final Complex[] UNITY = {
+            new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)
+    };
+
+    private static final Complex[] CUBIC = {
+            new Complex(1, 0), new Complex(-0.5, Math.sqrt(3) / 2), new Complex(-0.5, -Math.sqrt(3) / 2)
+    };
+
+    private static final Complex[] MIXED = {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7),
+            new Complex(-0.4, -0.4)
+    };
+
+    /**
+     * Width which is not a multiple of any vector length, so every row has remainder pixels
+     */
+    private static final int WIDTH = 203;
+
+    private static final int HEIGHT = 200;
+
+    @Test
+    void scalarBackendReturnsKernel() {
+        NewtonKernel kernel = new NewtonKernel(UNITY);
+        assertSame(kernel, Backend.SCALAR.create(kernel));
+    }
+
+    @Test
+    void vectorBackendRejectsExpandedStep() {
+        assertThrows(IllegalArgumentException.class, () -> Backend.VECTOR.create(new NewtonKernel(UNITY)));
+        assertThrows(IllegalArgumentException.class, () -> Backend.VECTOR.checkStep(NewtonStep.EXPANDED));
+        Backend.VECTOR.checkStep(NewtonStep.ROOT_PRODUCT);
+        Backend.SCALAR.checkStep(NewtonStep.EXPANDED);
+    }
+
+    @Test
+    void vectorBackendIsPixelIdenticalToRootProductKernel() {
+        assumeVector();
+        for (Complex[] roots : new Complex[][] {UNITY, CUBIC, MIXED}) {
+            NewtonKernel kernel = new NewtonKernel(roots, NewtonStep.ROOT_PRODUCT);
+            TileRenderer vector = Backend.VECTOR.create(kernel);
+            assertNotSame(kernel, vector);
+            for (int tile : new int[] {WIDTH, 64, 37}) {
+                assertArrayEquals(render(kernel, tile, null), render(vector, tile, null),
+                        roots.length + " roots, tile " + tile);
+            }
+        }
+    }
+
+    @Test
+    void vectorBackendRecordsSameIterationsAsScalarKernel() {
+        assumeVector();
+        NewtonKernel kernel = new NewtonKernel(MIXED, NewtonStep.ROOT_PRODUCT);
+        RequestMetrics scalarMetrics = new RequestMetrics(0, WIDTH, HEIGHT, 1);
+        RequestMetrics vectorMetrics = new RequestMetrics(0, WIDTH, HEIGHT, 1);
+        render(kernel, 37, scalarMetrics);
+        render(Backend.VECTOR.create(kernel), 37, vectorMetrics);
+
+        RenderStatistics scalar = scalarMetrics.finish(false);
+        RenderStatistics vector = vectorMetrics.finish(false);
+        assertEquals(WIDTH * HEIGHT, vector.getPixels());
+        assertEquals(scalar.getIterations(), vector.getIterations());
+        assertEquals(scalar.getNonConverged(), vector.getNonConverged());
+        assertArrayEquals(scalar.getHistogram(), vector.getHistogram());
+    }
+
+    @Test
+    void vectorKernelsOfEqualKernelsAreEqual() {
+        assumeVector();
+        TileRenderer first = Backend.VECTOR.create(new NewtonKernel(CUBIC, NewtonStep.ROOT_PRODUCT));
+        TileRenderer second = Backend.VECTOR.create(new NewtonKernel(CUBIC, NewtonStep.ROOT_PRODUCT));
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+    }
+
+    private static void assumeVector() {
+        assumeTrue(!(Backend.VECTOR.create(new NewtonKernel(UNITY, NewtonStep.ROOT_PRODUCT)) instanceof NewtonKernel),
+                "Vector backend is available only with profile vector");
+    }
+
+    private static short[] render(TileRenderer renderer, int tile, RequestMetrics metrics) {
+        RenderTicket ticket = new RenderTicket(0, new AtomicBoolean(), metrics);
+        short[] data = new short[WIDTH * HEIGHT];
+        for (int y = 0; y < HEIGHT; y += tile) {
+            for (int x = 0; x < WIDTH; x += tile)
+                renderer.renderTile(-2, 2, -2, 2, WIDTH, HEIGHT, x, Math.min(x + tile, WIDTH) - 1,
+                        y, Math.min(y + tile, HEIGHT) - 1, data, y * WIDTH + x, WIDTH, ticket);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,72 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.Complex;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BandCanvasTest {
+
+    private static final NewtonKernel KERNEL = new NewtonKernel(new Complex[] {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7)});
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 90;
+
+    @Test
+    void tilesOutsideOfBandAreDone() {
+        BandCanvas band = new BandCanvas(WIDTH, HEIGHT, 16, 32, 32, null);
+        assertTrue(band.isTileDone(0, 1));
+        assertFalse(band.isTileDone(0, 2));
+        assertFalse(band.isTileDone(6, 3));
+        assertTrue(band.isTileDone(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> band.writeTile(0, 4, new short[256], 16));
+    }
+
+    @Test
+    void bandMustBeAlignedToTiles() {
+        assertThrows(IllegalArgumentException.class, () -> new BandCanvas(WIDTH, HEIGHT, 16, 8, 32, null));
+        assertThrows(IllegalArgumentException.class, () -> new BandCanvas(WIDTH, HEIGHT, 16, 0, 20, null));
+        assertThrows(IllegalArgumentException.class, () -> new BandCanvas(WIDTH, HEIGHT, 16, 80, 16, null));
+        /* the last band ends at the bottom of image */
+        new BandCanvas(WIDTH, HEIGHT, 16, 80, 10, null);
+    }
+
+    @Test
+    void bandsAreRenderedOnPixelGridOfWholeImage() {
+        short[] expected = new short[WIDTH * HEIGHT];
+        KERNEL.render(-1.7, 2.3, -1.3, 1.9, WIDTH, HEIGHT, 0, HEIGHT - 1, expected, new RenderTicket(0, new AtomicBoolean()));
+
+        RenderEngine engine = new RenderEngine(3);
+        try {
+            for (int y = 0; y < HEIGHT; y += 32) {
+                int rows = Math.min(32, HEIGHT - y);
+                int firstRow = y;
+                BandCanvas band = new BandCanvas(WIDTH, HEIGHT, 16, firstRow, rows, null);
+                TileRenderer checked = (reMin, reMax, imMin, imMax, width, height, xMin, xMax, yMin, yMax,
+                                        data, offset, stride, ticket) -> {
+                    assertEquals(HEIGHT, height);
+                    assertEquals(-1.3, imMin);
+                    assertTrue(yMin >= firstRow && yMax < firstRow + rows, "Rows " + yMin + " to " + yMax);
+                    KERNEL.renderTile(reMin, reMax, imMin, imMax, width, height, xMin, xMax, yMin, yMax,
+                            data, offset, stride, ticket);
+                };
+                engine.render(checked, -1.7, 2.3, -1.3, 1.9, band, new RenderTicket(0, new AtomicBoolean()));
+                assertArrayEquals(Arrays.copyOfRange(expected, y * WIDTH, (y + rows) * WIDTH), band.getData());
+
+                short[] read = new short[WIDTH * 2];
+                band.readRows(y + 1, 2, read);
+                assertArrayEquals(Arrays.copyOfRange(expected, (y + 1) * WIDTH, (y + 3) * WIDTH), read);
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+}
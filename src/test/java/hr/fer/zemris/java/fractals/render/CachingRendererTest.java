@@ -0,0 +1,85 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.Complex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link CachingRenderer} and keys of {@link TileCache}
+ */
+class CachingRendererTest {
+
+    private static final int SIZE = 150;
+
+    private static final NewtonKernel KERNEL = new NewtonKernel(new Complex[] {
+            new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)});
+
+    private final RenderEngine engine = new RenderEngine(3);
+
+    @AfterEach
+    void shutdown() {
+        engine.shutdown();
+    }
+
+    @Test
+    void cachedTilesGiveSamePixelsAsFreshRender() {
+        TileCache cache = new TileCache(64L << 20);
+        CachingRenderer caching = new CachingRenderer(engine, cache, 32);
+        render(caching, KERNEL, 0);
+
+        /* pan by a fifth of the image, most of the tiles are hits */
+        long misses = cache.getMisses();
+        short[] panned = render(caching, KERNEL, 0.8);
+        assertTrue(cache.getHits() > 0);
+        assertTrue(cache.getMisses() - misses < cache.getHits());
+
+        short[] fresh = render(new CachingRenderer(engine, new TileCache(64L << 20), 32), KERNEL, 0.8);
+        assertArrayEquals(fresh, panned);
+
+        /* the second render of the same viewport consists only of hits */
+        misses = cache.getMisses();
+        assertArrayEquals(fresh, render(caching, KERNEL, 0.8));
+        assertEquals(misses, cache.getMisses());
+    }
+
+    @Test
+    void tilesOfDifferentRenderersAreNotShared() {
+        TileCache cache = new TileCache(64L << 20);
+        CachingRenderer caching = new CachingRenderer(engine, cache, 32);
+        render(caching, KERNEL, 0);
+
+        long hits = cache.getHits();
+        short[] adaptive = render(caching, new AdaptiveRenderer(KERNEL), 0);
+        assertEquals(hits, cache.getHits());
+        assertArrayEquals(render(new CachingRenderer(engine, new TileCache(64L << 20), 32),
+                new AdaptiveRenderer(KERNEL), 0), adaptive);
+
+        /* equal renderers share tiles */
+        hits = cache.getHits();
+        render(caching, new AdaptiveRenderer(KERNEL), 0);
+        assertTrue(cache.getHits() > hits);
+    }
+
+    @Test
+    void keysOfDifferentRenderersDiffer() {
+        TileCache.Key scalar = new TileCache.Key(KERNEL, KERNEL, 3, 1, 2);
+        TileCache.Key adaptive = new TileCache.Key(new AdaptiveRenderer(KERNEL), KERNEL, 3, 1, 2);
+        assertNotEquals(scalar, adaptive);
+        assertEquals(adaptive, new TileCache.Key(new AdaptiveRenderer(KERNEL), KERNEL, 3, 1, 2));
+        assertNotEquals(adaptive, new TileCache.Key(new AdaptiveRenderer(KERNEL, 5), KERNEL, 3, 1, 2));
+    }
+
+    private static short[] render(CachingRenderer caching, TileRenderer renderer, double shift) {
+        short[] data = new short[SIZE * SIZE];
+        caching.render(renderer, KERNEL, -2 + shift, 2 + shift, -2, 2, SIZE, SIZE, data,
+                new RenderTicket(0, new AtomicBoolean()));
+        return data;
+    }
+}
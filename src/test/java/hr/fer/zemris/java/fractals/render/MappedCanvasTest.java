@@ -0,0 +1,170 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.Complex;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link MappedCanvas}
+ */
+class MappedCanvasTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tilesAreMarkedDoneWhenWritten() throws IOException {
+        try (MappedCanvas canvas = new MappedCanvas(directory.resolve("canvas"), 10, 7, 4, 1)) {
+            assertEquals(3, canvas.getTilesX());
+            assertEquals(2, canvas.getTilesY());
+            assertFalse(canvas.isResumed());
+            assertEquals(0, canvas.countDoneTiles());
+
+            canvas.writeTile(2, 1, tile(4, 2, 3, 100), 4);
+            assertTrue(canvas.isTileDone(2, 1));
+            assertFalse(canvas.isTileDone(1, 1));
+            assertFalse(canvas.isTileDone(2, 0));
+            assertEquals(1, canvas.countDoneTiles());
+
+            /* last tile is 2x3 pixels, in columns 8..9 and rows 4..6 */
+            short[] rows = new short[3 * 10];
+            canvas.readRows(4, 3, rows);
+            for (int y = 0; y < 3; y++) {
+                for (int x = 0; x < 10; x++)
+                    assertEquals(x < 8 ? 0 : 100 + y * 2 + x - 8, rows[y * 10 + x], "pixel " + x + ", " + y);
+            }
+        }
+    }
+
+    @Test
+    void canvasOfTheSameJobIsResumed() throws IOException {
+        Path path = directory.resolve("canvas");
+        try (MappedCanvas canvas = new MappedCanvas(path, 10, 7, 4, 42)) {
+            canvas.writeTile(0, 0, tile(4, 4, 4, 1), 4);
+            canvas.writeTile(1, 1, tile(4, 4, 3, 50), 4);
+        }
+        try (MappedCanvas canvas = new MappedCanvas(path, 10, 7, 4, 42)) {
+            assertTrue(canvas.isResumed());
+            assertEquals(2, canvas.countDoneTiles());
+            assertTrue(canvas.isTileDone(0, 0));
+            assertTrue(canvas.isTileDone(1, 1));
+            assertFalse(canvas.isTileDone(0, 1));
+            short[] row = new short[10];
+            canvas.readRows(5, 1, row);
+            assertArrayEquals(new short[] {0, 0, 0, 0, 54, 55, 56, 57, 0, 0}, row);
+        }
+    }
+
+    @Test
+    void canvasOfAnotherJobIsCleared() throws IOException {
+        Path path = directory.resolve("canvas");
+        try (MappedCanvas canvas = new MappedCanvas(path, 10, 7, 4, 42)) {
+            canvas.writeTile(0, 0, tile(4, 4, 4, 1), 4);
+        }
+        try (MappedCanvas canvas = new MappedCanvas(path, 10, 7, 4, 43)) {
+            assertFalse(canvas.isResumed());
+            assertEquals(0, canvas.countDoneTiles());
+            short[] row = new short[10];
+            canvas.readRows(0, 1, row);
+            assertArrayEquals(new short[10], row);
+        }
+        try (MappedCanvas canvas = new MappedCanvas(path, 10, 8, 4, 43)) {
+            assertFalse(canvas.isResumed());
+        }
+    }
+
+    @Test
+    void tilesAcrossSegmentBoundaryAreKept() throws IOException {
+        /* data of rows from 16384 on start in the second segment of 1 GiB */
+        int width = 32768;
+        int height = 16390;
+        int tileSize = 100;
+        Path path = directory.resolve("large");
+        short[] left = tile(tileSize, tileSize, tileSize, 1000);
+        short[] right = tile(tileSize, 68, tileSize, 20000);
+        try (MappedCanvas canvas = new MappedCanvas(path, width, height, tileSize, 7)) {
+            assertTrue(2L * width * height > 1L << 30);
+            /* tile row 163 covers rows 16300..16389 */
+            canvas.writeTile(0, 163, left, tileSize);
+            canvas.writeTile(327, 163, right, tileSize);
+        }
+        try (MappedCanvas canvas = new MappedCanvas(path, width, height, tileSize, 7)) {
+            assertTrue(canvas.isResumed());
+            assertTrue(canvas.isTileDone(0, 163));
+            assertTrue(canvas.isTileDone(327, 163));
+            assertEquals(2, canvas.countDoneTiles());
+            short[] rows = new short[2 * width];
+            canvas.readRows(16383, 2, rows);
+            for (int y = 0; y < 2; y++) {
+                int row = 16383 - 16300 + y;
+                for (int x = 0; x < tileSize; x++)
+                    assertEquals(left[row * tileSize + x], rows[y * width + x]);
+                for (int x = 0; x < 68; x++)
+                    assertEquals(right[row * tileSize + x], rows[y * width + 32700 + x]);
+                assertEquals(0, rows[y * width + 200]);
+            }
+        }
+    }
+
+    @Test
+    void engineRendersResumedCanvasLikeKernel() throws IOException {
+        NewtonKernel kernel = new NewtonKernel(new Complex[] {
+                new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)});
+        int width = 90;
+        int height = 70;
+        short[] expected = new short[width * height];
+        kernel.render(-2, 2, -1.5, 1.5, width, height, 0, height - 1, expected, new RenderTicket(0, new AtomicBoolean()));
+
+        Path path = directory.resolve("canvas");
+        RenderEngine engine = new RenderEngine(3);
+        try {
+            /* the first run is cancelled when the fifth tile starts */
+            AtomicBoolean cancel = new AtomicBoolean();
+            AtomicInteger started = new AtomicInteger();
+            try (MappedCanvas canvas = new MappedCanvas(path, width, height, 16, 5)) {
+                TileRenderer cancelling = (reMin, reMax, imMin, imMax, w, h, xMin, xMax, yMin, yMax, data, offset, stride, ticket) -> {
+                    if (started.incrementAndGet() == 5)
+                        cancel.set(true);
+                    kernel.renderTile(reMin, reMax, imMin, imMax, w, h, xMin, xMax, yMin, yMax, data, offset, stride, ticket);
+                };
+                engine.render(cancelling, -2, 2, -1.5, 1.5, canvas, new RenderTicket(0, cancel));
+            }
+            try (MappedCanvas canvas = new MappedCanvas(path, width, height, 16, 5)) {
+                assertTrue(canvas.isResumed());
+                long done = canvas.countDoneTiles();
+                assertTrue(done > 0 && done < 30, done + " tiles done");
+                engine.render(kernel, -2, 2, -1.5, 1.5, canvas, new RenderTicket(0, new AtomicBoolean()));
+                assertEquals(30, canvas.countDoneTiles());
+                short[] data = new short[width * height];
+                canvas.readRows(0, height, data);
+                assertArrayEquals(expected, data);
+            }
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    /**
+     * @return returns tile of given size with stride whose pixels are numbered from first
+     */
+    private static short[] tile(int stride, int width, int height, int first) {
+        short[] tile = new short[stride * height];
+        Arrays.fill(tile, (short) -1);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++)
+                tile[y * stride + x] = (short) (first + y * width + x);
+        }
+        return tile;
+    }
+}
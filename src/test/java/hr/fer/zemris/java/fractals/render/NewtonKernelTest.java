@@ -0,0 +1,101 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.NewtonStep;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regression tests of {@link NewtonKernel} against images of the original producers,
+ * 200x200 pixels of viewport [-2, 2] x [-2, 2]. Expected checksums were computed by the
+ * original {@code Newton.FractalProducerImpl}.
+ */
+class NewtonKernelTest {
+
+    private static final Complex[] UNITY = {
+            new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)
+    };
+
+    private static final Complex[] CUBIC = {
+            new Complex(1, 0), new Complex(-0.5, Math.sqrt(3) / 2), new Complex(-0.5, -Math.sqrt(3) / 2)
+    };
+
+    private static final Complex[] MIXED = {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7),
+            new Complex(-0.4, -0.4)
+    };
+
+    private static final int SIZE = 200;
+
+    @Test
+    void expandedStepIsPixelIdenticalToOriginalProducer() {
+        assertEquals(0x7e7036c2L, checksum(render(new NewtonKernel(UNITY))));
+        assertEquals(0xb4dceb96L, checksum(render(new NewtonKernel(CUBIC))));
+        assertEquals(0x5cc8890dL, checksum(render(new NewtonKernel(MIXED))));
+    }
+
+    @Test
+    void expandedStepIsDefault() {
+        assertEquals(NewtonStep.EXPANDED, new NewtonKernel(UNITY).getStep());
+    }
+
+    @Test
+    void rootProductStepDiffersOnlyOnBasinBoundaries() {
+        short[] expanded = render(new NewtonKernel(UNITY));
+        short[] roots = render(new NewtonKernel(UNITY, NewtonStep.ROOT_PRODUCT));
+        int different = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int i = y * SIZE + x;
+                if (expanded[i] == roots[i])
+                    continue;
+                different++;
+                /* basins of roots 1, -1, i, -i meet on the diagonals */
+                assertTrue(Math.abs(Math.abs(x - (SIZE - 1) / 2.0) - Math.abs(y - (SIZE - 1) / 2.0)) < 2,
+                        "Pixel (" + x + ", " + y + ") is not on a diagonal");
+            }
+        }
+        assertTrue(different <= SIZE * SIZE / 100, different + " pixels differ");
+    }
+
+    @Test
+    void rootProductStepGivesSameImageForAsymmetricRoots() {
+        assertEquals(0xb4dceb96L, checksum(render(new NewtonKernel(CUBIC, NewtonStep.ROOT_PRODUCT))));
+        assertEquals(0x5cc8890dL, checksum(render(new NewtonKernel(MIXED, NewtonStep.ROOT_PRODUCT))));
+    }
+
+    @Test
+    void kernelsWithDifferentStepsAreNotEqual() {
+        assertNotEquals(new NewtonKernel(UNITY), new NewtonKernel(UNITY, NewtonStep.ROOT_PRODUCT));
+    }
+
+    @Test
+    void cancelledRequestRendersNothing() {
+        short[] data = new short[SIZE * SIZE];
+        new NewtonKernel(UNITY).render(-2, 2, -2, 2, SIZE, SIZE, 0, SIZE - 1, data,
+                new RenderTicket(0, new AtomicBoolean(true)));
+        for (short value : data)
+            assertEquals(0, value);
+    }
+
+    private static short[] render(NewtonKernel kernel) {
+        short[] data = new short[SIZE * SIZE];
+        kernel.render(-2, 2, -2, 2, SIZE, SIZE, 0, SIZE - 1, data, new RenderTicket(0, new AtomicBoolean()));
+        return data;
+    }
+
+    private static long checksum(short[] data) {
+        CRC32 crc = new CRC32();
+        for (short value : data) {
+            crc.update(value >> 8);
+            crc.update(value);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,94 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.math.Complex;
+import hr.fer.zemris.math.DoubleDouble;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link PerturbationRenderer} against {@link NewtonKernel} on viewports which
+ * plain double still renders exactly, with root sets of {@link NewtonKernelTest}
+ */
+class PerturbationRendererTest {
+
+    private static final Complex[] UNITY = {
+            new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)
+    };
+
+    private static final Complex[] CUBIC = {
+            new Complex(1, 0), new Complex(-0.5, Math.sqrt(3) / 2), new Complex(-0.5, -Math.sqrt(3) / 2)
+    };
+
+    private static final Complex[] MIXED = {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7),
+            new Complex(-0.4, -0.4)
+    };
+
+    /**
+     * Viewports reMin, reMax, imMin, imMax from 0.4 down to 1e-9 wide
+     */
+    private static final double[][] VIEWPORTS = {
+            {-0.3, 0.1, 0.2, 0.6},
+            {0.4, 0.4001, -0.3, -0.2999},
+            {-0.6, -0.599999, 0.35, 0.350001},
+            {0.1234, 0.1234 + 1e-9, 0.3, 0.3 + 1e-9}
+    };
+
+    private static final int SIZE = 200;
+
+    @Test
+    void moderateZoomIsPixelIdenticalToKernel() {
+        for (Complex[] roots : new Complex[][] {UNITY, CUBIC, MIXED}) {
+            NewtonKernel kernel = new NewtonKernel(roots);
+            for (double[] viewport : VIEWPORTS) {
+                assertArrayEquals(render(kernel, viewport), render(perturbation(kernel, viewport), viewport),
+                        roots.length + " roots, viewport from " + viewport[0] + " " + viewport[2]);
+            }
+        }
+    }
+
+    @Test
+    void orbitEndsAtCriticalPoint() {
+        /* S(0) = 0 for roots of unity, so Newton step from 0 is not defined */
+        assertEquals(0, ReferenceOrbit.compute(new NewtonKernel(UNITY), DoubleDouble.ZERO, DoubleDouble.ZERO).length());
+    }
+
+    @Test
+    void referenceAtCriticalPointFallsBackToDouble() {
+        double[] viewport = {-2, 2, -2, 2};
+        NewtonKernel cubic = new NewtonKernel(CUBIC);
+        assertArrayEquals(render(cubic, viewport), render(perturbation(cubic, viewport), viewport));
+
+        /* pixels are offsets from center, so rounding of coordinates differs and only diagonal boundaries change */
+        NewtonKernel unity = new NewtonKernel(UNITY);
+        short[] expected = render(unity, viewport);
+        short[] actual = render(perturbation(unity, viewport), viewport);
+        int different = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                if (expected[y * SIZE + x] == actual[y * SIZE + x])
+                    continue;
+                different++;
+                assertTrue(Math.abs(Math.abs(x - (SIZE - 1) / 2.0) - Math.abs(y - (SIZE - 1) / 2.0)) < 2,
+                        "Pixel (" + x + ", " + y + ") is not on a diagonal");
+            }
+        }
+        assertTrue(different <= SIZE * SIZE / 100, different + " pixels differ");
+    }
+
+    private static PerturbationRenderer perturbation(NewtonKernel kernel, double[] viewport) {
+        return PerturbationRenderer.create(kernel, viewport[0], viewport[1], viewport[2], viewport[3], SIZE, SIZE);
+    }
+
+    private static short[] render(TileRenderer renderer, double[] viewport) {
+        short[] data = new short[SIZE * SIZE];
+        renderer.renderTile(viewport[0], viewport[1], viewport[2], viewport[3], SIZE, SIZE, 0, SIZE - 1, 0, SIZE - 1,
+                data, 0, SIZE, new RenderTicket(0, new AtomicBoolean()));
+        return data;
+    }
+}
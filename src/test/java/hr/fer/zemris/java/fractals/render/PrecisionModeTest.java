@@ -0,0 +1,30 @@
+package hr.fer.zemris.java.fractals.render;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PrecisionModeTest {
+
+    @Test
+    void doubleIsUsedDownToRelativeSpacingLimit() {
+        assertEquals(PrecisionMode.DOUBLE, PrecisionMode.forViewport(0, 0, 4.0 / 199));
+        assertEquals(PrecisionMode.DOUBLE, PrecisionMode.forViewport(0, 0, PrecisionMode.DOUBLE_LIMIT));
+        assertEquals(PrecisionMode.DOUBLE_DOUBLE, PrecisionMode.forViewport(0, 0, Math.nextDown(PrecisionMode.DOUBLE_LIMIT)));
+    }
+
+    @Test
+    void doubleDoubleIsUsedDownToItsLimit() {
+        assertEquals(PrecisionMode.DOUBLE_DOUBLE, PrecisionMode.forViewport(0.5, -0.5, PrecisionMode.DOUBLE_DOUBLE_LIMIT));
+        assertEquals(PrecisionMode.ARBITRARY,
+                PrecisionMode.forViewport(0.5, -0.5, Math.nextDown(PrecisionMode.DOUBLE_DOUBLE_LIMIT)));
+    }
+
+    @Test
+    void spacingIsRelativeToMagnitudeOfCenter() {
+        /* the larger part of center counts, but never less than 1 */
+        assertEquals(PrecisionMode.DOUBLE, PrecisionMode.forViewport(-1000, 3, 1e-9));
+        assertEquals(PrecisionMode.DOUBLE_DOUBLE, PrecisionMode.forViewport(3, -1000, 0.9e-9));
+        assertEquals(PrecisionMode.DOUBLE_DOUBLE, PrecisionMode.forViewport(1e-6, 1e-6, 0.9e-12));
+    }
+}
@@ -0,0 +1,89 @@
+package hr.fer.zemris.java.fractals.render;
+
+import hr.fer.zemris.java.fractals.metrics.RequestMetrics;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class RenderScopeTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @Test
+    void runsAllJobs() {
+        AtomicInteger done = new AtomicInteger();
+        RenderScope scope = new RenderScope(Thread::new, 2, new RenderTicket(0, new AtomicBoolean()));
+        for (int i = 0; i < 10; i++)
+            scope.fork(done::incrementAndGet);
+        assertTimeoutPreemptively(TIMEOUT, scope::join);
+        assertEquals(10, done.get());
+    }
+
+    @Test
+    void jobsRunInWorkerSlots() {
+        Set<String> names = ConcurrentHashMap.newKeySet();
+        RenderScope scope = new RenderScope(Thread::new, 3, new RenderTicket(0, new AtomicBoolean()));
+        for (int i = 0; i < 50; i++)
+            scope.fork(() -> names.add(Thread.currentThread().getName()));
+        assertTimeoutPreemptively(TIMEOUT, scope::join);
+        for (String name : names)
+            assertTrue(name.matches(RenderScope.THREAD_NAME + "[0-2]"), name);
+    }
+
+    @Test
+    void busyTimeIsMeasuredPerWorkerSlot() {
+        RequestMetrics metrics = new RequestMetrics(0, 1, 1, 3);
+        RenderScope scope = new RenderScope(Thread::new, 3, new RenderTicket(0, new AtomicBoolean()));
+        for (int i = 0; i < 50; i++)
+            scope.fork(() -> metrics.recordTile(0, 1));
+        assertTimeoutPreemptively(TIMEOUT, scope::join);
+        assertTrue(metrics.finish(false).getBusyNanos().size() <= 3);
+    }
+
+    @Test
+    void failedThreadCreationFailsScopeWithoutHanging() {
+        AtomicInteger created = new AtomicInteger();
+        RuntimeException rejected = new RuntimeException("no more threads");
+        ThreadFactory factory = job -> {
+            if (created.incrementAndGet() > 3)
+                throw rejected;
+            return new Thread(job);
+        };
+        RenderTicket ticket = new RenderTicket(0, new AtomicBoolean());
+        AtomicInteger done = new AtomicInteger();
+        RenderScope scope = new RenderScope(factory, 2, ticket);
+        for (int i = 0; i < 10; i++)
+            scope.fork(done::incrementAndGet);
+
+        RuntimeException e = assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(RuntimeException.class, scope::join));
+        assertSame(rejected, e);
+        assertEquals(3, done.get());
+        assertTrue(ticket.isCancelled());
+    }
+
+    @Test
+    void rejectedJobFailsScope() {
+        RenderScope scope = new RenderScope(job -> null, 2, new RenderTicket(0, new AtomicBoolean()));
+        scope.fork(() -> { });
+        assertTimeoutPreemptively(TIMEOUT, () -> assertThrows(IllegalStateException.class, scope::join));
+    }
+
+    @Test
+    void unavailableVirtualModeIsRejected() {
+        assumeTrue(ExecutionMode.virtualThreadFactory() == null, "Virtual threads are available");
+        assertThrows(IllegalArgumentException.class, ExecutionMode.VIRTUAL::checkAvailable);
+        assertThrows(IllegalArgumentException.class, () -> new RenderEngine(1, 64, ExecutionMode.VIRTUAL));
+    }
+}
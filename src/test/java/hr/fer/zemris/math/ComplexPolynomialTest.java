@@ -0,0 +1,146 @@
+package hr.fer.zemris.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link ComplexPolynomial#multiply} on both sides of
+ * {@link PolynomialExpansion#FFT_COEFFICIENTS}, against products computed exactly
+ * in {@link BigDecimal}.
+ */
+class ComplexPolynomialTest {
+
+    /**
+     * Largest allowed error of a coefficient of product, relative to the largest coefficient
+     */
+    private static final double MAX_RELATIVE_ERROR = 1e-14;
+
+    @Test
+    void productsAroundFourierCutoverMatchExactProduct() {
+        int cutover = PolynomialExpansion.FFT_COEFFICIENTS;
+        int[][] sizes = {
+                {cutover - 1, cutover - 1}, {cutover - 1, 300}, {cutover, cutover}, {cutover, cutover + 1},
+                {cutover + 1, 200}, {128, 128}, {129, 129}, {500, 700}
+        };
+        Random random = new Random(17);
+        for (int[] size : sizes) {
+            Complex[] a = randomFactors(random, size[0]);
+            Complex[] b = randomFactors(random, size[1]);
+            Complex[] product = new ComplexPolynomial(a).multiply(new ComplexPolynomial(b)).getFactors();
+            double error = relativeError(product, exactProduct(a, b));
+            assertTrue(error < MAX_RELATIVE_ERROR, size[0] + " x " + size[1] + " coefficients: relative error " + error);
+        }
+    }
+
+    @Test
+    void fourierProductOfExpandedRootsMatchesExactProduct() {
+        /* coefficients of expanded roots span many orders of magnitude and cancel in the product,
+           so error is bounded relative to the operands rather than to the product */
+        Random random = new Random(19);
+        Complex[] roots = randomFactors(random, 160);
+        Complex[] a = expand(roots, 0, 80);
+        Complex[] b = expand(roots, 80, 160);
+        Complex[] product = new ComplexPolynomial(a).multiply(new ComplexPolynomial(b)).getFactors();
+        double error = relativeError(product, exactProduct(a, b)) * largest(product) / (norm(a) * norm(b));
+        assertTrue(error < MAX_RELATIVE_ERROR, "error relative to operands " + error);
+    }
+
+    @Test
+    void productHasDegreeOfSumOfDegrees() {
+        Random random = new Random(23);
+        ComplexPolynomial a = new ComplexPolynomial(randomFactors(random, 70));
+        ComplexPolynomial b = new ComplexPolynomial(randomFactors(random, 90));
+        assertEquals(a.order() + b.order(), a.multiply(b).order());
+    }
+
+    /**
+     * @return returns absolute value of the largest coefficient
+     */
+    private static double largest(Complex[] factors) {
+        double largest = 0;
+        for (Complex factor : factors)
+            largest = Math.max(largest, factor.module());
+        return largest;
+    }
+
+    /**
+     * @return returns euclidean norm of coefficients
+     */
+    private static double norm(Complex[] factors) {
+        double sum = 0;
+        for (Complex factor : factors)
+            sum += factor.getRe() * factor.getRe() + factor.getIm() * factor.getIm();
+        return Math.sqrt(sum);
+    }
+
+    private static Complex[] randomFactors(Random random, int count) {
+        Complex[] factors = new Complex[count];
+        for (int i = 0; i < count; i++)
+            factors[i] = new Complex(2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1);
+        return factors;
+    }
+
+    /**
+     * @return returns coefficients of monic polynomial with roots from given range
+     */
+    private static Complex[] expand(Complex[] roots, int from, int to) {
+        double[] rootRe = new double[to - from];
+        double[] rootIm = new double[to - from];
+        for (int i = from; i < to; i++) {
+            rootRe[i - from] = roots[i].getRe();
+            rootIm[i - from] = roots[i].getIm();
+        }
+        double[] re = new double[to - from + 1];
+        double[] im = new double[to - from + 1];
+        PolynomialExpansion.expand(rootRe, rootIm, re, im);
+        Complex[] factors = new Complex[re.length];
+        for (int i = 0; i < factors.length; i++)
+            factors[i] = new Complex(re[i], im[i]);
+        return factors;
+    }
+
+    /**
+     * @return returns real and imaginary parts of exact product of given coefficients
+     */
+    private static BigDecimal[][] exactProduct(Complex[] a, Complex[] b) {
+        BigDecimal[] re = new BigDecimal[a.length + b.length - 1];
+        BigDecimal[] im = new BigDecimal[re.length];
+        Arrays.fill(re, BigDecimal.ZERO);
+        Arrays.fill(im, BigDecimal.ZERO);
+        for (int i = 0; i < a.length; i++) {
+            BigDecimal aRe = new BigDecimal(a[i].getRe());
+            BigDecimal aIm = new BigDecimal(a[i].getIm());
+            for (int j = 0; j < b.length; j++) {
+                BigDecimal bRe = new BigDecimal(b[j].getRe());
+                BigDecimal bIm = new BigDecimal(b[j].getIm());
+                re[i + j] = re[i + j].add(aRe.multiply(bRe)).subtract(aIm.multiply(bIm));
+                im[i + j] = im[i + j].add(aRe.multiply(bIm)).add(aIm.multiply(bRe));
+            }
+        }
+        return new BigDecimal[][] {re, im};
+    }
+
+    /**
+     * @return returns the largest error of a coefficient relative to the largest exact coefficient
+     */
+    private static double relativeError(Complex[] product, BigDecimal[][] exact) {
+        assertEquals(exact[0].length, product.length);
+        double largest = 0;
+        double error = 0;
+        for (int k = 0; k < product.length; k++) {
+            double re = exact[0][k].doubleValue();
+            double im = exact[1][k].doubleValue();
+            largest = Math.max(largest, Math.hypot(re, im));
+            error = Math.max(error, Math.hypot(
+                    new BigDecimal(product[k].getRe()).subtract(exact[0][k]).doubleValue(),
+                    new BigDecimal(product[k].getIm()).subtract(exact[1][k]).doubleValue()));
+        }
+        return error / largest;
+    }
+}
@@ -0,0 +1,187 @@
+package hr.fer.zemris.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of {@link ComplexRootedPolynomial}. Expected values were computed by the original
+ * implementation, which expanded roots by {@link ComplexPolynomial#multiply} and
+ * classified points by scanning all roots.
+ */
+class ComplexRootedPolynomialTest {
+
+    private static final Complex[] ROOTS = {
+            new Complex(1, 1), new Complex(-1.5, 0.25), new Complex(0.3, -1.2), new Complex(0, 0.7),
+            new Complex(-0.4, -0.4)
+    };
+
+    /**
+     * Coefficients of (z - r_0)...(z - r_4) as the original implementation expanded them
+     */
+    private static final Complex[] EXPANDED = {
+            new Complex(0.08399999999999991, -1.05),
+            new Complex(0.10350000000000037, -1.2624999999999997),
+            new Complex(1.8245, -1.7850000000000004),
+            new Complex(-0.05499999999999988, -0.635),
+            new Complex(0.6000000000000001, -0.35),
+            new Complex(1.0, 0.0)
+    };
+
+    @Test
+    void toComplexPolynomWithUnitConstantMatchesOriginalExpansion() {
+        Complex[] factors = new ComplexRootedPolynomial(Complex.ONE, ROOTS).toComplexPolynom().getFactors();
+        assertEquals(EXPANDED.length, factors.length);
+        for (int i = 0; i < factors.length; i++) {
+            assertEquals(EXPANDED[i].getRe(), factors[i].getRe(), "re of z^" + i);
+            assertEquals(EXPANDED[i].getIm(), factors[i].getIm(), "im of z^" + i);
+        }
+    }
+
+    @Test
+    void toComplexPolynomMultipliesByConstant() {
+        Complex constant = new Complex(2, -0.5);
+        ComplexRootedPolynomial rooted = new ComplexRootedPolynomial(constant, ROOTS);
+        Complex[] factors = rooted.toComplexPolynom().getFactors();
+        assertEquals(EXPANDED.length, factors.length);
+        for (int i = 0; i < factors.length; i++) {
+            Complex expected = EXPANDED[i].multiply(constant);
+            assertEquals(expected.getRe(), factors[i].getRe(), "re of z^" + i);
+            assertEquals(expected.getIm(), factors[i].getIm(), "im of z^" + i);
+        }
+
+        ComplexPolynomial polynomial = rooted.toComplexPolynom();
+        for (Complex z : new Complex[] {new Complex(0.3, 0.2), new Complex(-1, 2), new Complex(1.5, -0.7)}) {
+            Complex expected = rooted.apply(z);
+            Complex actual = polynomial.apply(z);
+            assertEquals(expected.getRe(), actual.getRe(), 1e-12);
+            assertEquals(expected.getIm(), actual.getIm(), 1e-12);
+        }
+    }
+
+    @Test
+    void toComplexPolynomDoesNotChangeSharedExpansion() {
+        new ComplexRootedPolynomial(new Complex(3, 1), ROOTS).toComplexPolynom();
+        Complex[] factors = new ComplexRootedPolynomial(Complex.ONE, ROOTS).toComplexPolynom().getFactors();
+        assertEquals(EXPANDED[2].getRe(), factors[2].getRe());
+        assertEquals(EXPANDED[2].getIm(), factors[2].getIm());
+    }
+
+    @Test
+    void indexOfClosestRootForMatchesOriginalResults() {
+        ComplexRootedPolynomial polynomial = new ComplexRootedPolynomial(Complex.ONE, ROOTS);
+        double[][] points = {
+                {1.0005, 0.9995}, {-1.5, 0.2505}, {0.2, -1.1}, {0.2, -1.0}, {0, 0.75},
+                {-0.35, -0.45}, {5, 5}, {0.0015, 0.7015}, {0.0014, 0.7014}
+        };
+        int[] expectedSmall = {0, 1, -1, -1, -1, -1, -1, -1, 3};
+        int[] expectedLarge = {0, 1, 2, -1, 3, 4, -1, 3, 3};
+        for (int i = 0; i < points.length; i++) {
+            Complex z = new Complex(points[i][0], points[i][1]);
+            assertEquals(expectedSmall[i], polynomial.indexOfClosestRootFor(z, 0.002), "point " + i);
+            assertEquals(expectedLarge[i], polynomial.indexOfClosestRootFor(z, 0.2), "point " + i);
+        }
+    }
+
+    @Test
+    void indexOfClosestRootForMatchesScanOfAllRoots() {
+        ComplexRootedPolynomial polynomial = new ComplexRootedPolynomial(Complex.ONE, ROOTS);
+        Random random = new Random(42);
+        for (double threshold : new double[] {0.002, 0.05, 0.5, 3}) {
+            double[] re = new double[2000];
+            double[] im = new double[2000];
+            int[] indexes = new int[2000];
+            for (int i = 0; i < re.length; i++) {
+                Complex root = ROOTS[random.nextInt(ROOTS.length)];
+                re[i] = root.getRe() + (random.nextDouble() - 0.5) * 3 * threshold;
+                im[i] = root.getIm() + (random.nextDouble() - 0.5) * 3 * threshold;
+                assertEquals(scan(re[i], im[i], threshold),
+                        polynomial.indexOfClosestRootFor(new Complex(re[i], im[i]), threshold));
+            }
+            polynomial.indexesOfClosestRootsFor(re, im, threshold, indexes);
+            for (int i = 0; i < re.length; i++)
+                assertEquals(scan(re[i], im[i], threshold), indexes[i]);
+        }
+    }
+
+    @Test
+    void rootIndexesForMatchesOriginalImages() {
+        Complex[] unity = {new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)};
+        assertEquals(0x7e7036c2L, imageChecksum(unity, false));
+        assertEquals(0x5cc8890dL, imageChecksum(ROOTS, false));
+        assertEquals(0x7e7036c2L, imageChecksum(unity, true));
+        assertEquals(0x5cc8890dL, imageChecksum(ROOTS, true));
+    }
+
+    @Test
+    void rootIndexesForReturnsIterations() {
+        ComplexRootedPolynomial polynomial = new ComplexRootedPolynomial(Complex.ONE, ROOTS);
+        double[] re = {1.01, 1.3};
+        double[] im = {1.01, 1.3};
+        int[] indexes = new int[2];
+        int[] iterations = new int[2];
+        polynomial.rootIndexesFor(re, im, 4096, 0.001, 0.002, indexes, iterations);
+        assertArrayEquals(new int[] {0, 0}, indexes);
+        assertTrue(iterations[0] > 0 && iterations[0] < iterations[1]);
+    }
+
+    /**
+     * Classifies 200x200 starting points of viewport [-2, 2] x [-2, 2] like the original
+     * producer and returns checksum of root indexes starting from 1
+     */
+    private static long imageChecksum(Complex[] roots, boolean executor) {
+        int size = 200;
+        double[] re = new double[size * size];
+        double[] im = new double[size * size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                re[y * size + x] = x / (size - 1.0) * 4 - 2;
+                im[y * size + x] = (size - 1.0 - y) / (size - 1) * 4 - 2;
+            }
+        }
+        int[] indexes = new int[size * size];
+        ComplexRootedPolynomial polynomial = new ComplexRootedPolynomial(Complex.ONE, roots);
+        if (executor) {
+            ExecutorService pool = Executors.newFixedThreadPool(3);
+            try {
+                polynomial.rootIndexesFor(re, im, 4096, 0.001, 0.002, indexes, null, pool);
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            polynomial.rootIndexesFor(re, im, 4096, 0.001, 0.002, indexes, null);
+        }
+
+        CRC32 crc = new CRC32();
+        for (int index : indexes) {
+            short value = (short) (index + 1);
+            crc.update(value >> 8);
+            crc.update(value);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Original classification, scanning all roots
+     */
+    private static int scan(double re, double im, double threshold) {
+        int index = -1;
+        double minDistance = Double.MAX_VALUE;
+        for (int i = 0; i < ROOTS.length; i++) {
+            double distance = Math.sqrt((ROOTS[i].getRe() - re) * (ROOTS[i].getRe() - re)
+                    + (ROOTS[i].getIm() - im) * (ROOTS[i].getIm() - im));
+            if (distance < threshold && distance < minDistance) {
+                index = i;
+                minDistance = distance;
+            }
+        }
+        return index;
+    }
+}
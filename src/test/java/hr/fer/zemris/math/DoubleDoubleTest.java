@@ -0,0 +1,153 @@
+package hr.fer.zemris.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Random;
+import java.util.function.BinaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DoubleDoubleTest {
+
+    private static final double MAX_RELATIVE_ERROR = 1e-30;
+
+    private static final MathContext EXACT = new MathContext(80);
+
+    @Test
+    void addIsAccurate() {
+        check(DoubleDouble::add, BigDecimal::add);
+    }
+
+    @Test
+    void subIsAccurateAlsoWithCancellation() {
+        check(DoubleDouble::sub, BigDecimal::subtract);
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            /* operands equal in the first 10 to 25 digits */
+            BigDecimal a = randomDecimal(random);
+            BigDecimal b = a.add(a.movePointLeft(10 + random.nextInt(16)).multiply(BigDecimal.valueOf(random.nextDouble())));
+            checkOne(DoubleDouble.valueOf(a), DoubleDouble.valueOf(b), DoubleDouble::sub, BigDecimal::subtract);
+        }
+    }
+
+    @Test
+    void multiplyIsAccurate() {
+        check(DoubleDouble::multiply, BigDecimal::multiply);
+    }
+
+    @Test
+    void divideIsAccurate() {
+        check(DoubleDouble::divide, (a, b) -> a.divide(b, EXACT));
+    }
+
+    @Test
+    void valueOfKeepsThirtyTwoDigits() {
+        Random random = new Random(11);
+        for (int i = 0; i < 1000; i++) {
+            BigDecimal value = randomDecimal(random);
+            DoubleDouble d = DoubleDouble.valueOf(value);
+            assertEquals(value.doubleValue(), d.hi());
+            assertNormalized(d);
+            assertTrue(relativeError(d.toBigDecimal(), value) < MAX_RELATIVE_ERROR, value.toString());
+        }
+    }
+
+    @Test
+    void resultsAreNormalized() {
+        Random random = new Random(13);
+        for (int i = 0; i < 1000; i++) {
+            DoubleDouble a = DoubleDouble.valueOf(randomDecimal(random));
+            DoubleDouble b = DoubleDouble.valueOf(randomDecimal(random));
+            assertNormalized(a.add(b));
+            assertNormalized(a.sub(b));
+            assertNormalized(a.multiply(b));
+            assertNormalized(a.divide(b));
+        }
+    }
+
+    @Test
+    void equalNumbersCancelToZero() {
+        DoubleDouble a = DoubleDouble.valueOf(new BigDecimal("3.14159265358979323846264338327950"));
+        DoubleDouble zero = a.sub(a);
+        assertEquals(0, zero.hi());
+        assertEquals(0, zero.lo());
+    }
+
+    @Test
+    void lowPartSurvivesCancellationOfHighParts() {
+        double tiny = Math.scalb(1.0, -70);
+        DoubleDouble a = DoubleDouble.valueOf(1).add(tiny);
+        assertEquals(1, a.hi());
+        assertEquals(tiny, a.lo());
+
+        DoubleDouble difference = a.sub(DoubleDouble.valueOf(1));
+        assertEquals(tiny, difference.hi());
+        assertEquals(0, difference.lo());
+    }
+
+    @Test
+    void carryOfLowPartMovesIntoHighPart() {
+        double halfUlp = Math.ulp(1.0) / 2;
+        DoubleDouble a = DoubleDouble.valueOf(1).add(halfUlp);
+        assertEquals(1, a.hi());
+        assertEquals(halfUlp, a.lo());
+
+        DoubleDouble sum = a.add(halfUlp);
+        assertEquals(1 + Math.ulp(1.0), sum.hi());
+        assertEquals(0, sum.lo());
+    }
+
+    @Test
+    void overflowGivesInfinityWithoutLowPart() {
+        DoubleDouble huge = DoubleDouble.valueOf(new BigDecimal("1e400"));
+        assertEquals(Double.POSITIVE_INFINITY, huge.hi());
+        assertEquals(0, huge.lo());
+
+        DoubleDouble product = DoubleDouble.valueOf(1e200).multiply(DoubleDouble.valueOf(1e200));
+        assertEquals(Double.POSITIVE_INFINITY, product.hi());
+        assertEquals(0, product.lo());
+    }
+
+    private static void check(BinaryOperator<DoubleDouble> operation, BinaryOperator<BigDecimal> exact) {
+        Random random = new Random(5);
+        for (int i = 0; i < 10000; i++) {
+            DoubleDouble a = DoubleDouble.valueOf(randomDecimal(random));
+            DoubleDouble b = DoubleDouble.valueOf(randomDecimal(random));
+            checkOne(a, b, operation, exact);
+        }
+    }
+
+    private static void checkOne(DoubleDouble a, DoubleDouble b, BinaryOperator<DoubleDouble> operation,
+                                 BinaryOperator<BigDecimal> exact) {
+        BigDecimal expected = exact.apply(a.toBigDecimal(), b.toBigDecimal());
+        BigDecimal actual = operation.apply(a, b).toBigDecimal();
+        double error = relativeError(actual, expected);
+        assertTrue(error < MAX_RELATIVE_ERROR, a + " and " + b + ": relative error " + error);
+    }
+
+    /**
+     * @return returns random decimal of 40 digits with random sign and exponent from -30 to 30
+     */
+    private static BigDecimal randomDecimal(Random random) {
+        StringBuilder digits = new StringBuilder(random.nextBoolean() ? "-" : "");
+        digits.append(1 + random.nextInt(9)).append('.');
+        for (int i = 0; i < 39; i++)
+            digits.append(random.nextInt(10));
+        digits.append('e').append(random.nextInt(61) - 30);
+        return new BigDecimal(digits.toString());
+    }
+
+    private static double relativeError(BigDecimal actual, BigDecimal expected) {
+        if (expected.signum() == 0)
+            return actual.abs().doubleValue();
+        return actual.subtract(expected).abs().divide(expected.abs(), MathContext.DECIMAL64).doubleValue();
+    }
+
+    private static void assertNormalized(DoubleDouble d) {
+        assertEquals(d.hi(), d.hi() + d.lo(), d + " is not normalized");
+        assertTrue(Math.abs(d.lo()) <= Math.ulp(d.hi()) / 2, d + " is not normalized");
+    }
+}
@@ -0,0 +1,156 @@
+package hr.fer.zemris.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests of {@link MutableComplex}, whose results must be the same as of operations of
+ * {@link Complex} and whose arithmetic must not allocate.
+ */
+class MutableComplexTest {
+
+    private static final Complex[] VALUES = {
+            new Complex(0, 0), new Complex(1, 0), new Complex(0, -1), new Complex(1.5, -2.25),
+            new Complex(-0.3, 0.7), new Complex(1e-5, 3e4), new Complex(-123.456, -0.001)
+    };
+
+    @Test
+    void addAndSubMatchComplex() {
+        for (Complex a : VALUES) {
+            for (Complex b : VALUES) {
+                assertSameValue(a.add(b), new MutableComplex(a).addAssign(b));
+                assertSameValue(a.add(b), new MutableComplex(a).addAssign(new MutableComplex(b)));
+                assertSameValue(a.sub(b), new MutableComplex(a).subAssign(b));
+                assertSameValue(a.sub(b), new MutableComplex(a).subAssign(new MutableComplex(b)));
+            }
+        }
+    }
+
+    @Test
+    void mulAndDivMatchComplex() {
+        for (Complex a : VALUES) {
+            for (Complex b : VALUES) {
+                assertSameValue(a.multiply(b), new MutableComplex(a).mulAssign(b));
+                assertSameValue(a.multiply(b), new MutableComplex(a).mulAssign(new MutableComplex(b)));
+                if (b.module() == 0)
+                    continue;
+                assertSameValue(a.divide(b), new MutableComplex(a).divAssign(b));
+                assertSameValue(a.divide(b), new MutableComplex(a).divAssign(new MutableComplex(b)));
+            }
+        }
+    }
+
+    @Test
+    void fmaAndMulAddMatchComplex() {
+        Complex c = new Complex(0.25, -4);
+        for (Complex a : VALUES) {
+            for (Complex b : VALUES) {
+                assertSameValue(c.add(a.multiply(b)), new MutableComplex(c).fma(a, b));
+                assertSameValue(c.add(a.multiply(b)),
+                        new MutableComplex(c).fma(new MutableComplex(a), new MutableComplex(b)));
+                assertSameValue(a.multiply(b).add(c), new MutableComplex(a).mulAdd(new MutableComplex(b), c));
+            }
+        }
+    }
+
+    @Test
+    void negateMatchesComplex() {
+        for (Complex a : VALUES)
+            assertSameValue(a.negate(), new MutableComplex(a).negateAssign());
+    }
+
+    @Test
+    void powerMatchesRepeatedMultiplication() {
+        for (Complex a : VALUES) {
+            Complex expected = Complex.ONE;
+            for (int n = 0; n < 12; n++) {
+                MutableComplex actual = new MutableComplex(a).power(n);
+                double tolerance = 1e-12 * Math.max(1, expected.module());
+                assertEquals(expected.getRe(), actual.getRe(), tolerance, a + "^" + n);
+                assertEquals(expected.getIm(), actual.getIm(), tolerance, a + "^" + n);
+                expected = expected.multiply(a);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new MutableComplex(1, 1).power(-1));
+    }
+
+    @Test
+    void powersOfRealAndImaginaryNumbersAreExact() {
+        /* zero parts may be negative zero */
+        assertExactValue(-1, 0, new MutableComplex(0, 1).power(2));
+        assertExactValue(0, -1, new MutableComplex(0, 1).power(7));
+        assertExactValue(-32, 0, new MutableComplex(-2, 0).power(5));
+        assertExactValue(0, 1, new MutableComplex(new Complex(0, 1).power(9)));
+    }
+
+    @Test
+    void operationsReturnThis() {
+        MutableComplex z = new MutableComplex(1, 2);
+        assertSame(z, z.addAssign(1, 1));
+        assertSame(z, z.mulAssign(1, 1));
+        assertSame(z, z.divAssign(1, 1));
+        assertSame(z, z.negateAssign());
+        assertSame(z, z.power(3));
+    }
+
+    @Test
+    void arithmeticDoesNotAllocate() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(bean.isThreadAllocatedMemorySupported());
+        bean.setThreadAllocatedMemoryEnabled(true);
+        long thread = Thread.currentThread().getId();
+
+        MutableComplex z = new MutableComplex();
+        MutableComplex w = new MutableComplex();
+        Complex c = new Complex(0.5, -0.25);
+        for (int i = 0; i < 20; i++)
+            iterate(z, w, c, 10_000);
+
+        /* measuring itself may allocate, so the same measurement of nothing is subtracted;
+           compilation of the loop may still allocate once, so the best of a few runs counts */
+        long allocated = Long.MAX_VALUE;
+        double result = 0;
+        for (int run = 0; run < 3 && allocated != 0; run++) {
+            long before = bean.getThreadAllocatedBytes(thread);
+            long empty = bean.getThreadAllocatedBytes(thread) - before;
+            before = bean.getThreadAllocatedBytes(thread);
+            result = iterate(z, w, c, 1_000_000);
+            allocated = Math.min(allocated, bean.getThreadAllocatedBytes(thread) - before - empty);
+        }
+
+        assertEquals(0, allocated, "Bytes allocated by arithmetic (result " + result + ")");
+    }
+
+    /**
+     * Runs loop of Newton-like updates using all in-place operations
+     */
+    private static double iterate(MutableComplex z, MutableComplex w, Complex c, int steps) {
+        double sum = 0;
+        for (int i = 0; i < steps; i++) {
+            z.set(0.3 + i * 1e-7, -0.2);
+            w.set(z).power(3).subAssign(Complex.ONE);
+            z.mulAdd(w, c).fma(z, w).divAssign(1.5, 0.5).negateAssign().addAssign(c).subAssign(w);
+            z.mulAssign(c).divAssign(w.set(2, 1)).addAssign(w);
+            sum += z.getRe() + z.getIm() + z.module();
+        }
+        return sum;
+    }
+
+    private static void assertExactValue(double re, double im, MutableComplex actual) {
+        assertEquals(re, actual.getRe(), 0, actual + " re");
+        assertEquals(im, actual.getIm(), 0, actual + " im");
+    }
+
+    private static void assertSameValue(Complex expected, MutableComplex actual) {
+        assertEquals(expected.getRe(), actual.getRe(), expected + " re");
+        assertEquals(expected.getIm(), actual.getIm(), expected + " im");
+    }
+}
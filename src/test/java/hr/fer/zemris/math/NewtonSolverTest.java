@@ -0,0 +1,52 @@
+package hr.fer.zemris.math;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of {@link NewtonSolver}
+ */
+class NewtonSolverTest {
+
+    private static final Complex[] ROOTS = {
+            new Complex(1, 0), new Complex(-1, 0), new Complex(0, 1), new Complex(0, -1)
+    };
+
+    @Test
+    void solveStopsAtFirstPointAfterCancellation() {
+        NewtonSolver solver = new ComplexRootedPolynomial(Complex.ONE, ROOTS).solver(4096, 0.001, 0.002);
+        int n = 64;
+        double[] re = new double[n];
+        double[] im = new double[n];
+        for (int i = 0; i < n; i++) {
+            re[i] = i / (n - 1.0) * 4 - 2;
+            im[i] = 0.3;
+        }
+        int[] expected = new int[n];
+        solver.solve(re, im, 0, n, expected, null);
+
+        int[] polls = {0};
+        int[] indexes = new int[n];
+        Arrays.fill(indexes, -2);
+        int solved = solver.solve(re, im, 5, n, indexes, null, () -> ++polls[0] > 10);
+        assertEquals(15, solved);
+        for (int i = 0; i < n; i++)
+            assertEquals(i >= 5 && i < 15 ? expected[i] : -2, indexes[i], "point " + i);
+    }
+
+    @Test
+    void solveWithoutCancellationSolvesAllPoints() {
+        NewtonSolver solver = new ComplexRootedPolynomial(Complex.ONE, ROOTS).solver(4096, 0.001, 0.002);
+        double[] re = {1.1, -0.9, 0.05};
+        double[] im = {0.1, 0, 1.2};
+        int[] indexes = new int[3];
+        int[] iterations = new int[3];
+        assertEquals(3, solver.solve(re, im, 0, 3, indexes, iterations, null));
+        assertEquals(0, indexes[0]);
+        assertEquals(1, indexes[1]);
+        assertEquals(2, indexes[2]);
+    }
+}